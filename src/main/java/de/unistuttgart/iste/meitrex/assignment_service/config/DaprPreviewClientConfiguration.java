@@ -0,0 +1,20 @@
+package de.unistuttgart.iste.meitrex.assignment_service.config;
+
+import io.dapr.client.DaprClientBuilder;
+import io.dapr.client.DaprPreviewClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides the dapr client for preview APIs, which is needed for the bulk publishing of events.
+ */
+@Configuration
+@ConditionalOnProperty(name = "dapr.bulk_publish.enabled", havingValue = "true")
+public class DaprPreviewClientConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public DaprPreviewClient daprPreviewClient() {
+        return new DaprClientBuilder().buildPreviewClient();
+    }
+}
@@ -0,0 +1,28 @@
+package de.unistuttgart.iste.meitrex.assignment_service.config;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Names of the dapr pubsub and topics the events of this service are published to.
+ * Only needed where events are published without the {@link de.unistuttgart.iste.meitrex.common.dapr.TopicPublisher},
+ * e.g. for bulk publishing, and must match the topics used by the TopicPublisher.
+ */
+@Getter
+@Configuration
+public class EventTopicConfiguration {
+
+    @Value("${dapr.pubsub_name:meitrex}")
+    private String pubsubName;
+
+    @Value("${dapr.topic.content_progressed:content-progressed}")
+    private String contentProgressedTopic;
+
+    @Value("${dapr.topic.student_code_submitted:student-code-submitted}")
+    private String studentCodeSubmittedTopic;
+
+    @Value("${dapr.topic.assessment_content_mutated:assessment-content-mutated}")
+    private String assessmentContentMutatedTopic;
+
+}
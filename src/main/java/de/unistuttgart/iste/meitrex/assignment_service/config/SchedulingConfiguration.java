@@ -0,0 +1,16 @@
+package de.unistuttgart.iste.meitrex.assignment_service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the execution of scheduled jobs, e.g. the periodic import of gradings from the external system.
+ * <p>
+ * The jobs run on the scheduler configured by Spring Boot. Its number of threads is set with
+ * {@code spring.task.scheduling.pool.size}; with the default of a single thread, a long running job like the import
+ * delays all other jobs, e.g. the outbox relay, until it is finished.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
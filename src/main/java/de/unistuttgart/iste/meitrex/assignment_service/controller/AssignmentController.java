@@ -4,11 +4,13 @@ import de.unistuttgart.iste.meitrex.assignment_service.service.GradingService;
 import de.unistuttgart.iste.meitrex.common.exception.NoAccessToCourseException;
 import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
 import de.unistuttgart.iste.meitrex.generated.dto.*;
+import graphql.schema.DataFetchingFieldSelectionSet;
 import de.unistuttgart.iste.meitrex.assignment_service.service.AssignmentService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.graphql.data.method.annotation.*;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 import java.util.UUID;
@@ -53,10 +55,13 @@ public class AssignmentController {
     }
 
     @QueryMapping
-    public List<Grading> getGradingsForAssignment(@Argument final UUID assessmentId, @ContextValue final LoggedInUser currentUser) {
+    public List<Grading> getGradingsForAssignment(@Argument final UUID assessmentId, @ContextValue final LoggedInUser currentUser,
+                                                  final DataFetchingFieldSelectionSet selectionSet) {
         log.info("[GRADING-FLOW] GraphQL query received: getGradingsForAssignment for assessmentId={}, userId={}", 
                 assessmentId, currentUser.getId());
-        return gradingService.getGradingsForAssignment(assessmentId,  currentUser);
+        // the feedback of code assignments requires syncing the repository of the student
+        final boolean feedbackRequested = selectionSet.contains("codeAssignmentGradingMetadata/feedbackTableHtml");
+        return gradingService.getGradingsForAssignment(assessmentId,  currentUser, feedbackRequested);
     }
 
     @QueryMapping
@@ -139,4 +144,10 @@ public class AssignmentController {
         return assignmentService.deleteSubexercise(assignmentMutation.getAssessmentId(), itemId);
     }
 
+    /* Subscription Mappings */
+
+    @SubscriptionMapping
+    public Flux<Grading> gradingUpdated(@Argument final UUID assessmentId, @ContextValue final LoggedInUser currentUser) {
+        return gradingService.subscribeToGradingUpdates(assessmentId, currentUser);
+    }
 }
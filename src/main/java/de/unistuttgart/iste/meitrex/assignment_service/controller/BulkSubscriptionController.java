@@ -0,0 +1,96 @@
+package de.unistuttgart.iste.meitrex.assignment_service.controller;
+
+import de.unistuttgart.iste.meitrex.assignment_service.service.AssignmentService;
+import de.unistuttgart.iste.meitrex.assignment_service.service.ContentDeletionBatcher;
+import de.unistuttgart.iste.meitrex.common.event.ContentChangeEvent;
+import de.unistuttgart.iste.meitrex.common.event.CrudOperation;
+import io.dapr.Topic;
+import io.dapr.client.domain.BulkSubscribeAppResponse;
+import io.dapr.client.domain.BulkSubscribeAppResponseEntry;
+import io.dapr.client.domain.BulkSubscribeAppResponseStatus;
+import io.dapr.client.domain.BulkSubscribeMessage;
+import io.dapr.client.domain.BulkSubscribeMessageEntry;
+import io.dapr.client.domain.CloudEvent;
+import io.dapr.springboot.annotations.BulkSubscribe;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * REST Controller Class receiving content-changed events in bulk from a dapr Topic.
+ * Used instead of {@link SubscriptionController} if {@code dapr.content_changed.mode} is {@code bulk}.
+ * <p>
+ * The deletions of all entries are handed over to the {@link ContentDeletionBatcher}. Entries whose deletion
+ * could not be queued or failed are answered with {@link BulkSubscribeAppResponseStatus#RETRY}, so that dapr
+ * redelivers them, invalid entries are dropped. For updated contents, the stored assignment slugs are cleared.
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "dapr.content_changed.mode", havingValue = "bulk")
+public class BulkSubscriptionController {
+
+    private final ContentDeletionBatcher contentDeletionBatcher;
+    private final AssignmentService assignmentService;
+
+    @BulkSubscribe
+    @Topic(name = "content-changed", pubsubName = "meitrex")
+    @PostMapping(path = "/assignment-service/content-changed-pubsub-bulk")
+    public Mono<BulkSubscribeAppResponse> deleteAssociations(
+            @RequestBody BulkSubscribeMessage<CloudEvent<ContentChangeEvent>> bulkMessage) {
+
+        final List<CompletableFuture<BulkSubscribeAppResponseEntry>> responses = new ArrayList<>(bulkMessage.getEntries().size());
+        for (final BulkSubscribeMessageEntry<CloudEvent<ContentChangeEvent>> entry : bulkMessage.getEntries()) {
+            responses.add(handleEntry(entry));
+        }
+
+        return Mono.fromFuture(CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> new BulkSubscribeAppResponse(responses.stream().map(CompletableFuture::join).toList())));
+    }
+
+    private CompletableFuture<BulkSubscribeAppResponseEntry> handleEntry(final BulkSubscribeMessageEntry<CloudEvent<ContentChangeEvent>> entry) {
+        final CloudEvent<ContentChangeEvent> cloudEvent = entry.getEvent();
+        final ContentChangeEvent event = cloudEvent == null ? null : cloudEvent.getData();
+        if (event == null || event.getOperation() == null || event.getContentIds() == null) {
+            log.error("Dropping incomplete content-changes event {}", entry.getEntryId());
+            return response(entry, BulkSubscribeAppResponseStatus.DROP);
+        }
+        if (event.getOperation() == CrudOperation.UPDATE) {
+            return clearAssignmentSlugs(entry, event);
+        }
+        // apart from that, only DELETE operations are relevant
+        if (event.getOperation() != CrudOperation.DELETE || event.getContentIds().isEmpty()) {
+            return response(entry, BulkSubscribeAppResponseStatus.SUCCESS);
+        }
+
+        return contentDeletionBatcher.submit(cloudEvent.getId(), event.getContentIds())
+                .map(result -> result.handle((ignored, error) -> new BulkSubscribeAppResponseEntry(entry.getEntryId(),
+                        error == null ? BulkSubscribeAppResponseStatus.SUCCESS : BulkSubscribeAppResponseStatus.RETRY)))
+                .orElseGet(() -> response(entry, BulkSubscribeAppResponseStatus.RETRY));
+    }
+
+    private CompletableFuture<BulkSubscribeAppResponseEntry> clearAssignmentSlugs(final BulkSubscribeMessageEntry<?> entry,
+                                                                              final ContentChangeEvent event) {
+        // the content may have been renamed, which changes the slug of a code assignment
+        try {
+            assignmentService.clearAssignmentSlugsOfContents(event.getContentIds());
+            return response(entry, BulkSubscribeAppResponseStatus.SUCCESS);
+        } catch (RuntimeException e) {
+            log.error("Clearing the assignment slugs of content-changes event {} failed: {}", entry.getEntryId(), e.toString());
+            return response(entry, BulkSubscribeAppResponseStatus.RETRY);
+        }
+    }
+
+    private static CompletableFuture<BulkSubscribeAppResponseEntry> response(final BulkSubscribeMessageEntry<?> entry,
+                                                                             final BulkSubscribeAppResponseStatus status) {
+        return CompletableFuture.completedFuture(new BulkSubscribeAppResponseEntry(entry.getEntryId(), status));
+    }
+}
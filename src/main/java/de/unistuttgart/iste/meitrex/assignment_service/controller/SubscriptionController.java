@@ -3,10 +3,12 @@ package de.unistuttgart.iste.meitrex.assignment_service.controller;
 
 import de.unistuttgart.iste.meitrex.assignment_service.service.AssignmentService;
 import de.unistuttgart.iste.meitrex.common.event.ContentChangeEvent;
+import de.unistuttgart.iste.meitrex.common.event.CrudOperation;
 import io.dapr.Topic;
 import io.dapr.client.domain.CloudEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -14,10 +16,12 @@ import reactor.core.publisher.Mono;
 
 /**
  * REST Controller Class listening to a dapr Topic.
+ * Handles each event on its own, see {@link BulkSubscriptionController} for the batched alternative.
  */
 @Slf4j
 @RestController
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "dapr.content_changed.mode", havingValue = "single", matchIfMissing = true)
 public class SubscriptionController {
 
     private final AssignmentService assignmentService;
@@ -28,7 +32,12 @@ public class SubscriptionController {
 
         return Mono.fromRunnable(() -> {
             try {
-                assignmentService.deleteAssignmentIfContentIsDeleted(cloudEvent.getData());
+                final ContentChangeEvent event = cloudEvent.getData();
+                assignmentService.deleteAssignmentIfContentIsDeleted(event);
+                if (event.getOperation() == CrudOperation.UPDATE) {
+                    // the content may have been renamed, which changes the slug of a code assignment
+                    assignmentService.clearAssignmentSlugsOfContents(event.getContentIds());
+                }
             } catch (Exception e) {
                 log.error("Error while processing content-changes event. {}", e.getMessage());
             }
@@ -0,0 +1,62 @@
+package de.unistuttgart.iste.meitrex.assignment_service.persistence.entity;
+
+import de.unistuttgart.iste.meitrex.common.persistence.IWithId;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * An event which still has to be published to the dapr pubsub.
+ * <p>
+ * Outbox events are written in the same transaction as the change they describe and are published
+ * asynchronously by the {@link de.unistuttgart.iste.meitrex.assignment_service.service.event.OutboxRelay}.
+ * Events with the same aggregate id are published in the order of their ids.
+ */
+@Entity(name = "OutboxEvent")
+@Table(indexes = {
+        @Index(name = "idx_outbox_event_aggregate_id", columnList = "aggregate_id"),
+        @Index(name = "idx_outbox_event_next_attempt_at", columnList = "next_attempt_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEventEntity implements IWithId<Long> {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String aggregateId;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private EventType eventType;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(nullable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private OffsetDateTime nextAttemptAt;
+
+    @Column(nullable = true, columnDefinition = "TEXT")
+    private String lastError;
+
+    public enum EventType {
+        CONTENT_PROGRESSED,
+        STUDENT_CODE_SUBMITTED,
+        ASSESSMENT_CONTENT_MUTATED,
+        ITEM_CHANGED
+    }
+}
@@ -0,0 +1,110 @@
+package de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.exercise.ExerciseEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.exercise.SubexerciseEntity;
+import jakarta.persistence.EntityNotFoundException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable lookup structure for the total credits of the exercises and subexercises of an assignment. <br>
+ * Each item id is mapped to a slot of a flat array, so computing the progress of many gradings only needs a
+ * hash lookup per item instead of scanning the exercise lists. The index is a snapshot of the exercises at the time
+ * it was built and has to be rebuilt whenever they change, see {@link AssignmentEntity#creditIndex()}.
+ */
+public final class AssignmentCreditIndex {
+
+    private static final int NO_PARENT = -1;
+
+    private final Map<UUID, Integer> slots;
+    private final double[] totalCredits;
+    // slot of the parent exercise for subexercises, NO_PARENT for exercises
+    private final int[] parentSlots;
+
+    private AssignmentCreditIndex(final Map<UUID, Integer> slots, final double[] totalCredits, final int[] parentSlots) {
+        this.slots = slots;
+        this.totalCredits = totalCredits;
+        this.parentSlots = parentSlots;
+    }
+
+    /**
+     * Builds the index for the exercises of the given assignment.
+     *
+     * @param assignment the assignment
+     * @return the index
+     */
+    public static AssignmentCreditIndex of(final AssignmentEntity assignment) {
+        final List<ExerciseEntity> exercises = assignment.getExercises() == null ? List.of() : assignment.getExercises();
+
+        int size = exercises.size();
+        for (final ExerciseEntity exercise : exercises) {
+            size += exercise.getSubexercises() == null ? 0 : exercise.getSubexercises().size();
+        }
+
+        final Map<UUID, Integer> slots = HashMap.newHashMap(size);
+        final double[] totalCredits = new double[size];
+        final int[] parentSlots = new int[size];
+        int slot = 0;
+        for (final ExerciseEntity exercise : exercises) {
+            final int exerciseSlot = slot++;
+            slots.put(exercise.getId(), exerciseSlot);
+            totalCredits[exerciseSlot] = exercise.getTotalExerciseCredits();
+            parentSlots[exerciseSlot] = NO_PARENT;
+
+            if (exercise.getSubexercises() == null) {
+                continue;
+            }
+            for (final SubexerciseEntity subexercise : exercise.getSubexercises()) {
+                final int subexerciseSlot = slot++;
+                slots.put(subexercise.getId(), subexerciseSlot);
+                totalCredits[subexerciseSlot] = subexercise.getTotalSubexerciseCredits();
+                parentSlots[subexerciseSlot] = exerciseSlot;
+            }
+        }
+        return new AssignmentCreditIndex(Map.copyOf(slots), totalCredits, parentSlots);
+    }
+
+    /**
+     * Returns the slot of the exercise with the given id.
+     *
+     * @param exerciseId the id of the exercise
+     * @return the slot of the exercise
+     * @throws EntityNotFoundException if the assignment has no exercise with the given id
+     */
+    public int exerciseSlot(final UUID exerciseId) {
+        final Integer slot = slots.get(exerciseId);
+        if (slot == null || parentSlots[slot] != NO_PARENT) {
+            throw new EntityNotFoundException("Exercise with itemId %s not found in assignmentEntity".formatted(exerciseId));
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the slot of the subexercise with the given id.
+     *
+     * @param exerciseSlot  the slot of the parent exercise
+     * @param subexerciseId the id of the subexercise
+     * @return the slot of the subexercise
+     * @throws EntityNotFoundException if the exercise has no subexercise with the given id
+     */
+    public int subexerciseSlot(final int exerciseSlot, final UUID subexerciseId) {
+        final Integer slot = slots.get(subexerciseId);
+        if (slot == null || parentSlots[slot] != exerciseSlot) {
+            throw new EntityNotFoundException("Subexercise with itemId %s not found in exerciseEntity".formatted(subexerciseId));
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the total credits of the exercise or subexercise in the given slot.
+     *
+     * @param slot the slot of the item
+     * @return the total credits of the item
+     */
+    public double totalCredits(final int slot) {
+        return totalCredits[slot];
+    }
+}
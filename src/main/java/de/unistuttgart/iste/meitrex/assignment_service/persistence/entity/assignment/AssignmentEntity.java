@@ -5,6 +5,7 @@ import de.unistuttgart.iste.meitrex.common.persistence.IWithId;
 import de.unistuttgart.iste.meitrex.generated.dto.AssignmentType;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -55,8 +56,46 @@ public class AssignmentEntity implements IWithId<UUID> {
     @Column(nullable = true)
     private String externalId;
 
+    /**
+     * Version for optimistic locking, so that concurrent modifications of the assignment and its exercises
+     * don't overwrite each other. Existing rows start with version 0.
+     */
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
+    /**
+     * Lazily built index of the exercise and subexercise credits, not persisted.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private AssignmentCreditIndex creditIndex;
+
     @Override
     public UUID getId() {
         return assessmentId;
     }
+
+    /**
+     * Returns the credit index of the exercises of this assignment. It is built on first access and reused until
+     * {@link #invalidateCreditIndex()} is called, which has to happen whenever the exercises are modified.
+     *
+     * @return the credit index
+     */
+    public AssignmentCreditIndex creditIndex() {
+        if (creditIndex == null) {
+            creditIndex = AssignmentCreditIndex.of(this);
+        }
+        return creditIndex;
+    }
+
+    /**
+     * Discards the credit index, so that it is rebuilt on next access.
+     */
+    public void invalidateCreditIndex() {
+        creditIndex = null;
+    }
 }
@@ -2,7 +2,10 @@ package de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assig
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 
+import java.time.OffsetDateTime;
 import java.util.UUID;
 
 /**
@@ -21,6 +24,7 @@ public class CodeAssignmentMetadataEntity {
 
     @OneToOne
     @MapsId
+    @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "assignment_id")
     private AssignmentEntity assignment;
 
@@ -42,4 +46,30 @@ public class CodeAssignmentMetadataEntity {
      */
     @Column(nullable = true, columnDefinition = "TEXT")
     private String readmeHtml;
+
+    /**
+     * The assignment name as the external platform uses it to name the students' repositories.
+     * Stored so that repositories can be found without querying the name from the content service.
+     * May be null if it is unknown, e.g. because the assignment was renamed.
+     */
+    @Column(nullable = true)
+    private String assignmentSlug;
+
+    /**
+     * The organization on the external platform the students' repositories belong to.
+     * May be null if the external course was not known yet when the assignment was created.
+     */
+    @Column(nullable = true)
+    private String organizationName;
+
+    /**
+     * When the total credits of the assignment were first read from the log of a graded workflow run, and the id of
+     * that run. Null as long as the total credits are unknown, because the external platform only reports them
+     * in the logs of graded runs.
+     */
+    @Column(nullable = true)
+    private OffsetDateTime totalCreditsDeterminedAt;
+
+    @Column(nullable = true)
+    private String totalCreditsRunId;
 }
@@ -3,6 +3,8 @@ package de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assig
 import de.unistuttgart.iste.meitrex.common.persistence.IWithId;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 
 import java.util.UUID;
 
@@ -25,6 +27,7 @@ public class SubexerciseEntity implements IWithId<UUID> {
     private String tutorFeedback;
 
     @ManyToOne
+    @OnDelete(action = OnDeleteAction.CASCADE)
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
     private ExerciseEntity parentExercise;
@@ -6,6 +6,10 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.OffsetDateTime;
 
 /**
  * Stores metadata for code-based assignments gradings that are linked to external systems,
@@ -23,6 +27,7 @@ public class CodeAssignmentGradingMetadataEntity {
 
     @OneToOne
     @MapsId
+    @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumns({
             @JoinColumn(name = "assessment_id", referencedColumnName = "assessment_id"),
             @JoinColumn(name = "student_id", referencedColumnName = "student_id")
@@ -40,4 +45,52 @@ public class CodeAssignmentGradingMetadataEntity {
 
     @Column(nullable = true)
     private String lastProcessedCommitSha;
+
+    /**
+     * Username of the student on the external platform, stored once it was resolved to not ask the user service
+     * again. Like the sync time, it is only written with {@code GradingRepository#storeExternalUsernames}.
+     */
+    @Column(nullable = true, updatable = false)
+    private String externalUsername;
+
+    /**
+     * Hash of the external grading of the last sync, used to skip updating the grading if nothing changed.
+     */
+    @Column(nullable = true)
+    private String syncHash;
+
+    /**
+     * When the grading was last synced with the external platform, null if it was never synced.
+     * It is not part of the updates of the metadata, so that a sync which changed nothing doesn't rewrite the whole
+     * row including the feedback table. It is written with {@code GradingRepository#markSynced} instead.
+     */
+    @Column(nullable = true, updatable = false)
+    private OffsetDateTime lastSyncedAt;
+
+    /**
+     * Id of the external run whose logs were parsed at the last sync, and the points parsed from them.
+     * Together with the feedback table they are reused if the run is still the latest one, instead of
+     * downloading its logs again.
+     */
+    @Column(nullable = true)
+    private String lastRunId;
+
+    @Column(nullable = true)
+    private Double lastRunAchievedPoints;
+
+    @Column(nullable = true)
+    private Double lastRunTotalPoints;
+
+    /**
+     * Achieved credits, total credits and commit of the last published ContentProgressedEvent,
+     * used to avoid publishing the same progress again.
+     */
+    @Column(nullable = true)
+    private Double lastPublishedAchievedCredits;
+
+    @Column(nullable = true)
+    private Double lastPublishedTotalCredits;
+
+    @Column(nullable = true)
+    private String lastPublishedCommitSha;
 }
\ No newline at end of file
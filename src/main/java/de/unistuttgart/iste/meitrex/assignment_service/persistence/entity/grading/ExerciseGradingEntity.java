@@ -2,6 +2,8 @@ package de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.gradi
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 
 import java.io.Serializable;
 import java.util.List;
@@ -25,6 +27,7 @@ public class ExerciseGradingEntity {
     private List<SubexerciseGradingEntity> subexerciseGradings;
 
     @ManyToOne
+    @OnDelete(action = OnDeleteAction.CASCADE)
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
     private GradingEntity parentGrading;
@@ -0,0 +1,34 @@
+package de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading;
+
+import de.unistuttgart.iste.meitrex.common.persistence.IWithId;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * When the last snapshot of the grades of a code assignment was taken. The points of the students are stored as
+ * {@link GradesSnapshotEntryEntity entries}, which are only written if they changed.
+ */
+@Entity(name = "GradesSnapshot")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradesSnapshotEntity implements IWithId<UUID> {
+
+    @Id
+    private UUID assignmentId;
+
+    @Column(nullable = false)
+    private OffsetDateTime syncedAt;
+
+    @Override
+    public UUID getId() {
+        return assignmentId;
+    }
+}
@@ -0,0 +1,51 @@
+package de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading;
+
+import de.unistuttgart.iste.meitrex.common.persistence.IWithId;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * The points of one student in the last snapshot of the grades of a code assignment, as reported by the external
+ * platform for the whole assignment at once. Used to answer the credits of students without syncing their repository.
+ * When the snapshot was taken is stored once per assignment, see {@link GradesSnapshotEntity}.
+ */
+@Entity(name = "GradesSnapshotEntry")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradesSnapshotEntryEntity implements IWithId<GradesSnapshotEntryEntity.PrimaryKey> {
+
+    @EmbeddedId
+    private PrimaryKey primaryKey;
+
+    @Column(nullable = true)
+    private Double achievedPoints;
+
+    /**
+     * When the student's submission was graded, null if it was not graded yet.
+     */
+    @Column(nullable = true)
+    private OffsetDateTime submittedAt;
+
+    @Data
+    @Embeddable
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PrimaryKey implements Serializable {
+        private UUID assignmentId;
+        private String externalUsername;
+    }
+
+    @Override
+    public PrimaryKey getId() {
+        return primaryKey;
+    }
+}
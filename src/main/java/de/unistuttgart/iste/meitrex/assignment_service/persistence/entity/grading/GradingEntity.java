@@ -13,12 +13,24 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity(name = "Grading")
+@NamedEntityGraph(
+        name = GradingEntity.GRAPH_WITH_METADATA,
+        attributeNodes = @NamedAttributeNode("codeAssignmentGradingMetadata"))
+@NamedEntityGraph(
+        name = GradingEntity.GRAPH_WITH_EXERCISE_GRADINGS,
+        attributeNodes = {
+                @NamedAttributeNode("codeAssignmentGradingMetadata"),
+                @NamedAttributeNode("exerciseGradings")
+        })
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class GradingEntity implements IWithId<GradingEntity.PrimaryKey> {
 
+    public static final String GRAPH_WITH_METADATA = "Grading.withMetadata";
+    public static final String GRAPH_WITH_EXERCISE_GRADINGS = "Grading.withExerciseGradings";
+
     @EmbeddedId
     @AttributeOverrides({
             @AttributeOverride(name = "assessmentId", column = @Column(name = "assessment_id")),
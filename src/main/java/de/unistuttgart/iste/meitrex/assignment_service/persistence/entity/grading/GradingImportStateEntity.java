@@ -0,0 +1,47 @@
+package de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading;
+
+import de.unistuttgart.iste.meitrex.common.persistence.IWithId;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Remembers the content hash of the last imported hand-in row of a student from the external system (TMS),
+ * so that the scheduled import only processes rows that actually changed.
+ */
+@Entity(name = "GradingImportState")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradingImportStateEntity implements IWithId<GradingImportStateEntity.PrimaryKey> {
+
+    @EmbeddedId
+    private PrimaryKey primaryKey;
+
+    @Column(nullable = false)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private OffsetDateTime lastImportedAt;
+
+    @Data
+    @Embeddable
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PrimaryKey implements Serializable {
+        private UUID assignmentId;
+        private String externalStudentId;
+    }
+
+    @Override
+    public PrimaryKey getId() {
+        return primaryKey;
+    }
+}
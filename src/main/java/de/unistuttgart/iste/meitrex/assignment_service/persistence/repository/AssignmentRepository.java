@@ -2,10 +2,14 @@ package de.unistuttgart.iste.meitrex.assignment_service.persistence.repository;
 
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentEntity;
 import de.unistuttgart.iste.meitrex.common.persistence.MeitrexRepository;
+import de.unistuttgart.iste.meitrex.generated.dto.AssignmentType;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -15,4 +19,79 @@ public interface AssignmentRepository extends MeitrexRepository<AssignmentEntity
     Optional<AssignmentEntity> findByIdWithCodeMetadata(@Param("id") UUID id);
 
     boolean existsByExternalId(String externalId);
+
+    List<AssignmentEntity> findAllByExternalIdIsNotNullAndAssignmentTypeNot(AssignmentType assignmentType);
+
+    /**
+     * Atomically raises the total credits of the assignment to the given points, if they are higher than the
+     * current total credits. Used for code assignments, whose total credits are only known after the first grading.
+     * The version is not incremented, as this is a commutative update which can't conflict with other updates
+     * of the total credits.
+     *
+     * @param assessmentId id of the assignment
+     * @param points       total points determined by the external platform
+     * @return 1 if the total credits were raised, 0 otherwise
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Assignment a SET a.totalCredits = GREATEST(COALESCE(a.totalCredits, 0), :points) " +
+           "WHERE a.assessmentId = :assessmentId AND (a.totalCredits IS NULL OR a.totalCredits < :points)")
+    int raiseTotalCredits(@Param("assessmentId") UUID assessmentId, @Param("points") double points);
+
+    /**
+     * Forgets the stored assignment slugs of the given code assignments, e.g. because their contents were renamed.
+     * The slugs are resolved again with the next repository lookup.
+     *
+     * @param assessmentIds ids of the assignments
+     * @return number of updated code assignments
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE CodeAssignmentMetadata m SET m.assignmentSlug = NULL WHERE m.id IN :assessmentIds")
+    int clearAssignmentSlugs(@Param("assessmentIds") List<UUID> assessmentIds);
+
+    /**
+     * Sets the organization of all code assignments of a course, e.g. after the external course was (re)loaded.
+     *
+     * @param courseId         id of the course
+     * @param organizationName name of the organization on the external platform
+     * @return number of updated code assignments
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE CodeAssignmentMetadata m SET m.organizationName = :organizationName " +
+           "WHERE m.id IN (SELECT a.assessmentId FROM Assignment a WHERE a.courseId = :courseId)")
+    int updateOrganizationNameOfCourse(@Param("courseId") UUID courseId, @Param("organizationName") String organizationName);
+
+    @Modifying
+    @Query("DELETE FROM Subexercise s WHERE EXISTS (SELECT 1 FROM Exercise e " +
+           "WHERE e = s.parentExercise AND e.parentAssignment.assessmentId IN :assessmentIds)")
+    int deleteSubexercisesOfAssignments(@Param("assessmentIds") List<UUID> assessmentIds);
+
+    @Modifying
+    @Query("DELETE FROM Exercise e WHERE e.parentAssignment.assessmentId IN :assessmentIds")
+    int deleteExercisesOfAssignments(@Param("assessmentIds") List<UUID> assessmentIds);
+
+    @Modifying
+    @Query("DELETE FROM CodeAssignmentMetadata m WHERE m.id IN :assessmentIds")
+    int deleteCodeAssignmentMetadataOfAssignments(@Param("assessmentIds") List<UUID> assessmentIds);
+
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Assignment a WHERE a.assessmentId IN :assessmentIds")
+    int deleteAssignments(@Param("assessmentIds") List<UUID> assessmentIds);
+
+    /**
+     * Deletes the assignments with the given ids including their exercises, subexercises and code assignment
+     * metadata with set-based statements, without loading the entities. Like
+     * {@link GradingRepository#deleteAllByAssessmentIds(List)}, the child rows are deleted explicitly in addition
+     * to the cascading foreign keys.
+     *
+     * @param assessmentIds ids of the assignments
+     * @return number of deleted assignments
+     */
+    default int deleteAllByAssessmentIds(final List<UUID> assessmentIds) {
+        deleteSubexercisesOfAssignments(assessmentIds);
+        deleteExercisesOfAssignments(assessmentIds);
+        deleteCodeAssignmentMetadataOfAssignments(assessmentIds);
+        return deleteAssignments(assessmentIds);
+    }
 }
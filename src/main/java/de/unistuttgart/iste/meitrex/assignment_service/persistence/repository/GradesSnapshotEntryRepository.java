@@ -0,0 +1,27 @@
+package de.unistuttgart.iste.meitrex.assignment_service.persistence.repository;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradesSnapshotEntryEntity;
+import de.unistuttgart.iste.meitrex.common.persistence.MeitrexRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface GradesSnapshotEntryRepository extends MeitrexRepository<GradesSnapshotEntryEntity, GradesSnapshotEntryEntity.PrimaryKey> {
+    List<GradesSnapshotEntryEntity> findAllByPrimaryKey_AssignmentId(UUID assignmentId);
+
+    /**
+     * Deletes the snapshot entries of the given assignments with a set-based statement, e.g. because the
+     * assignments were deleted.
+     *
+     * @param assignmentIds ids of the assignments
+     * @return number of deleted entries
+     */
+    @Modifying
+    @Query("DELETE FROM GradesSnapshotEntry e WHERE e.primaryKey.assignmentId IN :assignmentIds")
+    int deleteAllByAssignmentIds(@Param("assignmentIds") List<UUID> assignmentIds);
+}
@@ -0,0 +1,26 @@
+package de.unistuttgart.iste.meitrex.assignment_service.persistence.repository;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradesSnapshotEntity;
+import de.unistuttgart.iste.meitrex.common.persistence.MeitrexRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface GradesSnapshotRepository extends MeitrexRepository<GradesSnapshotEntity, UUID> {
+
+    /**
+     * Deletes the snapshots of the given assignments with a set-based statement, e.g. because the assignments were
+     * deleted. Their entries are deleted with {@link GradesSnapshotEntryRepository#deleteAllByAssignmentIds(List)}.
+     *
+     * @param assignmentIds ids of the assignments
+     * @return number of deleted snapshots
+     */
+    @Modifying
+    @Query("DELETE FROM GradesSnapshot s WHERE s.assignmentId IN :assignmentIds")
+    int deleteAllByAssignmentIds(@Param("assignmentIds") List<UUID> assignmentIds);
+}
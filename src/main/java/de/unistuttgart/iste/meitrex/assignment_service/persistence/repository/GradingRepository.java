@@ -1,10 +1,19 @@
 package de.unistuttgart.iste.meitrex.assignment_service.persistence.repository;
 
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.ExerciseGradingEntity;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradingEntity;
 import de.unistuttgart.iste.meitrex.common.persistence.MeitrexRepository;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -12,4 +21,249 @@ public interface GradingRepository extends MeitrexRepository<GradingEntity, Grad
     List<GradingEntity> findAllByPrimaryKey_AssessmentId(UUID assessmentId);
     List<GradingEntity> findAllByPrimaryKey_AssessmentIdIn(List<UUID> ids);
 
-}
\ No newline at end of file
+    /**
+     * Loads the gradings of an assignment together with their code assignment metadata.
+     */
+    @EntityGraph(GradingEntity.GRAPH_WITH_METADATA)
+    List<GradingEntity> findAllWithMetadataByPrimaryKey_AssessmentId(UUID assessmentId);
+
+    /**
+     * Loads the gradings of the given students on an assignment together with their code assignment metadata.
+     */
+    @EntityGraph(GradingEntity.GRAPH_WITH_METADATA)
+    List<GradingEntity> findAllWithMetadataByPrimaryKey_AssessmentIdAndPrimaryKey_StudentIdIn(UUID assessmentId, Collection<UUID> studentIds);
+
+    /**
+     * Loads the gradings of an assignment together with their code assignment metadata and exercise gradings.
+     * Subexercise gradings are not part of the graph, as fetching two bags at once is not possible.
+     */
+    @EntityGraph(GradingEntity.GRAPH_WITH_EXERCISE_GRADINGS)
+    List<GradingEntity> findAllWithExerciseGradingsByPrimaryKey_AssessmentId(UUID assessmentId);
+
+    @EntityGraph(GradingEntity.GRAPH_WITH_EXERCISE_GRADINGS)
+    Optional<GradingEntity> findWithExerciseGradingsByPrimaryKey(GradingEntity.PrimaryKey primaryKey);
+
+    /**
+     * Initializes the subexercise gradings of all exercise gradings of an assignment in the persistence context.
+     */
+    @Query("SELECT DISTINCT eg FROM ExerciseGrading eg LEFT JOIN FETCH eg.subexerciseGradings " +
+           "WHERE eg.parentGrading.primaryKey.assessmentId = :assessmentId")
+    List<ExerciseGradingEntity> fetchSubexerciseGradingsOfAssessment(@Param("assessmentId") UUID assessmentId);
+
+    @Query("SELECT DISTINCT eg FROM ExerciseGrading eg LEFT JOIN FETCH eg.subexerciseGradings " +
+           "WHERE eg.parentGrading.primaryKey.assessmentId = :assessmentId AND eg.parentGrading.primaryKey.studentId = :studentId")
+    List<ExerciseGradingEntity> fetchSubexerciseGradingsOfStudent(@Param("assessmentId") UUID assessmentId,
+                                                                  @Param("studentId") UUID studentId);
+
+    /**
+     * Loads all gradings of an assignment including everything the gradebook displays
+     * (metadata, exercise and subexercise gradings) in a constant number of statements.
+     */
+    default List<GradingEntity> findGradebookByAssessmentId(final UUID assessmentId) {
+        final List<GradingEntity> gradings = findAllWithExerciseGradingsByPrimaryKey_AssessmentId(assessmentId);
+        if (gradings.stream().anyMatch(grading -> grading.getExerciseGradings() != null && !grading.getExerciseGradings().isEmpty())) {
+            fetchSubexerciseGradingsOfAssessment(assessmentId);
+        }
+        return gradings;
+    }
+
+    /**
+     * Loads the grading of a single student including metadata, exercise and subexercise gradings.
+     */
+    default Optional<GradingEntity> findWithAllGradingsByPrimaryKey(final GradingEntity.PrimaryKey primaryKey) {
+        final Optional<GradingEntity> grading = findWithExerciseGradingsByPrimaryKey(primaryKey);
+        grading.filter(g -> g.getExerciseGradings() != null && !g.getExerciseGradings().isEmpty())
+                .ifPresent(g -> fetchSubexerciseGradingsOfStudent(primaryKey.getAssessmentId(), primaryKey.getStudentId()));
+        return grading;
+    }
+
+    /**
+     * Creates the grading of a student on a code assignment together with its empty metadata, if it doesn't exist
+     * yet. Concurrent calls for the same student are race-free, only one of them inserts the rows.
+     *
+     * @param assessmentId id of the code assignment
+     * @param studentId    id of the student
+     * @return 1 if the grading was created, 0 if it already existed
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            WITH inserted_grading AS (
+                INSERT INTO grading (assessment_id, student_id) VALUES (:assessmentId, :studentId)
+                ON CONFLICT DO NOTHING
+                RETURNING assessment_id, student_id
+            )
+            INSERT INTO code_assignment_grading_metadata (assessment_id, student_id)
+            SELECT assessment_id, student_id FROM inserted_grading
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertCodeAssignmentGradingIfAbsent(@Param("assessmentId") UUID assessmentId, @Param("studentId") UUID studentId);
+
+    /**
+     * Like {@link #insertCodeAssignmentGradingIfAbsent(UUID, UUID)}, but for many students with a single statement.
+     *
+     * @param assessmentId id of the code assignment
+     * @param studentIds   ids of the students
+     * @return number of created gradings
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            WITH inserted_grading AS (
+                INSERT INTO grading (assessment_id, student_id)
+                SELECT :assessmentId, student_id FROM unnest(CAST(:studentIds AS uuid[])) AS students(student_id)
+                ON CONFLICT DO NOTHING
+                RETURNING assessment_id, student_id
+            )
+            INSERT INTO code_assignment_grading_metadata (assessment_id, student_id)
+            SELECT assessment_id, student_id FROM inserted_grading
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertCodeAssignmentGradingsIfAbsent(@Param("assessmentId") UUID assessmentId, @Param("studentIds") UUID[] studentIds);
+
+    /**
+     * Sets the repository links of the given students on a code assignment with a single statement.
+     * Repository links which are already set are not changed.
+     *
+     * @param assessmentId id of the code assignment
+     * @param studentIds   ids of the students
+     * @param repoLinks    repository links of the students, in the same order as the student ids
+     * @return number of gradings whose repository link was set
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+            UPDATE code_assignment_grading_metadata m SET repo_link = discovered.repo_link
+            FROM unnest(CAST(:studentIds AS uuid[]), CAST(:repoLinks AS text[])) AS discovered(student_id, repo_link)
+            WHERE m.assessment_id = :assessmentId AND m.student_id = discovered.student_id AND m.repo_link IS NULL
+            """, nativeQuery = true)
+    int setMissingRepoLinks(@Param("assessmentId") UUID assessmentId, @Param("studentIds") UUID[] studentIds, @Param("repoLinks") String[] repoLinks);
+
+    /**
+     * Stores the discovered repositories of students on a code assignment in two statements, independent of the
+     * number of students. Gradings are created for students who don't have one yet.
+     *
+     * @param assessmentId         id of the code assignment
+     * @param repoLinksByStudentId repository links by student id
+     * @return number of gradings whose repository link was set
+     */
+    default int backfillRepoLinks(final UUID assessmentId, final Map<UUID, String> repoLinksByStudentId) {
+        if (repoLinksByStudentId.isEmpty()) {
+            return 0;
+        }
+        final UUID[] studentIds = new UUID[repoLinksByStudentId.size()];
+        final String[] repoLinks = new String[repoLinksByStudentId.size()];
+        int i = 0;
+        for (final Map.Entry<UUID, String> entry : repoLinksByStudentId.entrySet()) {
+            studentIds[i] = entry.getKey();
+            repoLinks[i] = entry.getValue();
+            i++;
+        }
+        insertCodeAssignmentGradingsIfAbsent(assessmentId, studentIds);
+        return setMissingRepoLinks(assessmentId, studentIds, repoLinks);
+    }
+
+    /**
+     * Returns when the grading of the student on a code assignment was last synced, empty if it never was.
+     */
+    @Query("SELECT m.lastSyncedAt FROM CodeAssignmentGradingMetadata m " +
+           "WHERE m.id.assessmentId = :assessmentId AND m.id.studentId = :studentId")
+    Optional<OffsetDateTime> findLastSyncedAt(@Param("assessmentId") UUID assessmentId, @Param("studentId") UUID studentId);
+
+    /**
+     * Returns the stored username of the student on the external platform, see {@link #storeExternalUsernames(UUID, Map)}.
+     */
+    @Query("SELECT m.externalUsername FROM CodeAssignmentGradingMetadata m " +
+           "WHERE m.id.assessmentId = :assessmentId AND m.id.studentId = :studentId")
+    Optional<String> findExternalUsername(@Param("assessmentId") UUID assessmentId, @Param("studentId") UUID studentId);
+
+    /**
+     * Sets the usernames of the given students on the external platform on their gradings of a code assignment with
+     * a single statement. Only gradings whose stored username differs are written.
+     *
+     * @param assessmentId      id of the code assignment
+     * @param studentIds        ids of the students
+     * @param externalUsernames usernames of the students, in the same order as the student ids
+     * @return number of gradings whose username was set
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE code_assignment_grading_metadata m SET external_username = resolved.external_username
+            FROM unnest(CAST(:studentIds AS uuid[]), CAST(:externalUsernames AS text[])) AS resolved(student_id, external_username)
+            WHERE m.assessment_id = :assessmentId AND m.student_id = resolved.student_id
+              AND m.external_username IS DISTINCT FROM resolved.external_username
+            """, nativeQuery = true)
+    int setExternalUsernames(@Param("assessmentId") UUID assessmentId, @Param("studentIds") UUID[] studentIds,
+                             @Param("externalUsernames") String[] externalUsernames);
+
+    /**
+     * Stores the usernames of students on the external platform with their gradings of a code assignment, so that
+     * they don't have to be resolved again. Students without a grading are skipped.
+     *
+     * @param assessmentId                id of the code assignment
+     * @param externalUsernamesByStudentId usernames by student id
+     * @return number of gradings whose username was set
+     */
+    default int storeExternalUsernames(final UUID assessmentId, final Map<UUID, String> externalUsernamesByStudentId) {
+        if (externalUsernamesByStudentId.isEmpty()) {
+            return 0;
+        }
+        final UUID[] studentIds = new UUID[externalUsernamesByStudentId.size()];
+        final String[] externalUsernames = new String[externalUsernamesByStudentId.size()];
+        int i = 0;
+        for (final Map.Entry<UUID, String> entry : externalUsernamesByStudentId.entrySet()) {
+            studentIds[i] = entry.getKey();
+            externalUsernames[i] = entry.getValue();
+            i++;
+        }
+        return setExternalUsernames(assessmentId, studentIds, externalUsernames);
+    }
+
+    /**
+     * Records when the gradings of the given students on a code assignment were last synced, with a single
+     * statement which only writes the sync time instead of the whole metadata row.
+     *
+     * @param assessmentId id of the code assignment
+     * @param studentIds   ids of the students whose gradings were synced
+     * @param syncedAt     when the gradings were synced
+     * @return number of gradings whose sync time was recorded
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE code_assignment_grading_metadata SET last_synced_at = :syncedAt
+            WHERE assessment_id = :assessmentId AND student_id = ANY(CAST(:studentIds AS uuid[]))
+            """, nativeQuery = true)
+    int markSynced(@Param("assessmentId") UUID assessmentId, @Param("studentIds") UUID[] studentIds,
+                   @Param("syncedAt") OffsetDateTime syncedAt);
+
+    @Modifying
+    @Query("DELETE FROM SubexerciseGrading s WHERE EXISTS (SELECT 1 FROM ExerciseGrading eg " +
+           "WHERE eg = s.parentExerciseGrading AND eg.parentGrading.primaryKey.assessmentId IN :assessmentIds)")
+    int deleteSubexerciseGradingsOfAssessments(@Param("assessmentIds") List<UUID> assessmentIds);
+
+    @Modifying
+    @Query("DELETE FROM ExerciseGrading eg WHERE eg.parentGrading.primaryKey.assessmentId IN :assessmentIds")
+    int deleteExerciseGradingsOfAssessments(@Param("assessmentIds") List<UUID> assessmentIds);
+
+    @Modifying
+    @Query("DELETE FROM CodeAssignmentGradingMetadata m WHERE m.id.assessmentId IN :assessmentIds")
+    int deleteCodeAssignmentGradingMetadataOfAssessments(@Param("assessmentIds") List<UUID> assessmentIds);
+
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Grading g WHERE g.primaryKey.assessmentId IN :assessmentIds")
+    int deleteGradingsOfAssessments(@Param("assessmentIds") List<UUID> assessmentIds);
+
+    /**
+     * Deletes all gradings of the given assessments including their exercise gradings, subexercise gradings and
+     * metadata with set-based statements, without loading the entities.
+     * The child rows are also removed by the database ({@code ON DELETE CASCADE}), they are deleted explicitly
+     * so that schemas created before the cascading foreign keys existed are handled as well.
+     *
+     * @param assessmentIds ids of the assessments
+     * @return number of deleted gradings
+     */
+    default int deleteAllByAssessmentIds(final List<UUID> assessmentIds) {
+        deleteSubexerciseGradingsOfAssessments(assessmentIds);
+        deleteExerciseGradingsOfAssessments(assessmentIds);
+        deleteCodeAssignmentGradingMetadataOfAssessments(assessmentIds);
+        return deleteGradingsOfAssessments(assessmentIds);
+    }
+
+}
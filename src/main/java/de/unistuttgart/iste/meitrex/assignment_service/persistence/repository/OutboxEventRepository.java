@@ -0,0 +1,80 @@
+package de.unistuttgart.iste.meitrex.assignment_service.persistence.repository;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.OutboxEventEntity;
+import de.unistuttgart.iste.meitrex.common.persistence.MeitrexRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends MeitrexRepository<OutboxEventEntity, Long> {
+
+    /**
+     * Locks the aggregates of the oldest events which are due for publishing for the current transaction, so that
+     * only one instance of the service publishes the events of an aggregate at a time. Aggregates which are locked by
+     * another instance are skipped. So are aggregates whose oldest event is waiting for a retry or claimed by a relay,
+     * their later events are held back until it was published, so they must not take up the batch.
+     *
+     * @return the ids of the locked aggregates
+     */
+    @Query(value = """
+            SELECT due.aggregate_id FROM (SELECT e.aggregate_id, e.id AS first_id
+                                          FROM outbox_event e
+                                          WHERE e.next_attempt_at <= :now
+                                            AND NOT EXISTS (SELECT 1 FROM outbox_event earlier
+                                                            WHERE earlier.aggregate_id = e.aggregate_id
+                                                              AND earlier.id < e.id)
+                                          ORDER BY first_id
+                                          LIMIT :limit) due
+            WHERE pg_try_advisory_xact_lock(hashtext(due.aggregate_id))
+            """, nativeQuery = true)
+    List<String> lockDueAggregates(@Param("now") OffsetDateTime now, @Param("limit") int limit);
+
+    /**
+     * Returns the oldest events of the given aggregates which are due for publishing. An event is skipped if an
+     * earlier event of the same aggregate is waiting for a retry or claimed by a relay, so that the order per
+     * aggregate is kept. Must be called after the aggregates were locked with {@link #lockDueAggregates}, in a new
+     * statement, so that the claims committed before the locks were acquired are visible.
+     */
+    @Query(value = """
+            SELECT * FROM outbox_event e
+            WHERE e.aggregate_id IN (:aggregateIds)
+              AND e.next_attempt_at <= :now
+              AND NOT EXISTS (SELECT 1 FROM outbox_event blocked
+                              WHERE blocked.aggregate_id = e.aggregate_id
+                                AND blocked.id < e.id
+                                AND blocked.next_attempt_at > :now)
+            ORDER BY e.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<OutboxEventEntity> findDueForRelay(@Param("now") OffsetDateTime now,
+                                            @Param("aggregateIds") List<String> aggregateIds,
+                                            @Param("limit") int limit);
+
+    /**
+     * Claims the events until the given time, other relays skip them and the later events of their aggregates
+     * until then. If the relay publishing them fails to record the result, they are published again afterward.
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.nextAttemptAt = :claimedUntil WHERE e.id IN :ids")
+    int claim(@Param("ids") List<Long> ids, @Param("claimedUntil") OffsetDateTime claimedUntil);
+
+    /**
+     * Schedules the next attempt to publish the event.
+     */
+    @Modifying
+    @Query("""
+            UPDATE OutboxEvent e
+            SET e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, e.lastError = :lastError
+            WHERE e.id = :id
+            """)
+    int reschedule(@Param("id") long id, @Param("attempts") int attempts,
+                   @Param("nextAttemptAt") OffsetDateTime nextAttemptAt, @Param("lastError") String lastError);
+
+    @Query("SELECT min(e.createdAt) FROM OutboxEvent e")
+    OffsetDateTime findOldestCreatedAt();
+}
@@ -4,7 +4,10 @@ import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.gradin
 import de.unistuttgart.iste.meitrex.common.persistence.MeitrexRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.UUID;
 
 @Repository
 public interface UnfinishedGradingRepository extends MeitrexRepository<UnfinishedGradingEntity, UnfinishedGradingEntity.PrimaryKey> {
+    List<UnfinishedGradingEntity> findAllByPrimaryKey_AssignmentId(UUID assignmentId);
 }
@@ -0,0 +1,85 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentEntity;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Operation-scoped identity cache for {@link AssignmentEntity} lookups. <br>
+ * While a scope is open on the current thread, {@link AssignmentService#requireAssignmentExists(UUID)} resolves each
+ * assessment id from the database at most once. Scopes are opened by the service entry points of an operation
+ * (e.g. a GraphQL query or an import job) and must be closed in the same transaction, so that no detached entities
+ * are handed out. Nested scopes share the cache of the outermost scope.
+ * <pre>{@code
+ * try (AssignmentLookupScope scope = AssignmentLookupScope.open()) {
+ *     ...
+ * }
+ * }</pre>
+ */
+public final class AssignmentLookupScope implements AutoCloseable {
+
+    private static final ThreadLocal<AssignmentLookupScope> CURRENT = new ThreadLocal<>();
+
+    private final Map<UUID, AssignmentEntity> assignments = new HashMap<>();
+    private int depth = 1;
+
+    private AssignmentLookupScope() {
+    }
+
+    /**
+     * Opens a new scope on the current thread or joins the scope which is already open.
+     *
+     * @return the scope, which has to be closed when the operation is finished
+     */
+    public static AssignmentLookupScope open() {
+        final AssignmentLookupScope current = CURRENT.get();
+        if (current != null) {
+            current.depth++;
+            return current;
+        }
+        final AssignmentLookupScope scope = new AssignmentLookupScope();
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * Returns the cached assignment with the given id or loads it with the given loader. If no scope is open,
+     * the loader is always called.
+     *
+     * @param assessmentId the id of the assignment
+     * @param loader       loads the assignment from the database, may throw if it does not exist
+     * @return the assignment
+     */
+    static AssignmentEntity lookup(final UUID assessmentId, final Function<UUID, AssignmentEntity> loader) {
+        final AssignmentLookupScope current = CURRENT.get();
+        if (current == null) {
+            return loader.apply(assessmentId);
+        }
+        // misses are not cached, so an exception thrown by the loader is thrown again on the next lookup
+        return current.assignments.computeIfAbsent(assessmentId, loader);
+    }
+
+    /**
+     * Removes the assignment with the given id from the cache of the current scope, if any.
+     *
+     * @param assessmentId the id of the assignment
+     */
+    static void evict(final UUID assessmentId) {
+        final AssignmentLookupScope current = CURRENT.get();
+        if (current != null) {
+            current.assignments.remove(assessmentId);
+        }
+    }
+
+    @Override
+    public void close() {
+        depth--;
+        if (depth == 0) {
+            assignments.clear();
+            CURRENT.remove();
+        }
+    }
+}
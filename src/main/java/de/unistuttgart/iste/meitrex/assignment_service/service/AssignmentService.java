@@ -1,14 +1,19 @@
 package de.unistuttgart.iste.meitrex.assignment_service.service;
 
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.ExternalCourseEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentCreditIndex;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.ExternalCodeAssignmentEntity;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.exercise.ExerciseEntity;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.exercise.SubexerciseEntity;
-import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradingEntity;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.ExternalCodeAssignmentRepository;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.ExternalCourseRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradesSnapshotEntryRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradesSnapshotRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradingImportStateRepository;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradingRepository;
 import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.CodeAssessmentProvider;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.MissingRepositoryCache;
+import de.unistuttgart.iste.meitrex.assignment_service.service.event.EventPublisher;
 import de.unistuttgart.iste.meitrex.assignment_service.validation.AssignmentValidator;
 import de.unistuttgart.iste.meitrex.common.dapr.TopicPublisher;
 import de.unistuttgart.iste.meitrex.common.event.*;
@@ -28,6 +33,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -44,12 +50,19 @@ public class AssignmentService {
     private final AssignmentMapper assignmentMapper;
     private final AssignmentValidator assignmentValidator;
     private final TopicPublisher topicPublisher;
+    private final EventPublisher eventPublisher;
     private final CourseServiceClient courseServiceClient;
     private final ContentServiceClient contentServiceClient;
     private final CodeAssessmentProvider codeAssessmentProvider;
     private final ExternalCodeAssignmentRepository externalCodeAssignmentRepository;
     private final GradingRepository gradingRepository;
     private final ExternalCourseRepository externalCourseRepository;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final MissingRepositoryCache missingRepositoryCache;
+    private final TransactionOperations transactionOperations;
+    private final GradingImportStateRepository gradingImportStateRepository;
+    private final GradesSnapshotRepository gradesSnapshotRepository;
+    private final GradesSnapshotEntryRepository gradesSnapshotEntryRepository;
 
     /**
      * Returns all assignments that are linked to the given assessment ids
@@ -57,6 +70,7 @@ public class AssignmentService {
      * @param ids list of assessment ids
      * @return list of assignments, an element is null if the corresponding assessment id was not found
      */
+    @Transactional(readOnly = true)
     public List<Assignment> findAssignmentsByAssessmentIds(final List<UUID> ids) {
         return assignmentRepository.findAllByIdPreservingOrder(ids).stream()
                 .map(assignmentMapper::assignmentEntityToDto)
@@ -102,26 +116,33 @@ public class AssignmentService {
      * @throws ValidationException if the input is invalid
      * @throws IllegalStateException if the assignment type is CODE_ASSIGNMENT and the enrichment from the external provider fails
      */
-
     public Assignment createAssignment(final UUID courseId, final UUID assessmentId, final CreateAssignmentInput createAssignmentInput, final LoggedInUser currentUser) {
         assignmentValidator.validateCreateAssignmentInput(createAssignmentInput);
 
-        final AssignmentEntity mappedAssignmentEntity = assignmentMapper.createAssignmentInputToEntity(createAssignmentInput);
-        mappedAssignmentEntity.setAssessmentId(assessmentId);
-        mappedAssignmentEntity.setCourseId(courseId);
+        // the other services are called before the transaction, so that no connection is held while waiting for them
+        final CodeAssignmentSource codeAssignmentSource = createAssignmentInput.getAssignmentType() == AssignmentType.CODE_ASSIGNMENT
+                ? findCodeAssignmentSource(courseId, assessmentId, currentUser)
+                : null;
 
-        if (createAssignmentInput.getAssignmentType() == AssignmentType.CODE_ASSIGNMENT) {
-            this.createCodeAssignment(courseId, assessmentId, mappedAssignmentEntity, currentUser);
-        }
+        // the assignment and its event are stored together, the event is only published if the assignment is created
+        final AssignmentEntity savedAssignmentEntity = transactionOperations.execute(status -> {
+            final AssignmentEntity mappedAssignmentEntity = assignmentMapper.createAssignmentInputToEntity(createAssignmentInput);
+            mappedAssignmentEntity.setAssessmentId(assessmentId);
+            mappedAssignmentEntity.setCourseId(courseId);
 
-        topicPublisher.notifyAssessmentContentMutated(new AssessmentContentMutatedEvent(
-                mappedAssignmentEntity.getCourseId(),
-                mappedAssignmentEntity.getAssessmentId(),
-                AssessmentType.ASSIGNMENT,
-                generateTaskInformation(mappedAssignmentEntity)
-        ));
+            if (codeAssignmentSource != null) {
+                this.createCodeAssignment(assessmentId, mappedAssignmentEntity, codeAssignmentSource);
+            }
+
+            eventPublisher.notifyAssessmentContentMutated(new AssessmentContentMutatedEvent(
+                    mappedAssignmentEntity.getCourseId(),
+                    mappedAssignmentEntity.getAssessmentId(),
+                    AssessmentType.ASSIGNMENT,
+                    generateTaskInformation(mappedAssignmentEntity)
+            ));
 
-        final AssignmentEntity savedAssignmentEntity = assignmentRepository.save(mappedAssignmentEntity);
+            return assignmentRepository.save(mappedAssignmentEntity);
+        });
         String title = "You have a new Code Assignment!";
         String message = "New Code Assignment!" + createAssignmentInput.getDescription();
 
@@ -138,7 +159,11 @@ public class AssignmentService {
         return assignmentMapper.assignmentEntityToDto(savedAssignmentEntity);
     }
 
-    private void createCodeAssignment (final UUID courseId, final UUID assessmentId, final AssignmentEntity assignmentEntity, final LoggedInUser currentUser){
+    /**
+     * Resolves the title of the course and the name of the content of a new code assignment via the course and
+     * content service, which identify the external assignment it is created from.
+     */
+    private CodeAssignmentSource findCodeAssignmentSource(final UUID courseId, final UUID assessmentId, final LoggedInUser currentUser) {
         try {
             String courseTitle = courseServiceClient.queryCourseById(courseId).getTitle();
 
@@ -147,6 +172,20 @@ public class AssignmentService {
                     .map(content -> content.getMetadata().getName())
                     .findFirst().orElseThrow(() -> new EntityNotFoundException("Content with assessmentId %s not found".formatted(assessmentId)));
 
+            return new CodeAssignmentSource(courseTitle, assignmentName);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to enrich code assignment from GitHub Classroom", e);
+        }
+    }
+
+    private record CodeAssignmentSource(String courseTitle, String assignmentName) {
+    }
+
+    private void createCodeAssignment (final UUID assessmentId, final AssignmentEntity assignmentEntity, final CodeAssignmentSource codeAssignmentSource){
+        try {
+            final String courseTitle = codeAssignmentSource.courseTitle();
+            final String assignmentName = codeAssignmentSource.assignmentName();
+
             // external assignment must be synced already before the next line happens
             ExternalCodeAssignmentEntity externalAssignment = externalCodeAssignmentRepository.findById(new ExternalCodeAssignmentEntity.PrimaryKey(courseTitle, assignmentName))
                     .orElseThrow(() -> new EntityNotFoundException("External assignment with assessmentId %s not found".formatted(assessmentId)));
@@ -158,6 +197,11 @@ public class AssignmentService {
                     .assignmentLink(externalAssignment.getAssignmentLink())
                     .invitationLink(externalAssignment.getInvitationLink())
                     .readmeHtml(externalAssignment.getReadmeHtml())
+                    // stored so that the students' repositories can be found without querying other services
+                    .assignmentSlug(codeAssessmentProvider.getAssignmentSlug(assignmentName))
+                    .organizationName(externalCourseRepository.findById(courseTitle)
+                            .map(ExternalCourseEntity::getOrganizationName)
+                            .orElse(null))
                     .build();
 
             //External Id used to fetch assignment grades
@@ -212,6 +256,7 @@ public class AssignmentService {
      * @throws EntityNotFoundException if the assignment does not exist
      * @throws ValidationException     if the user lacks required access rights
      */
+    @Transactional
     public Assignment updateAssignment(UUID assessmentId,
                                        UpdateAssignmentInput input,
                                        LoggedInUser currentUser) {
@@ -224,7 +269,7 @@ public class AssignmentService {
             assignment.setRequiredPercentage(input.getRequiredPercentage());
         }
 
-        topicPublisher.notifyAssessmentContentMutated(new AssessmentContentMutatedEvent(
+        eventPublisher.notifyAssessmentContentMutated(new AssessmentContentMutatedEvent(
                 assignment.getCourseId(),
                 assignment.getAssessmentId(),
                 AssessmentType.ASSIGNMENT,
@@ -261,6 +306,7 @@ public class AssignmentService {
      * @return Feedback containing success and correctness data
      * @throws EntityNotFoundException if the assignment does not exist
      */
+    @Transactional
     public AssignmentCompletedFeedback logAssignmentCompleted(final LogAssignmentCompletedInput input, final LoggedInUser currentUser) {
         final AssignmentEntity assignmentEntity = this.requireAssignmentExists(input.getAssessmentId());
 
@@ -281,6 +327,30 @@ public class AssignmentService {
      * @throws EntityNotFoundException if the assignment does not exist
      */
     protected AssignmentCompletedFeedback publishProgress(final LogAssignmentCompletedInput input, final UUID userId) {
+        final Progress progress = evaluateProgress(input, userId);
+
+        // publish new user progress event message
+        eventPublisher.notifyUserWorkedOnContent(progress.event());
+        return AssignmentCompletedFeedback.builder()
+                .setCorrectness(progress.correctness())
+                .setSuccess(progress.success())
+                .build();
+    }
+
+    /**
+     * Creates the {@link ContentProgressedEvent} for the given input without publishing it,
+     * so that the events of multiple users can be published at once.
+     *
+     * @param input contains achieved credits for assignment, exercises and subexercises
+     * @param userId id of the user who did the assignment
+     * @return the progress event
+     * @throws EntityNotFoundException if the assignment does not exist
+     */
+    protected ContentProgressedEvent createProgressEvent(final LogAssignmentCompletedInput input, final UUID userId) {
+        return evaluateProgress(input, userId).event();
+    }
+
+    private Progress evaluateProgress(final LogAssignmentCompletedInput input, final UUID userId) {
         final AssignmentEntity assignmentEntity = requireAssignmentExists(input.getAssessmentId());
         if (!assignmentEntity.getAssignmentType().equals(AssignmentType.CODE_ASSIGNMENT)){
             assignmentValidator.validateLogAssignmentCompletedInput(input);
@@ -295,19 +365,19 @@ public class AssignmentService {
         final double correctness = totalCredits == 0 ? 1.0f : achievedCredits / totalCredits;
 
         // create Responses for each exercise and subexercise
+        final AssignmentCreditIndex creditIndex = assignmentEntity.creditIndex();
         final List<Response> responses = new ArrayList<>();
         for (final ExerciseCompletedInput exerciseCompletedInput: input.getCompletedExercises()) {
             final UUID exerciseId = exerciseCompletedInput.getItemId();
-            final ExerciseEntity exerciseEntity = findExerciseEntityInAssignmentEntity(exerciseId, assignmentEntity);
-            final double totalExerciseCredits = exerciseEntity.getTotalExerciseCredits();
+            final int exerciseSlot = creditIndex.exerciseSlot(exerciseId);
+            final double totalExerciseCredits = creditIndex.totalCredits(exerciseSlot);
             final float achievedExercisePercentage = totalExerciseCredits == 0 ? 1.0f : (float) (exerciseCompletedInput.getAchievedCredits() / totalExerciseCredits);
             final Response exerciseResponse = new Response(exerciseId, achievedExercisePercentage);
             responses.add(exerciseResponse);
 
             for (final SubexerciseCompletedInput subexerciseCompletedInput: exerciseCompletedInput.getCompletedSubexercises()) {
                 final UUID subexerciseId = subexerciseCompletedInput.getItemId();
-                final SubexerciseEntity subexerciseEntity = findSubexerciseEntityInExerciseEntity(subexerciseId, exerciseEntity);
-                final double totalSubexerciseCredits = subexerciseEntity.getTotalSubexerciseCredits();
+                final double totalSubexerciseCredits = creditIndex.totalCredits(creditIndex.subexerciseSlot(exerciseSlot, subexerciseId));
                 final float achievedSubexercisePercentage = totalSubexerciseCredits == 0 ? 1.0f : (float) (subexerciseCompletedInput.getAchievedCredits() / totalSubexerciseCredits);
                 final Response subexerciseResponse = new Response(subexerciseId, achievedSubexercisePercentage);
                 responses.add(subexerciseResponse);
@@ -326,12 +396,10 @@ public class AssignmentService {
                 .responses(responses)
                 .build();
 
-        // publish new user progress event message
-        topicPublisher.notifyUserWorkedOnContent(userProgressLogEvent);
-        return AssignmentCompletedFeedback.builder()
-                .setCorrectness(correctness)
-                .setSuccess(success)
-                .build();
+        return new Progress(userProgressLogEvent, success, correctness);
+    }
+
+    private record Progress(ContentProgressedEvent event, boolean success, double correctness) {
     }
 
     /**
@@ -388,17 +456,20 @@ public class AssignmentService {
     public Exercise createExercise(final UUID assessmentId, final CreateExerciseInput createExerciseInput) {
         assignmentValidator.validateCreateExerciseInput(createExerciseInput);
 
-        AssignmentEntity assignmentEntity = this.requireAssignmentExists(assessmentId);
-        List<ExerciseEntity> assignmentExercises = assignmentEntity.getExercises();
+        return optimisticLockRetry.execute(() -> {
+            AssignmentEntity assignmentEntity = this.requireAssignmentExists(assessmentId);
+            List<ExerciseEntity> assignmentExercises = assignmentEntity.getExercises();
 
-        ExerciseEntity newExerciseEntity = assignmentMapper.createExerciseInputToEntity(createExerciseInput);
-        newExerciseEntity.setParentAssignment(assignmentEntity);
-        assignmentExercises.add(newExerciseEntity);
+            ExerciseEntity newExerciseEntity = assignmentMapper.createExerciseInputToEntity(createExerciseInput);
+            newExerciseEntity.setParentAssignment(assignmentEntity);
+            assignmentExercises.add(newExerciseEntity);
 
-        assignmentEntity.setTotalCredits(assignmentEntity.getTotalCredits() + createExerciseInput.getTotalExerciseCredits());
+            assignmentEntity.setTotalCredits(assignmentEntity.getTotalCredits() + createExerciseInput.getTotalExerciseCredits());
 
-        assignmentRepository.save(assignmentEntity);
-        return assignmentMapper.exerciseEntityToDto(newExerciseEntity);
+            assignmentEntity.invalidateCreditIndex();
+            assignmentRepository.save(assignmentEntity);
+            return assignmentMapper.exerciseEntityToDto(newExerciseEntity);
+        });
     }
 
     /**
@@ -414,19 +485,22 @@ public class AssignmentService {
     public Exercise updateExercise(final UUID assessmentId, final UpdateExerciseInput updateExerciseInput) {
         assignmentValidator.validateUpdateExerciseInput(updateExerciseInput);
 
-        AssignmentEntity assignmentEntity = this.requireAssignmentExists(assessmentId);
+        return optimisticLockRetry.execute(() -> {
+            AssignmentEntity assignmentEntity = this.requireAssignmentExists(assessmentId);
 
-        ExerciseEntity oldExerciseEntity = this.findExerciseEntityInAssignmentEntity(updateExerciseInput.getItemId(), assignmentEntity);
-        ExerciseEntity newExerciseEntity = assignmentMapper.updateExerciseInputToEntity(updateExerciseInput);
-        newExerciseEntity.setParentAssignment(assignmentEntity);
+            ExerciseEntity oldExerciseEntity = this.findExerciseEntityInAssignmentEntity(updateExerciseInput.getItemId(), assignmentEntity);
+            ExerciseEntity newExerciseEntity = assignmentMapper.updateExerciseInputToEntity(updateExerciseInput);
+            newExerciseEntity.setParentAssignment(assignmentEntity);
 
-        final int exerciseIndex = assignmentEntity.getExercises().indexOf(oldExerciseEntity);
-        assignmentEntity.getExercises().set(exerciseIndex, newExerciseEntity);
+            final int exerciseIndex = assignmentEntity.getExercises().indexOf(oldExerciseEntity);
+            assignmentEntity.getExercises().set(exerciseIndex, newExerciseEntity);
 
-        assignmentEntity.setTotalCredits(assignmentEntity.getTotalCredits() - oldExerciseEntity.getTotalExerciseCredits() + updateExerciseInput.getTotalExerciseCredits());
+            assignmentEntity.setTotalCredits(assignmentEntity.getTotalCredits() - oldExerciseEntity.getTotalExerciseCredits() + updateExerciseInput.getTotalExerciseCredits());
 
-        assignmentRepository.save(assignmentEntity);
-        return assignmentMapper.exerciseEntityToDto(newExerciseEntity);
+            assignmentEntity.invalidateCreditIndex();
+            assignmentRepository.save(assignmentEntity);
+            return assignmentMapper.exerciseEntityToDto(newExerciseEntity);
+        });
     }
 
     /**
@@ -440,16 +514,27 @@ public class AssignmentService {
      * @throws EntityNotFoundException if the exercise can't be found in the assignment
      */
     public UUID deleteExercise(final UUID assessmentId, final UUID exerciseId) {
-        final AssignmentEntity assignmentEntity = requireAssignmentExists(assessmentId);
-        try {
-            final ExerciseEntity oldExerciseEntity = this.findExerciseEntityInAssignmentEntity(exerciseId, assignmentEntity);
-            assignmentEntity.setTotalCredits(assignmentEntity.getTotalCredits() - oldExerciseEntity.getTotalExerciseCredits());
-            assignmentEntity.getExercises().remove(oldExerciseEntity);
-        } catch (Exception e) {
-            throw new EntityNotFoundException("Exercise with itemId %s not found.".formatted(exerciseId));
+        optimisticLockRetry.execute(() -> {
+            final AssignmentEntity assignmentEntity = requireAssignmentExists(assessmentId);
+            try {
+                final ExerciseEntity oldExerciseEntity = this.findExerciseEntityInAssignmentEntity(exerciseId, assignmentEntity);
+                assignmentEntity.setTotalCredits(assignmentEntity.getTotalCredits() - oldExerciseEntity.getTotalExerciseCredits());
+                assignmentEntity.getExercises().remove(oldExerciseEntity);
+            } catch (Exception e) {
+                throw new EntityNotFoundException("Exercise with itemId %s not found.".formatted(exerciseId));
+            }
+            assignmentEntity.invalidateCreditIndex();
+            assignmentRepository.save(assignmentEntity);
+            if (eventPublisher.isOutboxEnabled()) {
+                // stored in the outbox together with the deletion, published by the relay once committed
+                publishItemChangeEvent(exerciseId);
+            }
+            return exerciseId;
+        });
+        if (!eventPublisher.isOutboxEnabled()) {
+            // published once after the retried transaction committed, not by every attempt
+            publishItemChangeEvent(exerciseId);
         }
-        assignmentRepository.save(assignmentEntity);
-        publishItemChangeEvent(exerciseId);
         return exerciseId;
     }
 
@@ -466,19 +551,22 @@ public class AssignmentService {
     public Subexercise createSubexercise(final UUID assessmentId, final CreateSubexerciseInput createSubexerciseInput) {
         assignmentValidator.validateCreateSubexerciseInput(createSubexerciseInput);
 
-        AssignmentEntity assignmentEntity = this.requireAssignmentExists(assessmentId);
+        return optimisticLockRetry.execute(() -> {
+            AssignmentEntity assignmentEntity = this.requireAssignmentExists(assessmentId);
 
-        SubexerciseEntity subexerciseEntity = assignmentMapper.createSubexerciseInputToEntity(createSubexerciseInput);
-        ExerciseEntity parentExerciseEntity = findExerciseEntityInAssignmentEntity(createSubexerciseInput.getParentExerciseId(), assignmentEntity);
-        subexerciseEntity.setParentExercise(parentExerciseEntity);
+            SubexerciseEntity subexerciseEntity = assignmentMapper.createSubexerciseInputToEntity(createSubexerciseInput);
+            ExerciseEntity parentExerciseEntity = findExerciseEntityInAssignmentEntity(createSubexerciseInput.getParentExerciseId(), assignmentEntity);
+            subexerciseEntity.setParentExercise(parentExerciseEntity);
 
-        parentExerciseEntity.getSubexercises().add(subexerciseEntity);
+            parentExerciseEntity.getSubexercises().add(subexerciseEntity);
 
-        parentExerciseEntity.setTotalExerciseCredits(parentExerciseEntity.getTotalExerciseCredits() + createSubexerciseInput.getTotalSubexerciseCredits());
-        assignmentEntity.setTotalCredits(assignmentEntity.getTotalCredits() + createSubexerciseInput.getTotalSubexerciseCredits());
+            parentExerciseEntity.setTotalExerciseCredits(parentExerciseEntity.getTotalExerciseCredits() + createSubexerciseInput.getTotalSubexerciseCredits());
+            assignmentEntity.setTotalCredits(assignmentEntity.getTotalCredits() + createSubexerciseInput.getTotalSubexerciseCredits());
 
-        assignmentRepository.save(assignmentEntity);
-        return assignmentMapper.subexerciseEntityToDto(subexerciseEntity);
+            assignmentEntity.invalidateCreditIndex();
+            assignmentRepository.save(assignmentEntity);
+            return assignmentMapper.subexerciseEntityToDto(subexerciseEntity);
+        });
     }
 
     /**
@@ -493,23 +581,27 @@ public class AssignmentService {
      */
     public Subexercise updateSubexercise(final UUID assessmentId, final UpdateSubexerciseInput updateSubexerciseInput) {
         assignmentValidator.validateUpdateSubexerciseInput(updateSubexerciseInput);
-        SubexerciseEntity newSubexerciseEntity = assignmentMapper.updateSubexerciseInputToEntity(updateSubexerciseInput);
 
-        UUID subexerciseId = updateSubexerciseInput.getItemId();
-        AssignmentEntity assignmentEntity = this.requireAssignmentExists(assessmentId);
-        SubexerciseEntity oldSubexerciseEntity = this.findSubexerciseEntityInAssignmentEntity(subexerciseId, assignmentEntity);
-        ExerciseEntity parentExerciseEntity = oldSubexerciseEntity.getParentExercise();
-        newSubexerciseEntity.setParentExercise(parentExerciseEntity);
+        return optimisticLockRetry.execute(() -> {
+            SubexerciseEntity newSubexerciseEntity = assignmentMapper.updateSubexerciseInputToEntity(updateSubexerciseInput);
+
+            UUID subexerciseId = updateSubexerciseInput.getItemId();
+            AssignmentEntity assignmentEntity = this.requireAssignmentExists(assessmentId);
+            SubexerciseEntity oldSubexerciseEntity = this.findSubexerciseEntityInAssignmentEntity(subexerciseId, assignmentEntity);
+            ExerciseEntity parentExerciseEntity = oldSubexerciseEntity.getParentExercise();
+            newSubexerciseEntity.setParentExercise(parentExerciseEntity);
 
-        final int subexerciseIndex = parentExerciseEntity.getSubexercises().indexOf(oldSubexerciseEntity);
-        parentExerciseEntity.getSubexercises().set(subexerciseIndex, newSubexerciseEntity);
+            final int subexerciseIndex = parentExerciseEntity.getSubexercises().indexOf(oldSubexerciseEntity);
+            parentExerciseEntity.getSubexercises().set(subexerciseIndex, newSubexerciseEntity);
 
-        final double creditDifference = updateSubexerciseInput.getTotalSubexerciseCredits() - oldSubexerciseEntity.getTotalSubexerciseCredits();
-        parentExerciseEntity.setTotalExerciseCredits(parentExerciseEntity.getTotalExerciseCredits() + creditDifference);
-        assignmentEntity.setTotalCredits(assignmentEntity.getTotalCredits() + creditDifference);
+            final double creditDifference = updateSubexerciseInput.getTotalSubexerciseCredits() - oldSubexerciseEntity.getTotalSubexerciseCredits();
+            parentExerciseEntity.setTotalExerciseCredits(parentExerciseEntity.getTotalExerciseCredits() + creditDifference);
+            assignmentEntity.setTotalCredits(assignmentEntity.getTotalCredits() + creditDifference);
 
-        assignmentRepository.save(assignmentEntity);
-        return assignmentMapper.subexerciseEntityToDto(newSubexerciseEntity);
+            assignmentEntity.invalidateCreditIndex();
+            assignmentRepository.save(assignmentEntity);
+            return assignmentMapper.subexerciseEntityToDto(newSubexerciseEntity);
+        });
     }
 
     /**
@@ -523,31 +615,42 @@ public class AssignmentService {
      * @throws EntityNotFoundException if the subexercise can't be found in the assignment
      */
     public UUID deleteSubexercise(final UUID assessmentId, final UUID subexerciseId) {
-        final AssignmentEntity assignmentEntity = requireAssignmentExists(assessmentId);
-        SubexerciseEntity subexerciseEntity = this.findSubexerciseEntityInAssignmentEntity(subexerciseId, assignmentEntity);
-        ExerciseEntity parentExerciseEntity = subexerciseEntity.getParentExercise();
+        optimisticLockRetry.execute(() -> {
+            final AssignmentEntity assignmentEntity = requireAssignmentExists(assessmentId);
+            SubexerciseEntity subexerciseEntity = this.findSubexerciseEntityInAssignmentEntity(subexerciseId, assignmentEntity);
+            ExerciseEntity parentExerciseEntity = subexerciseEntity.getParentExercise();
 
-        final double subexerciseCredits = subexerciseEntity.getTotalSubexerciseCredits();
-        parentExerciseEntity.setTotalExerciseCredits(parentExerciseEntity.getTotalExerciseCredits() - subexerciseCredits);
-        assignmentEntity.setTotalCredits(assignmentEntity.getTotalCredits() - subexerciseCredits);
+            final double subexerciseCredits = subexerciseEntity.getTotalSubexerciseCredits();
+            parentExerciseEntity.setTotalExerciseCredits(parentExerciseEntity.getTotalExerciseCredits() - subexerciseCredits);
+            assignmentEntity.setTotalCredits(assignmentEntity.getTotalCredits() - subexerciseCredits);
 
-        parentExerciseEntity.getSubexercises().remove(subexerciseEntity);
+            parentExerciseEntity.getSubexercises().remove(subexerciseEntity);
 
-        assignmentRepository.save(assignmentEntity);
-        publishItemChangeEvent(subexerciseId);
+            assignmentEntity.invalidateCreditIndex();
+            assignmentRepository.save(assignmentEntity);
+            if (eventPublisher.isOutboxEnabled()) {
+                publishItemChangeEvent(subexerciseId);
+            }
+            return subexerciseId;
+        });
+        if (!eventPublisher.isOutboxEnabled()) {
+            // see deleteExercise, a repeated attempt must not publish the change again
+            publishItemChangeEvent(subexerciseId);
+        }
         return subexerciseId;
     }
 
     /**
      * Returns the assignment with the given id or throws an exception if the assignment does not exist.
+     * Within an open {@link AssignmentLookupScope} each assignment is loaded from the database only once.
      *
      * @param assessmentId the id of the assignment
      * @return the assignment entity
      * @throws EntityNotFoundException if the assignment does not exist
      */
     public AssignmentEntity requireAssignmentExists(final UUID assessmentId) {
-        return assignmentRepository.findById(assessmentId)
-                .orElseThrow(() -> new EntityNotFoundException("Assignment with assessmentId %s not found".formatted(assessmentId)));
+        return AssignmentLookupScope.lookup(assessmentId, id -> assignmentRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Assignment with assessmentId %s not found".formatted(id))));
     }
 
     /**
@@ -615,9 +718,41 @@ public class AssignmentService {
             return;
         }
 
-        List<GradingEntity> gradings = gradingRepository.findAllByPrimaryKey_AssessmentIdIn(dto.getContentIds());
-        gradingRepository.deleteAll(gradings);
-        assignmentRepository.deleteAllById(dto.getContentIds());
+        deleteAssignmentsOfContents(dto.getContentIds());
+    }
+
+    /**
+     * Deletes the assignments linked to the given content ids including their gradings, the import states of
+     * their gradings and the snapshots of their grades.
+     * Content ids which don't belong to an assignment are ignored.
+     *
+     * @param contentIds ids of the deleted contents
+     */
+    @Transactional
+    public void deleteAssignmentsOfContents(final List<UUID> contentIds) {
+        // set-based deletes, the gradings and assignments are not loaded into memory
+        gradingRepository.deleteAllByAssessmentIds(contentIds);
+        gradingImportStateRepository.deleteAllByAssignmentIds(contentIds);
+        gradesSnapshotEntryRepository.deleteAllByAssignmentIds(contentIds);
+        gradesSnapshotRepository.deleteAllByAssignmentIds(contentIds);
+        assignmentRepository.deleteAllByAssessmentIds(contentIds);
+        contentIds.forEach(AssignmentLookupScope::evict);
+    }
+
+    /**
+     * Forgets the stored assignment slugs of the code assignments linked to the given content ids,
+     * because the names of the contents may have changed.
+     *
+     * @param contentIds ids of the updated contents
+     */
+    public void clearAssignmentSlugsOfContents(final List<UUID> contentIds) {
+        if (contentIds.isEmpty()) {
+            return;
+        }
+        assignmentRepository.clearAssignmentSlugs(contentIds);
+        contentIds.forEach(AssignmentLookupScope::evict);
+        // repositories which were not found under the old name may exist under the new one
+        contentIds.forEach(missingRepositoryCache::invalidateAssignment);
     }
 
     /**
@@ -637,7 +772,7 @@ public class AssignmentService {
      * @param itemId the id of the item
      */
     private void publishItemChangeEvent(final UUID itemId) {
-        topicPublisher.notifyItemChanges(itemId, CrudOperation.DELETE);
+        eventPublisher.notifyItemChanges(itemId, CrudOperation.DELETE);
     }
 
     /**
@@ -672,6 +807,7 @@ public class AssignmentService {
                     .build();
 
             externalCourseRepository.save(externalCourseEntity);
+            assignmentRepository.updateOrganizationNameOfCourse(courseId, external.getOrganizationName());
             return external;
 
         } catch (Exception e) {
@@ -0,0 +1,131 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Collects the content ids of deleted contents received with content-changed events and deletes the linked
+ * assignments in batches, so that many events result in one set-based delete instead of one delete per event.
+ * <p>
+ * Submitted deletions are kept in a bounded queue. If the queue is full, the deletion is rejected, so that the caller
+ * can ask dapr to redeliver the event later instead of buffering an unbounded number of events in memory.
+ * Events are deduplicated by their CloudEvent id, so a redelivered event whose deletion already succeeded is
+ * not processed again.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dapr.content_changed.mode", havingValue = "bulk")
+public class ContentDeletionBatcher {
+
+    private final AssignmentService assignmentService;
+    private final BlockingQueue<PendingDeletion> queue;
+    private final int maxBatchSize;
+    private final Set<String> processedEventIds;
+
+    public ContentDeletionBatcher(final AssignmentService assignmentService,
+                                  @Value("${dapr.content_changed.queue_capacity:10000}") final int queueCapacity,
+                                  @Value("${dapr.content_changed.max_batch_size:500}") final int maxBatchSize,
+                                  @Value("${dapr.content_changed.processed_event_ids:10000}") final int maxProcessedEventIds) {
+        this.assignmentService = assignmentService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.processedEventIds = Collections.newSetFromMap(new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+                return size() > maxProcessedEventIds;
+            }
+        });
+    }
+
+    /**
+     * Queues the deletion of the assignments linked to the given content ids.
+     *
+     * @param eventId    id of the CloudEvent the content ids were received with, used for deduplication
+     * @param contentIds ids of the deleted contents
+     * @return a future which completes when the assignments were deleted, or completes exceptionally if the
+     * deletion failed; an empty optional if the queue is full
+     */
+    public Optional<CompletableFuture<Void>> submit(final String eventId, final List<UUID> contentIds) {
+        if (isProcessed(eventId)) {
+            log.debug("Skipping redelivered content-changed event {}", eventId);
+            return Optional.of(CompletableFuture.completedFuture(null));
+        }
+        final PendingDeletion pendingDeletion = new PendingDeletion(eventId, contentIds, new CompletableFuture<>());
+        if (!queue.offer(pendingDeletion)) {
+            log.warn("Content deletion queue is full, rejecting content-changed event {}", eventId);
+            return Optional.empty();
+        }
+        return Optional.of(pendingDeletion.result());
+    }
+
+    /**
+     * Deletes the assignments of all queued deletions, in batches of at most the maximum batch size.
+     */
+    @Scheduled(fixedDelayString = "${dapr.content_changed.flush_interval_ms:200}")
+    public void flush() {
+        final List<PendingDeletion> batch = new ArrayList<>(maxBatchSize);
+        while (queue.drainTo(batch, maxBatchSize) > 0) {
+            process(batch);
+            batch.clear();
+        }
+    }
+
+    private void process(final List<PendingDeletion> batch) {
+        final Set<UUID> contentIds = new LinkedHashSet<>();
+        final List<PendingDeletion> toDelete = new ArrayList<>(batch.size());
+        for (final PendingDeletion pendingDeletion : batch) {
+            if (isProcessed(pendingDeletion.eventId())) {
+                pendingDeletion.result().complete(null);
+            } else {
+                contentIds.addAll(pendingDeletion.contentIds());
+                toDelete.add(pendingDeletion);
+            }
+        }
+        if (toDelete.isEmpty()) {
+            return;
+        }
+
+        try {
+            assignmentService.deleteAssignmentsOfContents(new ArrayList<>(contentIds));
+        } catch (RuntimeException e) {
+            log.error("Deleting the assignments of {} contents failed: {}", contentIds.size(), e.toString());
+            toDelete.forEach(pendingDeletion -> pendingDeletion.result().completeExceptionally(e));
+            return;
+        }
+
+        log.info("Deleted the assignments of {} contents from {} content-changed events", contentIds.size(), toDelete.size());
+        for (final PendingDeletion pendingDeletion : toDelete) {
+            markProcessed(pendingDeletion.eventId());
+            pendingDeletion.result().complete(null);
+        }
+    }
+
+    private boolean isProcessed(final String eventId) {
+        if (eventId == null) {
+            return false;
+        }
+        synchronized (processedEventIds) {
+            return processedEventIds.contains(eventId);
+        }
+    }
+
+    private void markProcessed(final String eventId) {
+        if (eventId == null) {
+            return;
+        }
+        synchronized (processedEventIds) {
+            processedEventIds.add(eventId);
+        }
+    }
+
+    private record PendingDeletion(String eventId, List<UUID> contentIds, CompletableFuture<Void> result) {
+    }
+}
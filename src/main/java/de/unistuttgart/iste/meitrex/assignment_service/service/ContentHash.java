@@ -0,0 +1,58 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Helper for computing stable content hashes, used to detect whether data received from an external system
+ * has changed since it was last processed.
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    /**
+     * Computes the SHA-256 hash of the given string.
+     *
+     * @param content the content to hash
+     * @return the hash as lowercase hex string
+     */
+    public static String sha256Hex(final String content) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM is required to support SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Computes the SHA-256 hash of a JSON-like structure (as returned by {@code JSONObject#toMap()}).
+     * Keys of nested maps are sorted, so the hash does not depend on the key order of the received JSON.
+     *
+     * @param json map representation of a JSON object
+     * @return the hash as lowercase hex string
+     */
+    public static String sha256HexOfJson(final Map<String, Object> json) {
+        return sha256Hex(String.valueOf(canonicalize(json)));
+    }
+
+    private static Object canonicalize(final Object value) {
+        if (value instanceof Map<?, ?> map) {
+            final TreeMap<String, Object> sorted = new TreeMap<>();
+            map.forEach((key, nested) -> sorted.put(String.valueOf(key), canonicalize(nested)));
+            return sorted;
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().map(ContentHash::canonicalize).toList();
+        }
+        return value;
+    }
+}
@@ -4,13 +4,22 @@ package de.unistuttgart.iste.meitrex.assignment_service.service;
 import de.unistuttgart.iste.meitrex.assignment_service.config.ExternalSystemConfiguration;
 import de.unistuttgart.iste.meitrex.assignment_service.exception.ExternalPlatformConnectionException;
 import de.unistuttgart.iste.meitrex.assignment_service.exception.ManualMappingRequiredException;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentCreditIndex;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.CodeAssignmentMetadataEntity;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.exercise.ExerciseEntity;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.exercise.SubexerciseEntity;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.*;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.*;
 import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.CodeAssessmentProvider;
 import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.ExternalGrading;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.ExternalGradingReconciler;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.GradesSnapshotCache;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.MissingRepositoryCache;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.ReconciliationResult;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.StaleGradingRefresher;
+import de.unistuttgart.iste.meitrex.assignment_service.service.event.BulkPublishResult;
+import de.unistuttgart.iste.meitrex.assignment_service.service.event.EventPublisher;
 import de.unistuttgart.iste.meitrex.content_service.client.ContentServiceClient;
 import de.unistuttgart.iste.meitrex.content_service.exception.ContentServiceConnectionException;
 import de.unistuttgart.iste.meitrex.course_service.client.CourseServiceClient;
@@ -20,19 +29,22 @@ import de.unistuttgart.iste.meitrex.course_service.exception.CourseServiceConnec
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.*;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.mapper.AssignmentMapper;
 import de.unistuttgart.iste.meitrex.assignment_service.validation.AssignmentValidator;
-import de.unistuttgart.iste.meitrex.common.dapr.TopicPublisher;
 import de.unistuttgart.iste.meitrex.common.event.ContentProgressedEvent;
 import de.unistuttgart.iste.meitrex.common.event.Response;
 import de.unistuttgart.iste.meitrex.common.event.StudentCodeSubmittedEvent;
 import de.unistuttgart.iste.meitrex.common.exception.NoAccessToCourseException;
 import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
 import de.unistuttgart.iste.meitrex.generated.dto.*;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 import org.json.*;
+import reactor.core.publisher.Flux;
 
 import java.net.URI;
 import java.net.http.HttpClient;
@@ -41,6 +53,8 @@ import java.net.http.HttpResponse;
 import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static de.unistuttgart.iste.meitrex.common.user_handling.UserCourseAccessValidator.validateUserHasAccessToCourse;
@@ -53,7 +67,7 @@ public class GradingService {
     private final GradingRepository gradingRepository;
     private final AssignmentMapper assignmentMapper;
     private final AssignmentValidator assignmentValidator;
-    private final TopicPublisher topicPublisher;
+    private final EventPublisher eventPublisher;
     private final AssignmentService assignmentService;
     private final StudentMappingRepository studentMappingRepository;
     private final ManualMappingInstanceRepository manualMappingInstanceRepository;
@@ -67,49 +81,260 @@ public class GradingService {
     private final CodeAssessmentProvider codeAssessmentProvider;
     private final AssignmentRepository assignmentRepository;
     private final ExternalCourseRepository externalCourseRepository;
+    private final GradingImportStateRepository gradingImportStateRepository;
+    private final ProgressPublicationTracker progressPublicationTracker;
+    private final ExternalGradingReconciler externalGradingReconciler;
+    private final MissingRepositoryCache missingRepositoryCache;
+    private final EntityManager entityManager;
+    private final TransactionOperations transactionOperations;
+    private final SingleFlight singleFlight;
+    private final StaleGradingRefresher staleGradingRefresher;
+    private final GradingUpdateBroadcaster gradingUpdateBroadcaster;
+    private final GradesSnapshotCache gradesSnapshotCache;
 
+    /**
+     * Returns the gradings of the given assignment which are visible to the current user.
+     * <p>
+     * Code assignments are synced with the external system while they are read. The database is only accessed in
+     * short transactions before and after the remote calls, so no connection is held while waiting for the
+     * user, content and course service or the external system.
+     */
     public List<Grading> getGradingsForAssignment(final UUID assignmentId, final LoggedInUser currentUser) {
-        log.info("[GRADING-FLOW] Starting getGradingsForAssignment for assignmentId={}, userId={}", 
+        return getGradingsForAssignment(assignmentId, currentUser, true);
+    }
+
+    /**
+     * Returns the gradings of the given assignment which are visible to the current user.
+     * <p>
+     * If the feedback of a code assignment is not requested, the credits of the current student are answered from
+     * the grades snapshot of the assignment while it is fresh, instead of syncing the repository of the student.
+     *
+     * @param feedbackRequested whether the feedback table of code assignment gradings is requested
+     */
+    public List<Grading> getGradingsForAssignment(final UUID assignmentId, final LoggedInUser currentUser,
+                                                  final boolean feedbackRequested) {
+        log.info("[GRADING-FLOW] Starting getGradingsForAssignment for assignmentId={}, userId={}",
                 assignmentId, currentUser.getId());
-        
-        final AssignmentEntity assignment = assignmentService.requireAssignmentExists(assignmentId);
+
+        // only the simple fields of the assignment are used outside of a transaction
+        final AssignmentEntity assignment = inTransaction(() -> assignmentService.requireAssignmentExists(assignmentId));
 
         LoggedInUser.CourseMembership courseMembership = currentUser.getCourseMemberships().stream()
                         .filter(membership -> membership.getCourseId().equals(assignment.getCourseId())).findFirst()
                         .orElseThrow(() -> new NoAccessToCourseException(assignment.getCourseId(), "User is not a member of the course."));
-        
+
         if (assignment.getAssignmentType() == AssignmentType.CODE_ASSIGNMENT){
             log.info("[GRADING-FLOW] Processing CODE_ASSIGNMENT type");
             List<Grading> gradings = new ArrayList<>();
 
             // Always get the current student's grading so that they see it in student's view (even if the user is a tutor/admin)
-            gradings.addAll(getCodeAssignmentGradingForStudent(assignment, currentUser));
+            gradings.addAll(getCodeAssignmentGradingForStudent(assignment, currentUser, feedbackRequested));
 
             // If the user is not a student, also fetch all gradings
             if (courseMembership.getRole() != LoggedInUser.UserRoleInCourse.STUDENT) {
                 gradings.clear(); // avoid duplicates
                 gradings.addAll(getCodeAssignmentGradingForAdmin(assignment, currentUser));
             }
+            return gradings;
+        }
+
+        return inTransaction(() -> getNonCodeAssignmentGradings(assignmentId, courseMembership, currentUser));
+    }
+
+    /**
+     * Returns the updates of the gradings of the given assignment which are visible to the current user:
+     * students only receive their own grading, tutors and admins the gradings of all students.
+     * <p>
+     * Updates are only sent by syncs on this instance, and gradings are only synced when they are read. So when a
+     * student subscribes to a code assignment, their grading is synced in the background if it is stale.
+     *
+     * @param assessmentId id of the assignment
+     * @param currentUser  the subscribing user
+     * @return the updated gradings, starting with the next update
+     * @throws NoAccessToCourseException if the user is not a member of the course of the assignment
+     */
+    public Flux<Grading> subscribeToGradingUpdates(final UUID assessmentId, final LoggedInUser currentUser) {
+        // only the simple fields of the assignment are used outside of a transaction
+        final AssignmentEntity assignment = inTransaction(() -> assignmentService.requireAssignmentExists(assessmentId));
+        final UUID courseId = assignment.getCourseId();
+        validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.STUDENT, courseId);
+
+        final boolean isStudent = currentUser.getCourseMemberships().stream()
+                .filter(membership -> membership.getCourseId().equals(courseId))
+                .allMatch(membership -> membership.getRole() == LoggedInUser.UserRoleInCourse.STUDENT);
+        final Flux<Grading> gradingUpdates = gradingUpdateBroadcaster.gradingUpdates(assessmentId);
+        if (!isStudent) {
+            return gradingUpdates;
+        }
+        final Flux<Grading> ownGradingUpdates = gradingUpdates.filter(grading -> grading.getStudentId().equals(currentUser.getId()));
+        if (assignment.getAssignmentType() != AssignmentType.CODE_ASSIGNMENT) {
+            return ownGradingUpdates;
+        }
+        // started once subscribed, so that the subscriber receives the grading if the sync changes it
+        return ownGradingUpdates.doOnSubscribe(subscription -> refreshIfStaleInBackground(assignment, currentUser));
+    }
+
+    /**
+     * Syncs the grading of the student on the code assignment in the background, if it is stale.
+     */
+    private void refreshIfStaleInBackground(final AssignmentEntity assignment, final LoggedInUser currentUser) {
+        staleGradingRefresher.refreshInBackground(new GradingEntity.PrimaryKey(assignment.getId(), currentUser.getId()), () -> {
+            final OffsetDateTime lastSyncedAt = inTransaction(
+                    () -> gradingRepository.findLastSyncedAt(assignment.getId(), currentUser.getId())).orElse(null);
+            if (staleGradingRefresher.isStale(lastSyncedAt)) {
+                syncCodeAssignmentGradingForStudent(assignment, currentUser);
+            }
+        });
+    }
+
+    /**
+     * Calls the external platform. Concurrent calls of the same operation for the same target, e.g. several users
+     * refreshing the same repository at once, share one call.
+     *
+     * @param operation the name of the operation
+     * @param target    the repository or assignment the operation is called for
+     */
+    private <T> T callCoalesced(final String operation, final String target, final ExternalCall<T> call)
+            throws ExternalPlatformConnectionException, UserServiceConnectionException {
+        try {
+            return singleFlight.execute(new ExternalCallKey(operation, target), call::execute);
+        } catch (ExternalPlatformConnectionException | UserServiceConnectionException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // not thrown by the calls
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A call of the external platform.
+     */
+    @FunctionalInterface
+    private interface ExternalCall<T> {
+        T execute() throws ExternalPlatformConnectionException, UserServiceConnectionException;
+    }
+
+    private record ExternalCallKey(String operation, String target) {
+    }
+
+    /**
+     * Executes the operation in a short transaction (or the current one, if there is any) with its own assignment
+     * lookup scope, since entities loaded in one transaction must not be reused in the next one.
+     */
+    private <T> T inTransaction(final Supplier<T> operation) {
+        return transactionOperations.execute(status -> {
+            try (AssignmentLookupScope ignored = AssignmentLookupScope.open()) {
+                return operation.get();
+            }
+        });
+    }
 
-            // publish content progressed event for each grading
-            for (Grading grading: gradings){
-                if (grading.getAchievedCredits() != null && assignment.getTotalCredits() != null) {
-                    final LogAssignmentCompletedInput input = LogAssignmentCompletedInput.builder().setAssessmentId(assignmentId).setAchievedCredits(grading.getAchievedCredits()).setCompletedExercises(List.of()).build();
-                    assignmentService.publishProgress(input, grading.getStudentId());
+    /**
+     * Publishes the progress events created by a sync all at once. Publishing happens without a transaction, the
+     * publication is recorded in a short transaction afterward, which loads only the gradings of the published events.
+     */
+    private void publishPendingProgress(final UUID assignmentId, final List<PendingProgress> pendingProgresses) {
+        if (pendingProgresses.isEmpty()) {
+            return;
+        }
+
+        final BulkPublishResult<ContentProgressedEvent> result = publishProgressEvents(
+                pendingProgresses.stream().map(PendingProgress::event).toList());
+        // failed events are not marked, so they are published again with the next sync
+        final Set<ContentProgressedEvent> failedEvents = Collections.newSetFromMap(new IdentityHashMap<>());
+        result.failedEvents().forEach(failedEvent -> failedEvents.add(failedEvent.event()));
+        final List<PendingProgress> publishedProgresses = pendingProgresses.stream()
+                .filter(pendingProgress -> !failedEvents.contains(pendingProgress.event()))
+                .toList();
+        if (publishedProgresses.isEmpty()) {
+            return;
+        }
+
+        inTransaction(() -> {
+            final Map<UUID, GradingEntity> gradingEntities = gradingRepository
+                    .findAllWithMetadataByPrimaryKey_AssessmentIdAndPrimaryKey_StudentIdIn(assignmentId,
+                            publishedProgresses.stream().map(PendingProgress::studentId).toList())
+                    .stream()
+                    .collect(Collectors.toMap(gradingEntity -> gradingEntity.getPrimaryKey().getStudentId(), Function.identity()));
+            for (final PendingProgress publishedProgress : publishedProgresses) {
+                final GradingEntity gradingEntity = gradingEntities.get(publishedProgress.studentId());
+                if (gradingEntity != null) {
+                    progressPublicationTracker.markPublished(gradingEntity, publishedProgress.achievedCredits(), publishedProgress.totalCredits());
                 }
             }
-            return gradings;
+            return null;
+        });
+    }
+
+    /**
+     * Creates a content progressed event for each of the given gradings whose progress changed since it was last
+     * published, so that syncing unchanged gradings publishes nothing. Called in the transaction which synced the
+     * gradings, so they don't have to be loaded again.
+     * <p>
+     * If the outbox is enabled, the events are stored in the outbox and marked as published right away, as part of
+     * the transaction which changed the gradings. Otherwise they are returned, to be published once it is committed.
+     *
+     * @param assignment      the managed assignment of the gradings
+     * @param gradingEntities the synced gradings
+     * @return the events to publish after the transaction
+     */
+    private List<PendingProgress> createChangedProgressEvents(final AssignmentEntity assignment,
+                                                              final List<GradingEntity> gradingEntities) {
+        if (assignment.getTotalCredits() == null) {
+            return List.of();
+        }
+        final double totalCredits = assignment.getTotalCredits();
+
+        final List<PendingProgress> pendingProgresses = new ArrayList<>();
+        final List<GradingEntity> changedGradingEntities = new ArrayList<>();
+        for (final GradingEntity gradingEntity : gradingEntities) {
+            final Double achievedCredits = gradingEntity.getAchievedCredits();
+            if (achievedCredits == null || !progressPublicationTracker.hasChanged(gradingEntity, achievedCredits, totalCredits)) {
+                continue;
+            }
+            final UUID studentId = gradingEntity.getPrimaryKey().getStudentId();
+            final LogAssignmentCompletedInput input = LogAssignmentCompletedInput.builder().setAssessmentId(assignment.getId()).setAchievedCredits(achievedCredits).setCompletedExercises(List.of()).build();
+            final ContentProgressedEvent progressEvent = assignmentService.createProgressEvent(input, studentId);
+            pendingProgresses.add(new PendingProgress(progressEvent, studentId, achievedCredits, totalCredits));
+            changedGradingEntities.add(gradingEntity);
         }
 
-        return getNonCodeAssignmentGradings(assignment.getId(), courseMembership, currentUser);
+        if (!eventPublisher.isOutboxEnabled() || pendingProgresses.isEmpty()) {
+            return pendingProgresses;
+        }
+        // storing the events in the outbox can't fail partially, they are published by the relay once committed
+        publishProgressEvents(pendingProgresses.stream().map(PendingProgress::event).toList());
+        for (int i = 0; i < pendingProgresses.size(); i++) {
+            final PendingProgress pendingProgress = pendingProgresses.get(i);
+            progressPublicationTracker.markPublished(changedGradingEntities.get(i), pendingProgress.achievedCredits(), pendingProgress.totalCredits());
+        }
+        return List.of();
+    }
+
+    /**
+     * A progress event which is about to be published, together with the progress it reports.
+     */
+    private record PendingProgress(ContentProgressedEvent event, UUID studentId, double achievedCredits, double totalCredits) {
     }
 
     private List<Grading> getCodeAssignmentGradingForAdmin(final AssignmentEntity assignment, final LoggedInUser currentUser) {
-        List<GradingEntity> gradings = gradingRepository.findAllByPrimaryKey_AssessmentId(assignment.getId());
+        // the repository links are loaded first, so that the remote calls don't need a transaction
+        final Map<UUID, String> repoLinksByStudentId = inTransaction(() -> {
+            final Map<UUID, String> repoLinks = new HashMap<>();
+            for (final GradingEntity gradingEntity : gradingRepository.findAllWithMetadataByPrimaryKey_AssessmentId(assignment.getId())) {
+                if (hasRepositoryLink(gradingEntity)) {
+                    repoLinks.put(gradingEntity.getPrimaryKey().getStudentId(), gradingEntity.getCodeAssignmentGradingMetadata().getRepoLink());
+                }
+            }
+            return repoLinks;
+        });
+
         List<ExternalGrading> externalGradings;
         Map<UUID, String> userIdToExternalId;
         try {
-            externalGradings = codeAssessmentProvider.syncGrades(assignment.getExternalId(), currentUser);
+            externalGradings = callCoalesced("syncGrades", assignment.getExternalId(),
+                    () -> codeAssessmentProvider.syncGrades(assignment.getExternalId(), currentUser));
+            gradesSnapshotCache.record(assignment.getId(), externalGradings);
             List<UUID> studentIds = getMeitrexStudentInfoList(assignment.getCourseId()).stream()
                     .map(UserInfo::getId)
                     .toList();
@@ -119,123 +344,374 @@ public class GradingService {
         } catch (ExternalPlatformConnectionException | UserServiceConnectionException |
                  CourseServiceConnectionException e) {
             log.error("Failed to sync student grades for assignment {}: {}", assignment.getId(), e.toString());
-            return gradings.stream()
-                    .map(assignmentMapper::gradingEntityToDto)
-                    .toList();
+            return inTransaction(() -> gradingRepository.findGradebookByAssessmentId(assignment.getId()).stream()
+                    .map(this::codeAssignmentGradingToDto)
+                    .toList());
         }
 
+        final Map<String, ExternalGrading> externalGradingsByUsername = externalGradingReconciler.indexByExternalUsername(externalGradings);
 
+        final Map<UUID, String> discoveredRepoLinks = discoverRepositories(assignment, repoLinksByStudentId, userIdToExternalId, currentUser);
+        final Map<UUID, String> allRepoLinks = new HashMap<>(repoLinksByStudentId);
+        allRepoLinks.putAll(discoveredRepoLinks);
 
         // we must update the total credits of the assignment based on an external grading which we get from
         // GH autograding workflow run which contains total_points
-        // we do it since GH Api is buggy and doesn't provide the total points before the first grading
-        if (!externalGradings.isEmpty()) {
-            // we take arbitrary grading with a date, since if it has a date then it must have been graded
-            Optional<ExternalGrading> tempGrading = externalGradings.stream()
-                    .filter(g -> g.date() != null)
-                    .findFirst();
-
-            if (tempGrading.isPresent()) {
-                final String[] repoLink = new String[1];
-                // Search for the first grading entity in the DB that matches the external username of the temp grading.
-                gradingRepository.findAllByPrimaryKey_AssessmentId(assignment.getId()).stream()
-                        .filter(gradingEntity -> {
-                            UUID studentId = gradingEntity.getPrimaryKey().getStudentId();
-                            String externalUsername = userIdToExternalId.get(studentId); // Map internal user ID to GitHub username.
-                            return externalUsername != null && externalUsername.equals(tempGrading.get().externalUsername());
-                        })
-                        .findFirst()
-                        // use the repo link to get the total points
-                        .ifPresent(gradingEntity ->
-                                repoLink[0] = gradingEntity.getCodeAssignmentGradingMetadata().getRepoLink()
-                        );
-
-                // totalPoints of tempGrading from the list is always 0 because of buggy GH API, thats why the call here
-                if (repoLink[0] != null) {
-                    ExternalGrading externalGrading = null;
-                    try {
-                        externalGrading = codeAssessmentProvider.syncGradeForStudent(repoLink[0], currentUser);
-                    } catch (ExternalPlatformConnectionException | UserServiceConnectionException e) {
-                        log.error("Failed to sync student grade for assignment {} and student {}: {}", assignment.getId(), currentUser.getId(), e.toString());
-                    }
-                    if (externalGrading != null) {
-                        assignment.setTotalCredits(externalGrading.totalPoints());
-                        assignmentRepository.save(assignment);
-                    }
-                }
+        // we do it since GH Api is buggy and doesn't provide the total points before the first grading.
+        // Once they were read from a log, they are known and the log doesn't need to be downloaded again.
+        final ExternalGrading gradingWithTotalPoints = hasDeterminedTotalCredits(assignment) ? null
+                : syncTotalPointsOfGradedRepository(assignment, allRepoLinks, externalGradings, userIdToExternalId, currentUser);
+
+        final Set<UUID> changedStudentIds = new HashSet<>();
+        final List<PendingProgress> pendingProgresses = new ArrayList<>();
+        final List<Grading> mappedGradings = inTransaction(() -> {
+            if (!discoveredRepoLinks.isEmpty()) {
+                final int backfilledCount = gradingRepository.backfillRepoLinks(assignment.getId(), discoveredRepoLinks);
+                log.info("Stored {} discovered repositories of assignment {}", backfilledCount, assignment.getId());
+            }
+            // lets students be found in the grades snapshot without asking the user service
+            gradingRepository.storeExternalUsernames(assignment.getId(), userIdToExternalId);
+            if (gradingWithTotalPoints != null) {
+                final AssignmentEntity managedAssignment = assignmentService.requireAssignmentExists(assignment.getId());
+                raiseTotalCredits(managedAssignment, gradingWithTotalPoints.totalPoints());
+                recordTotalCreditsDetermined(managedAssignment, gradingWithTotalPoints);
+            }
+
+            // we go only over existing gradings, since students who have not accepted the assignment yet
+            // will not have a gradingEntity in the database (one is created because we store repo link)
+            // thus they won't have done the assignment
+            final List<GradingEntity> gradings = gradingRepository.findGradebookByAssessmentId(assignment.getId());
+            final ReconciliationResult reconciliation = externalGradingReconciler.reconcile(gradings, externalGradingsByUsername, userIdToExternalId);
+            if (!reconciliation.changedGradings().isEmpty()) {
+                gradingRepository.saveAll(reconciliation.changedGradings());
+                reconciliation.changedGradings().forEach(grading -> changedStudentIds.add(grading.getPrimaryKey().getStudentId()));
             }
+            log.info("Reconciled gradings of assignment {}: {} changed, {} unchanged, {} without external grading",
+                    assignment.getId(), reconciliation.changedCount(), reconciliation.unchangedCount(), reconciliation.unmatchedCount());
+            markSynced(assignment.getId(), gradings.stream()
+                    .filter(grading -> {
+                        final String externalUsername = userIdToExternalId.get(grading.getPrimaryKey().getStudentId());
+                        return externalUsername != null && externalGradingsByUsername.containsKey(externalUsername);
+                    })
+                    .toList());
+            pendingProgresses.addAll(createChangedProgressEvents(assignmentService.requireAssignmentExists(assignment.getId()), gradings));
+
+            return gradings.stream()
+                    .map(this::codeAssignmentGradingToDto)
+                    .toList();
+        });
+        mappedGradings.stream()
+                .filter(grading -> changedStudentIds.contains(grading.getStudentId()))
+                .forEach(gradingUpdateBroadcaster::publish);
+        publishPendingProgress(assignment.getId(), pendingProgresses);
+        return mappedGradings;
+    }
+
+
+    /**
+     * Discovers the repositories of the students who have an external account but no stored repository yet.
+     * The repositories of the whole assignment are listed with a few paged requests, instead of searching the
+     * repository of each student separately when they view the assignment.
+     *
+     * @return the discovered repository links by student id
+     */
+    private Map<UUID, String> discoverRepositories(final AssignmentEntity assignment,
+                                                   final Map<UUID, String> knownRepoLinks,
+                                                   final Map<UUID, String> userIdToExternalId,
+                                                   final LoggedInUser currentUser) {
+        if (knownRepoLinks.keySet().containsAll(userIdToExternalId.keySet())) {
+            return Map.of();
         }
 
-        // we go only over existing gradings, since students who have not accepted the assignment yet
-        // will not have a gradingEntity in the database (one is created because we store repo link)
-        // thus they won't have done the assignment
-        for (GradingEntity gradingEntity : gradings) {
-            UUID studentId = gradingEntity.getPrimaryKey().getStudentId();
-            String externalUserId = userIdToExternalId.get(studentId);
-            if (externalUserId == null) continue;
+        final Map<String, String> repoLinksByExternalUsername;
+        try {
+            repoLinksByExternalUsername = callCoalesced("findRepositories", assignment.getExternalId(),
+                    () -> codeAssessmentProvider.findRepositories(assignment.getExternalId(), currentUser));
+        } catch (ExternalPlatformConnectionException | UserServiceConnectionException e) {
+            log.error("Failed to discover student repositories for assignment {}: {}", assignment.getId(), e.toString());
+            return Map.of();
+        }
 
-            ExternalGrading externalGrading = externalGradings.stream()
-                    .filter(g -> g.externalUsername().equals(externalUserId))
-                    .findFirst()
-                    .orElse(null);
+        // the listing is complete, so students who are not listed don't have to search their repository themselves
+        final Map<UUID, String> discoveredRepoLinks = new HashMap<>();
+        userIdToExternalId.forEach((studentId, externalUsername) -> {
+            if (knownRepoLinks.containsKey(studentId)) {
+                return;
+            }
+            final String repoLink = repoLinksByExternalUsername.get(externalUsername);
+            if (repoLink != null) {
+                discoveredRepoLinks.put(studentId, repoLink);
+                missingRepositoryCache.invalidate(assignment.getId(), studentId);
+            } else {
+                missingRepositoryCache.markMissing(assignment.getId(), studentId);
+            }
+        });
+        return discoveredRepoLinks;
+    }
 
-            if (externalGrading != null) {
-                gradingEntity.setAchievedCredits(externalGrading.achievedPoints());
-                gradingEntity.setDate(externalGrading.date());
-                gradingRepository.save(gradingEntity);
+    /**
+     * Syncs the grading of an arbitrary graded repository to determine the total points of the assignment.
+     * The total points of the bulk grades are always 0 because of the buggy GH API, that's why the
+     * grading of a single repository needs to be synced.
+     *
+     * @return the synced grading with the total points of the assignment, null if they could not be determined
+     */
+    private ExternalGrading syncTotalPointsOfGradedRepository(final AssignmentEntity assignment,
+                                                     final Map<UUID, String> repoLinksByStudentId,
+                                                     final List<ExternalGrading> externalGradings,
+                                                     final Map<UUID, String> userIdToExternalId,
+                                                     final LoggedInUser currentUser) {
+        // we take arbitrary grading with a date, since if it has a date then it must have been graded
+        final Optional<String> gradedUsername = externalGradings.stream()
+                .filter(g -> g.date() != null)
+                .map(ExternalGrading::externalUsername)
+                .filter(Objects::nonNull)
+                .findFirst();
+        if (gradedUsername.isEmpty()) {
+            return null;
+        }
+
+        // Search for the repository of the student that matches the external username of the graded repository.
+        final String repoLink = repoLinksByStudentId.entrySet().stream()
+                .filter(entry -> gradedUsername.get().equals(userIdToExternalId.get(entry.getKey())))
+                .findFirst()
+                .map(Map.Entry::getValue)
+                .orElse(null);
+        if (repoLink == null) {
+            return null;
+        }
+
+        try {
+            final ExternalGrading externalGrading = callCoalesced("syncGradeForStudent", repoLink,
+                    () -> codeAssessmentProvider.syncGradeForStudent(repoLink, currentUser));
+            return externalGrading == null || externalGrading.totalPoints() == null ? null : externalGrading;
+        } catch (ExternalPlatformConnectionException | UserServiceConnectionException e) {
+            log.error("Failed to sync student grade for assignment {} and student {}: {}", assignment.getId(), currentUser.getId(), e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the grading for the current user on the given code assignment.
+     * <p>
+     * If the feedback is not requested and the assignment has a fresh grades snapshot, the credits are taken from it.
+     * In stale-while-revalidate mode, a grading which was synced before is returned as stored. If it is stale,
+     * it is synced in the background. Otherwise the grading is synced before it is returned.
+     */
+    private List<Grading> getCodeAssignmentGradingForStudent(final AssignmentEntity assignment, final LoggedInUser currentUser,
+                                                             final boolean feedbackRequested) {
+        if (!feedbackRequested) {
+            final Optional<Grading> snapshotGrading = gradingFromGradesSnapshot(assignment, currentUser);
+            if (snapshotGrading.isPresent()) {
+                return List.of(snapshotGrading.get());
             }
         }
+        if (!staleGradingRefresher.isStaleWhileRevalidate()) {
+            return syncCodeAssignmentGradingForStudent(assignment, currentUser);
+        }
 
-        return gradings.stream()
-                .map(assignmentMapper::gradingEntityToDto)
-                .toList();
+        final Optional<Grading> storedGrading = inTransaction(() -> {
+            final GradingEntity gradingEntity = ensureGradingEntityExists(assignment.getId(), currentUser.getId());
+            return gradingEntity.getCodeAssignmentGradingMetadata().getLastSyncedAt() == null
+                    ? Optional.<Grading>empty()
+                    : Optional.of(codeAssignmentGradingToDto(gradingEntity));
+        });
+        if (storedGrading.isEmpty()) {
+            // never synced, there is nothing to return without waiting for the sync
+            return syncCodeAssignmentGradingForStudent(assignment, currentUser);
+        }
+
+        if (Boolean.TRUE.equals(storedGrading.get().getCodeAssignmentGradingMetadata().getIsStale())) {
+            log.info("[GRADING-FLOW] Returning stale grading, refreshing it in the background");
+            staleGradingRefresher.refreshInBackground(new GradingEntity.PrimaryKey(assignment.getId(), currentUser.getId()),
+                    () -> syncCodeAssignmentGradingForStudent(assignment, currentUser));
+        }
+        return List.of(storedGrading.get());
     }
 
+    /**
+     * Updates the credits of the current user on the given code assignment from the grades snapshot of the assignment.
+     * The status, feedback and commit of the grading are only updated when the repository of the student is synced.
+     *
+     * @return the grading, empty if the assignment has no fresh snapshot or the student is not in it
+     */
+    private Optional<Grading> gradingFromGradesSnapshot(final AssignmentEntity assignment, final LoggedInUser currentUser) {
+        if (!gradesSnapshotCache.hasFreshSnapshot(assignment.getId())) {
+            return Optional.empty();
+        }
+        final String externalUsername = externalUsernameOf(assignment.getId(), currentUser.getId());
+        final Optional<GradesSnapshotCache.SnapshotGrading> snapshotGrading = externalUsername == null ? Optional.empty()
+                : gradesSnapshotCache.findFreshGrading(assignment.getId(), externalUsername);
+        if (snapshotGrading.isEmpty()) {
+            return Optional.empty();
+        }
+        log.info("[GRADING-FLOW] Answering credits from grades snapshot taken at {}", snapshotGrading.get().syncedAt());
+
+        final SyncedGrading syncedGrading = inTransaction(() -> {
+            final GradingEntity gradingEntity = ensureGradingEntityExists(assignment.getId(), currentUser.getId());
+            final ExternalGrading externalGrading = snapshotGrading.get().externalGrading();
+            if (isBefore(externalGrading.date(), gradingEntity.getDate())) {
+                // the repository was synced after the snapshot was taken
+                return new SyncedGrading(codeAssignmentGradingToDto(gradingEntity), false, List.of());
+            }
+            final boolean changed = !externalGradingReconciler.reconcile(List.of(gradingEntity),
+                    Map.of(externalUsername, externalGrading),
+                    Map.of(currentUser.getId(), externalUsername)).changedGradings().isEmpty();
+            return new SyncedGrading(codeAssignmentGradingToDto(gradingEntity), changed,
+                    createChangedProgressEvents(assignmentService.requireAssignmentExists(assignment.getId()), List.of(gradingEntity)));
+        });
+        if (syncedGrading.changed()) {
+            gradingUpdateBroadcaster.publish(syncedGrading.grading());
+        }
+        publishPendingProgress(assignment.getId(), syncedGrading.pendingProgresses());
+        return Optional.of(syncedGrading.grading());
+    }
 
     /**
-     * Returns the grading for the current user on the given code assignment.
+     * Returns the username of the student on the external platform. Once resolved, it is stored with the grading of
+     * the student, so that the user service is only asked the first time.
+     *
+     * @return the username, null if the student has none or it could not be resolved
      */
-    private List<Grading> getCodeAssignmentGradingForStudent(final AssignmentEntity assignment, final LoggedInUser currentUser) {
-        log.info("[GRADING-FLOW] >>> getCodeAssignmentGradingForStudent START - assignmentId={}, studentId={}", 
+    private String externalUsernameOf(final UUID assignmentId, final UUID studentId) {
+        final Optional<String> storedExternalUsername = inTransaction(() -> gradingRepository.findExternalUsername(assignmentId, studentId));
+        if (storedExternalUsername.isPresent()) {
+            return storedExternalUsername.get();
+        }
+        final String externalUsername;
+        try {
+            externalUsername = userServiceClient.queryExternalUserIds(codeAssessmentProvider.getName(), List.of(studentId))
+                    .stream()
+                    .map(ExternalUserIdWithUser::getExternalUserId)
+                    .findFirst()
+                    .orElse(null);
+        } catch (UserServiceConnectionException e) {
+            log.error("[GRADING-FLOW] ERROR: Failed to query external user id of student {}: {}", studentId, e.toString());
+            return null;
+        }
+        if (externalUsername != null) {
+            inTransaction(() -> gradingRepository.storeExternalUsernames(assignmentId, Map.of(studentId, externalUsername)));
+        }
+        return externalUsername;
+    }
+
+    private static boolean isBefore(final OffsetDateTime date, final OffsetDateTime otherDate) {
+        return date != null && otherDate != null && date.isBefore(otherDate);
+    }
+
+    /**
+     * Syncs and returns the grading for the current user on the given code assignment.
+     * <p>
+     * The grading is loaded in a short transaction, then the repository of the student is searched and synced
+     * without a transaction, and the result is written in a second short transaction.
+     */
+    private List<Grading> syncCodeAssignmentGradingForStudent(final AssignmentEntity assignment, final LoggedInUser currentUser) {
+        log.info("[GRADING-FLOW] >>> getCodeAssignmentGradingForStudent START - assignmentId={}, studentId={}",
                 assignment.getId(), currentUser.getId());
-        
-        GradingEntity gradingEntity = ensureGradingEntityExists(assignment.getId(), currentUser.getId());
-        
-        findAndSetRepositoryLinkIfMissing(gradingEntity, assignment, currentUser);
-        
-        if (hasRepositoryLink(gradingEntity)) {
-            syncAndUpdateGrading(gradingEntity, assignment, currentUser);
+
+        // only the simple fields of the metadata are used outside of the transaction
+        final CodeAssignmentGradingMetadataEntity loadedMetadata = inTransaction(
+                () -> ensureGradingEntityExists(assignment.getId(), currentUser.getId()).getCodeAssignmentGradingMetadata());
+
+        final RepositoryLookup repositoryLookup = loadedMetadata.getRepoLink() == null
+                ? findRepositoryLink(assignment, currentUser)
+                : RepositoryLookup.NONE;
+        final String foundRepoLink = repositoryLookup.repoLink();
+        final String repoLink = loadedMetadata.getRepoLink() != null ? loadedMetadata.getRepoLink() : foundRepoLink;
+
+        final ExternalGrading externalGrading = repoLink == null ? null
+                : syncGrading(repoLink, lastParsedGradingOf(loadedMetadata), assignment, currentUser);
+        final PendingCodeSubmission codeSubmission = externalGrading == null ? null
+                : fetchCodeSubmission(loadedMetadata.getLastProcessedCommitSha(), repoLink, externalGrading, assignment, currentUser);
+
+        final SyncedGrading syncedGrading = inTransaction(() -> {
+            // the grading is managed, only modified fields are written when the transaction commits
+            final GradingEntity gradingEntity = ensureGradingEntityExists(assignment.getId(), currentUser.getId());
+            final CodeAssignmentGradingMetadataEntity metadata = gradingEntity.getCodeAssignmentGradingMetadata();
+            if (metadata.getRepoLink() == null && foundRepoLink != null) {
+                metadata.setRepoLink(foundRepoLink);
+            }
+            if (repositoryLookup.resolvedRemotely()) {
+                rememberRepositoryLocation(assignment.getId(), repositoryLookup);
+            }
+            final AssignmentEntity managedAssignment = assignmentService.requireAssignmentExists(assignment.getId());
+            boolean changed = false;
+            if (externalGrading != null) {
+                changed = applyExternalGrading(gradingEntity, externalGrading, managedAssignment);
+                markSynced(assignment.getId(), List.of(gradingEntity));
+            }
+            if (codeSubmission != null) {
+                metadata.setLastProcessedCommitSha(codeSubmission.processedCommitSha());
+                if (eventPublisher.isOutboxEnabled()) {
+                    // stored in the outbox together with the grading, published by the relay once committed
+                    eventPublisher.notifyStudentCodeSubmitted(codeSubmission.event());
+                }
+            }
+            return new SyncedGrading(codeAssignmentGradingToDto(gradingEntity), changed,
+                    createChangedProgressEvents(managedAssignment, List.of(gradingEntity)));
+        });
+        if (syncedGrading.changed()) {
+            gradingUpdateBroadcaster.publish(syncedGrading.grading());
+        }
+        publishPendingProgress(assignment.getId(), syncedGrading.pendingProgresses());
+        if (codeSubmission != null && !eventPublisher.isOutboxEnabled()) {
+            publishCodeSubmission(codeSubmission, loadedMetadata.getLastProcessedCommitSha(), assignment, currentUser);
         }
 
-        log.info("[GRADING-FLOW] Saving grading entity to database");
-        gradingEntity = gradingRepository.save(gradingEntity);
         log.info("[GRADING-FLOW] <<< getCodeAssignmentGradingForStudent END - returning grading");
-        return List.of(assignmentMapper.gradingEntityToDto(gradingEntity));
+        return List.of(syncedGrading.grading());
     }
 
     /**
-     * Ensures a grading entity exists for the given assignment and student.
-     * Creates a new entity with metadata if it doesn't exist.
+     * Records that the given gradings were just synced, with a statement which only writes their sync time.
+     * The sync time is also set on the managed metadata for the returned gradings; that doesn't make the metadata
+     * dirty, since the sync time is not updatable.
      */
-    private GradingEntity ensureGradingEntityExists(final UUID assignmentId, final UUID studentId) {
-        final GradingEntity.PrimaryKey pk = new GradingEntity.PrimaryKey(assignmentId, studentId);
-        GradingEntity gradingEntity = gradingRepository.findById(pk).orElse(null);
-        
-        if (gradingEntity == null) {
-            log.info("[GRADING-FLOW] Creating new grading entity for first-time access");
-            gradingEntity = GradingEntity.builder().primaryKey(pk).build();
-
-            CodeAssignmentGradingMetadataEntity metadata = CodeAssignmentGradingMetadataEntity.builder()
-                    .grading(gradingEntity)
-                    .repoLink(null)
-                    .status(null)
-                    .feedbackTableHtml(null)
-                    .build();
+    private void markSynced(final UUID assignmentId, final List<GradingEntity> gradingEntities) {
+        if (gradingEntities.isEmpty()) {
+            return;
+        }
+        final OffsetDateTime syncedAt = OffsetDateTime.now();
+        gradingRepository.markSynced(assignmentId, gradingEntities.stream()
+                .map(gradingEntity -> gradingEntity.getPrimaryKey().getStudentId())
+                .toArray(UUID[]::new), syncedAt);
+        gradingEntities.stream()
+                .map(GradingEntity::getCodeAssignmentGradingMetadata)
+                .filter(Objects::nonNull)
+                .forEach(metadata -> metadata.setLastSyncedAt(syncedAt));
+    }
 
-            gradingEntity.setCodeAssignmentGradingMetadata(metadata);
+    /**
+     * A synced grading, whether the sync changed it and the progress events to publish for it.
+     */
+    private record SyncedGrading(Grading grading, boolean changed, List<PendingProgress> pendingProgresses) {
+    }
+
+    /**
+     * Maps the code assignment grading, including whether it is stale.
+     */
+    private Grading codeAssignmentGradingToDto(final GradingEntity gradingEntity) {
+        final Grading grading = assignmentMapper.gradingEntityToDto(gradingEntity);
+        if (grading.getCodeAssignmentGradingMetadata() != null) {
+            grading.getCodeAssignmentGradingMetadata().setIsStale(
+                    staleGradingRefresher.isStale(gradingEntity.getCodeAssignmentGradingMetadata().getLastSyncedAt()));
         }
+        return grading;
+    }
 
-        return gradingEntity;
+    /**
+     * Ensures a grading entity exists for the given assignment and student.
+     * Creates a new entity with metadata if it doesn't exist. The creation is an insert which does nothing on
+     * conflict, so simultaneous first accesses of the same student don't fail and load the same grading. It is
+     * issued before the grading is loaded, so that every access costs the insert and a single select, instead of a
+     * second select on the first access.
+     */
+    private GradingEntity ensureGradingEntityExists(final UUID assignmentId, final UUID studentId) {
+        if (gradingRepository.insertCodeAssignmentGradingIfAbsent(assignmentId, studentId) > 0) {
+            log.info("[GRADING-FLOW] Created new grading entity for first-time access");
+        }
+        return gradingRepository.findWithAllGradingsByPrimaryKey(new GradingEntity.PrimaryKey(assignmentId, studentId))
+                .orElseThrow(() -> new EntityNotFoundException("Grading with assessmentId %s and studentId %s not found".formatted(assignmentId, studentId)));
     }
 
     /**
@@ -247,17 +723,29 @@ public class GradingService {
     }
 
     /**
-     * Finds and sets the repository link for the student if it's missing.
+     * Finds the repository link of the student in the external system.
+     * <p>
+     * The repository is searched with the assignment slug and organization stored with the code assignment, so no
+     * other service needs to be called. Only if they are unknown, e.g. for assignments created before they were
+     * stored or after the assignment was renamed, they are resolved via the content and course service.
+     * If the repository was recently not found, it is not searched again until that result expires.
+     *
+     * @return the repository link (null if it could not be found) and the resolved slug and organization
      */
-    private void findAndSetRepositoryLinkIfMissing(final GradingEntity gradingEntity, 
-                                                    final AssignmentEntity assignment, 
-                                                    final LoggedInUser currentUser) {
-        if (hasRepositoryLink(gradingEntity)) {
-            return;
+    private RepositoryLookup findRepositoryLink(final AssignmentEntity assignment, final LoggedInUser currentUser) {
+        if (missingRepositoryCache.isMissing(assignment.getId(), currentUser.getId())) {
+            log.info("[GRADING-FLOW] Repository link not found, student repository was recently not found either");
+            return RepositoryLookup.NONE;
         }
-
         log.info("[GRADING-FLOW] Repository link not found, attempting to find student repository");
+        final CodeAssignmentMetadataEntity codeAssignmentMetadata = assignment.getCodeAssignmentMetadata();
         try {
+            if (codeAssignmentMetadata != null && codeAssignmentMetadata.getAssignmentSlug() != null
+                && codeAssignmentMetadata.getOrganizationName() != null) {
+                return new RepositoryLookup(findRepository(assignment, codeAssignmentMetadata.getAssignmentSlug(),
+                        codeAssignmentMetadata.getOrganizationName(), currentUser), null, null);
+            }
+
             String assignmentName = contentServiceClient.queryContentsOfCourse(currentUser.getId(), assignment.getCourseId()).stream()
                     .filter(assignmentDto -> assignmentDto.getId().equals(assignment.getId()))
                     .findFirst()
@@ -267,46 +755,136 @@ public class GradingService {
             String courseTitle = courseServiceClient.queryCourseById(assignment.getCourseId()).getTitle();
             String organizationName = externalCourseRepository.findById(courseTitle).get().getOrganizationName();
 
-            log.info("[GRADING-FLOW] Calling findRepository with assignmentName={}, organizationName={}", 
-                    assignmentName, organizationName);
-            String repoLink = codeAssessmentProvider.findRepository(assignmentName, organizationName, currentUser);
-            log.info("[GRADING-FLOW] Repository link found: {}", repoLink != null ? repoLink : "NULL");
-            gradingEntity.getCodeAssignmentGradingMetadata().setRepoLink(repoLink);
+            return new RepositoryLookup(findRepository(assignment, assignmentName, organizationName, currentUser),
+                    codeAssessmentProvider.getAssignmentSlug(assignmentName), organizationName);
         } catch (ExternalPlatformConnectionException | UserServiceConnectionException |
                  ContentServiceConnectionException | CourseServiceConnectionException e) {
-            log.error("[GRADING-FLOW] ERROR: Failed to find repository for assignment {} and student {}: {}", 
+            log.error("[GRADING-FLOW] ERROR: Failed to find repository for assignment {} and student {}: {}",
                     assignment.getId(), currentUser.getId(), e.toString());
+            return RepositoryLookup.NONE;
+        }
+    }
+
+    private String findRepository(final AssignmentEntity assignment, final String assignmentName,
+                                  final String organizationName, final LoggedInUser currentUser)
+            throws ExternalPlatformConnectionException, UserServiceConnectionException {
+        log.info("[GRADING-FLOW] Calling findRepository with assignmentName={}, organizationName={}",
+                assignmentName, organizationName);
+        String repoLink = codeAssessmentProvider.findRepository(assignmentName, organizationName, currentUser);
+        log.info("[GRADING-FLOW] Repository link found: {}", repoLink != null ? repoLink : "NULL");
+        if (repoLink == null) {
+            // most likely the student has not accepted the assignment yet
+            missingRepositoryCache.markMissing(assignment.getId(), currentUser.getId());
+        }
+        return repoLink;
+    }
+
+    /**
+     * Stores the assignment slug and organization resolved via the other services with the code assignment,
+     * so that the next repository lookups don't need to resolve them again.
+     */
+    private void rememberRepositoryLocation(final UUID assignmentId, final RepositoryLookup repositoryLookup) {
+        final CodeAssignmentMetadataEntity codeAssignmentMetadata = assignmentService.requireAssignmentExists(assignmentId).getCodeAssignmentMetadata();
+        if (codeAssignmentMetadata == null) {
+            return;
+        }
+        if (repositoryLookup.assignmentSlug() != null) {
+            codeAssignmentMetadata.setAssignmentSlug(repositoryLookup.assignmentSlug());
+        }
+        if (repositoryLookup.organizationName() != null) {
+            codeAssignmentMetadata.setOrganizationName(repositoryLookup.organizationName());
         }
     }
 
     /**
-     * Syncs grading from external system, updates the grading entity, and handles code submission events.
+     * Result of a repository lookup. The assignment slug and organization are only set if they were resolved via
+     * the content and course service and have to be stored.
      */
-    private void syncAndUpdateGrading(final GradingEntity gradingEntity, 
-                                       final AssignmentEntity assignment, 
+    private record RepositoryLookup(String repoLink, String assignmentSlug, String organizationName) {
+        private static final RepositoryLookup NONE = new RepositoryLookup(null, null, null);
+
+        boolean resolvedRemotely() {
+            return assignmentSlug != null || organizationName != null;
+        }
+    }
+
+    /**
+     * Syncs the grading of the student's repository from the external system.
+     *
+     * @param lastParsedGrading the grading parsed at the last sync, reused by the provider if its run is still the
+     *                          latest one; null if there is none
+     * @return the external grading, null if it could not be synced
+     */
+    private ExternalGrading syncGrading(final String repoLink,
+                                       final ExternalGrading lastParsedGrading,
+                                       final AssignmentEntity assignment,
                                        final LoggedInUser currentUser) {
-        log.info("[GRADING-FLOW] Repository link exists: {}", 
-                gradingEntity.getCodeAssignmentGradingMetadata().getRepoLink());
-        ExternalGrading externalGrading;
+        log.info("[GRADING-FLOW] Repository link exists: {}", repoLink);
         try {
-            externalGrading = codeAssessmentProvider.syncGradeForStudent(
-                    gradingEntity.getCodeAssignmentGradingMetadata().getRepoLink(), currentUser);
-            log.info("[GRADING-FLOW] syncGradeForStudent completed - achievedPoints={}, totalPoints={}, status={}", 
+            final ExternalGrading externalGrading = callCoalesced("syncGradeForStudent", repoLink,
+                    () -> codeAssessmentProvider.syncGradeForStudent(repoLink, currentUser, lastParsedGrading));
+            log.info("[GRADING-FLOW] syncGradeForStudent completed - achievedPoints={}, totalPoints={}, status={}",
                     externalGrading.achievedPoints(), externalGrading.totalPoints(), externalGrading.status());
+            return externalGrading;
         } catch (ExternalPlatformConnectionException | UserServiceConnectionException e) {
-            log.error("[GRADING-FLOW] ERROR: Failed to sync student grade for assignment {} and student {}: {}", 
+            log.error("[GRADING-FLOW] ERROR: Failed to sync student grade for assignment {} and student {}: {}",
                     assignment.getId(), currentUser.getId(), e.toString());
-            return;
+            return null;
         }
+    }
 
+    /**
+     * Returns the grading parsed from the logs of the last processed run, as stored in the metadata.
+     *
+     * @return the grading, null if no run was parsed yet
+     */
+    private static ExternalGrading lastParsedGradingOf(final CodeAssignmentGradingMetadataEntity metadata) {
+        if (metadata.getLastRunId() == null) {
+            return null;
+        }
+        return new ExternalGrading(null, metadata.getStatus(), null, metadata.getFeedbackTableHtml(),
+                metadata.getLastRunAchievedPoints(), metadata.getLastRunTotalPoints(),
+                metadata.getLastProcessedCommitSha(), metadata.getLastRunId());
+    }
+
+    /**
+     * Updates the grading entity with the synced external grading, unless nothing changed since the last sync.
+     *
+     * @return true if the grading was updated
+     */
+    private boolean applyExternalGrading(final GradingEntity gradingEntity,
+                                      final ExternalGrading externalGrading,
+                                      final AssignmentEntity assignment) {
+        final String syncHash = syncHashOf(externalGrading);
+        if (syncHash.equals(gradingEntity.getCodeAssignmentGradingMetadata().getSyncHash())) {
+            // nothing changed since the last sync, the grading is not modified and therefore not written
+            log.info("[GRADING-FLOW] External grading unchanged since last sync");
+            return false;
+        }
         updateGradingFromExternalGrading(gradingEntity, externalGrading, assignment);
-        handleCodeSubmissionEvent(gradingEntity, externalGrading, assignment, currentUser);
+        gradingEntity.getCodeAssignmentGradingMetadata().setSyncHash(syncHash);
+        return true;
+    }
+
+    /**
+     * Computes a hash of everything of the external grading that is stored in the grading,
+     * used to detect whether a sync changed anything.
+     */
+    private static String syncHashOf(final ExternalGrading externalGrading) {
+        return ContentHash.sha256Hex(String.join("\0",
+                String.valueOf(externalGrading.achievedPoints()),
+                String.valueOf(externalGrading.totalPoints()),
+                String.valueOf(externalGrading.date() == null ? null : externalGrading.date().toInstant()),
+                String.valueOf(externalGrading.status()),
+                String.valueOf(externalGrading.tableHtml()),
+                String.valueOf(externalGrading.commitSha()),
+                String.valueOf(externalGrading.runId())));
     }
 
     /**
      * Updates the grading entity with data from external grading.
      */
-    private void updateGradingFromExternalGrading(final GradingEntity gradingEntity, 
+    private void updateGradingFromExternalGrading(final GradingEntity gradingEntity,
                                                    final ExternalGrading externalGrading,
                                                    final AssignmentEntity assignment) {
         if (externalGrading.achievedPoints() != null) {
@@ -317,56 +895,132 @@ public class GradingService {
         CodeAssignmentGradingMetadataEntity metadata = gradingEntity.getCodeAssignmentGradingMetadata();
         metadata.setStatus(externalGrading.status());
         metadata.setFeedbackTableHtml(externalGrading.tableHtml());
+        // only a run whose logs were parsed can be reused, the feedback table of other runs is not known
+        final boolean parsed = externalGrading.achievedPoints() != null;
+        metadata.setLastRunId(parsed ? externalGrading.runId() : null);
+        metadata.setLastRunAchievedPoints(parsed ? externalGrading.achievedPoints() : null);
+        metadata.setLastRunTotalPoints(parsed ? externalGrading.totalPoints() : null);
+
+        raiseTotalCredits(assignment, externalGrading.totalPoints());
+        if (parsed && externalGrading.totalPoints() != null) {
+            recordTotalCreditsDetermined(assignment, externalGrading);
+        }
+    }
 
-        if (assignment.getTotalCredits() == null || 
-            (externalGrading.totalPoints() != null && externalGrading.totalPoints() > assignment.getTotalCredits())) {
-            assignment.setTotalCredits(externalGrading.totalPoints());
+    /**
+     * Checks whether the total credits of the code assignment were already read from the log of a graded run.
+     */
+    private static boolean hasDeterminedTotalCredits(final AssignmentEntity assignment) {
+        return assignment.getCodeAssignmentMetadata() != null
+               && assignment.getCodeAssignmentMetadata().getTotalCreditsDeterminedAt() != null;
+    }
+
+    /**
+     * Records that the total credits of the code assignment were read from the log of the run of the given grading,
+     * unless they were recorded before. The metadata is a separate entity, so the version of the assignment is not
+     * incremented.
+     */
+    private void recordTotalCreditsDetermined(final AssignmentEntity assignment, final ExternalGrading externalGrading) {
+        final CodeAssignmentMetadataEntity codeAssignmentMetadata = assignment.getCodeAssignmentMetadata();
+        if (codeAssignmentMetadata == null || codeAssignmentMetadata.getTotalCreditsDeterminedAt() != null) {
+            return;
         }
+        codeAssignmentMetadata.setTotalCreditsDeterminedAt(OffsetDateTime.now());
+        codeAssignmentMetadata.setTotalCreditsRunId(externalGrading.runId());
     }
 
     /**
-     * Handles code submission event publishing with commit-based deduplication.
+     * Raises the total credits of the assignment to the given points with a single atomic update, instead of saving
+     * the whole assignment. Concurrent refreshes of many students therefore don't lose updates or conflict with
+     * each other on the assignment row.
      */
-    private void handleCodeSubmissionEvent(final GradingEntity gradingEntity,
-                                            final ExternalGrading externalGrading,
-                                            final AssignmentEntity assignment,
-                                            final LoggedInUser currentUser) {
-        CodeAssignmentGradingMetadataEntity metadata = gradingEntity.getCodeAssignmentGradingMetadata();
-        String lastProcessedCommit = metadata.getLastProcessedCommitSha();
+    private void raiseTotalCredits(final AssignmentEntity assignment, final Double totalPoints) {
+        if (totalPoints == null) {
+            return;
+        }
+        if (assignment.getTotalCredits() != null && totalPoints <= assignment.getTotalCredits()) {
+            return; // nothing to do, total credits only increase
+        }
+        if (assignmentRepository.raiseTotalCredits(assignment.getId(), totalPoints) == 0) {
+            log.debug("Total credits of assignment {} were already raised concurrently", assignment.getId());
+        }
+        // load the value written by the update (or a concurrent one) without marking the assignment as modified
+        if (entityManager.contains(assignment)) {
+            entityManager.refresh(assignment);
+        } else {
+            assignment.setTotalCredits(Math.max(totalPoints, Objects.requireNonNullElse(assignment.getTotalCredits(), 0.0)));
+        }
+    }
+
+    /**
+     * Fetches the code of the student for a code submission event, with commit-based deduplication.
+     * Runs without a transaction, the event has to be published and the commit sha stored by the caller.
+     *
+     * @return the event and the commit sha to store as last processed commit, null if no event has to be published
+     */
+    private PendingCodeSubmission fetchCodeSubmission(final String lastProcessedCommit,
+                                             final String repoLink,
+                                             final ExternalGrading externalGrading,
+                                             final AssignmentEntity assignment,
+                                             final LoggedInUser currentUser) {
         String currentCommit = externalGrading.commitSha();
 
         if (!shouldSendCodeSubmissionEvent(lastProcessedCommit, currentCommit, assignment.getId(), currentUser.getId())) {
-            return;
+            return null;
         }
 
         log.info("[GRADING-FLOW] Attempting to fetch student code from repository");
         try {
             if (codeAssessmentProvider instanceof de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.GithubClassroom githubClassroom) {
-                log.info("[GRADING-FLOW] Calling fetchStudentCode for repoLink={}", 
-                        metadata.getRepoLink());
-                
-                de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.StudentCodeSubmission codeSubmission = 
-                    githubClassroom.fetchStudentCode(metadata.getRepoLink(), currentUser);
-                
-                log.info("[GRADING-FLOW] fetchStudentCode completed successfully - files count: {}, commit: {}", 
+                log.info("[GRADING-FLOW] Calling fetchStudentCode for repoLink={}",
+                        repoLink);
+
+                de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.StudentCodeSubmission codeSubmission =
+                    callCoalesced("fetchStudentCode", repoLink, () -> githubClassroom.fetchStudentCode(repoLink, currentUser));
+
+                log.info("[GRADING-FLOW] fetchStudentCode completed successfully - files count: {}, commit: {}",
                         codeSubmission.getFiles().size(), codeSubmission.getCommitSha());
-                
+
                 codeSubmission.setAssignmentId(assignment.getId());
                 codeSubmission.setCourseId(assignment.getCourseId());
-                
-                log.info("[GRADING-FLOW] Publishing StudentCodeSubmittedEvent");
-                publishStudentCodeSubmittedEvent(codeSubmission);
-                log.info("[GRADING-FLOW] StudentCodeSubmittedEvent published successfully");
-                
-                metadata.setLastProcessedCommitSha(currentCommit != null ? currentCommit : "NO_COMMIT_SHA_PROCESSED");
+
+                return new PendingCodeSubmission(createStudentCodeSubmittedEvent(codeSubmission),
+                        currentCommit != null ? currentCommit : "NO_COMMIT_SHA_PROCESSED");
             } else {
-                log.warn("[GRADING-FLOW] Code assessment provider is not GithubClassroom instance: {}", 
+                log.warn("[GRADING-FLOW] Code assessment provider is not GithubClassroom instance: {}",
                         codeAssessmentProvider.getClass().getName());
             }
         } catch (ExternalPlatformConnectionException | UserServiceConnectionException e) {
-            log.error("[GRADING-FLOW] ERROR: Failed to fetch student code for assignment {} and student {}: {}", 
+            log.error("[GRADING-FLOW] ERROR: Failed to fetch student code for assignment {} and student {}: {}",
                     assignment.getId(), currentUser.getId(), e.toString());
         }
+        return null;
+    }
+
+    /**
+     * A code submission event which is about to be published, together with the commit sha to store as processed.
+     */
+    private record PendingCodeSubmission(StudentCodeSubmittedEvent event, String processedCommitSha) {
+    }
+
+    /**
+     * Publishes the code submission event directly, after the processed commit sha was committed. If publishing
+     * fails, the previous commit sha is restored, so that the event is published again with the next sync.
+     */
+    private void publishCodeSubmission(final PendingCodeSubmission codeSubmission, final String previousCommitSha,
+                                       final AssignmentEntity assignment, final LoggedInUser currentUser) {
+        try {
+            eventPublisher.notifyStudentCodeSubmitted(codeSubmission.event());
+            log.info("[GRADING-FLOW] StudentCodeSubmittedEvent published successfully");
+        } catch (RuntimeException e) {
+            log.error("[GRADING-FLOW] ERROR: Failed to publish code submission of student {} for assignment {}: {}",
+                    currentUser.getId(), assignment.getId(), e.toString());
+            inTransaction(() -> {
+                ensureGradingEntityExists(assignment.getId(), currentUser.getId())
+                        .getCodeAssignmentGradingMetadata().setLastProcessedCommitSha(previousCommitSha);
+                return null;
+            });
+        }
     }
 
     /**
@@ -416,13 +1070,13 @@ public class GradingService {
         }
 
         if (courseMembership.getRole() == LoggedInUser.UserRoleInCourse.STUDENT) {
-            GradingEntity gradingEntity = gradingRepository.findById(new GradingEntity.PrimaryKey(assignmentId, currentUser.getId()))
+            GradingEntity gradingEntity = gradingRepository.findWithAllGradingsByPrimaryKey(new GradingEntity.PrimaryKey(assignmentId, currentUser.getId()))
                     .orElseThrow(() -> new EntityNotFoundException("Grading with assessmentId %s and studentId %s not found".formatted(assignmentId, currentUser.getId())));
 
             return List.of(assignmentMapper.gradingEntityToDto(gradingEntity));
         }
 
-        return gradingRepository.findAllByPrimaryKey_AssessmentId(assignmentId).stream()
+        return gradingRepository.findGradebookByAssessmentId(assignmentId).stream()
                 .map(assignmentMapper::gradingEntityToDto)
                 .toList();
     }
@@ -433,12 +1087,17 @@ public class GradingService {
      * All gradings for one assignment are requested from the external system (TMS) via HTTP. The response is parsed to gradingEntities. <br>
      * These gradingEntities are saved in the grading repository. <br>
      * A contentProgressedEvent is published for each grading (i.e. each student).
+     * <p>
+     * Like {@link #importChangedGradingsForAssignment(UUID)}, the course members and hand-ins are requested without a
+     * transaction, and the content hash of every imported row is stored, so that the next scheduled import skips the
+     * rows which didn't change since.
      *
      * @param assignmentId id of the assignment of which the gradings should be imported
      * @param currentUser the user requesting the import (needs to be admin)
      */
     public void importGradingsForAssignment(final UUID assignmentId, final LoggedInUser currentUser) {
-        final AssignmentEntity assignment = assignmentService.requireAssignmentExists(assignmentId); // throws EntityNotFoundException "Assignment with assessmentId %s not found"
+        // only the simple fields of the assignment are used outside of a transaction
+        final AssignmentEntity assignment = inTransaction(() -> assignmentService.requireAssignmentExists(assignmentId)); // throws EntityNotFoundException "Assignment with assessmentId %s not found"
         validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.ADMINISTRATOR, assignment.getCourseId());
 
         final List<UserInfo> meitrexStudentInfoList;
@@ -449,8 +1108,134 @@ public class GradingService {
             // return; TODO return or throw wrapped exception?
         }
 
-        String externalId = assignment.getExternalId();
+        final JSONArray handIns = new JSONArray(fetchHandInsFromExternalSystem(assignment.getExternalId()));
+        final Map<JSONObject, String> hashedHandIns = new LinkedHashMap<>();
+        for (int i = 0; i < handIns.length(); i++) {
+            final JSONObject handIn = handIns.getJSONObject(i);
+            hashedHandIns.put(handIn, ContentHash.sha256HexOfJson(handIn.toMap()));
+        }
+
+        final int importedCount = inTransaction(() -> importHandIns(assignmentId, hashedHandIns, meitrexStudentInfoList));
+        log.info("Imported {} gradings for assignment {}", importedCount, assignmentId);
+    }
+
+    /**
+     * Incrementally imports the gradings of one assignment from the external system (TMS). <br>
+     * Used by the scheduled import. In contrast to {@link #importGradingsForAssignment(UUID, LoggedInUser)}, a content
+     * hash of every hand-in row is compared with the hash stored during the last import, and only rows that changed
+     * are saved and published as {@link ContentProgressedEvent}. Rows that are still waiting for a manual mapping with
+     * unchanged content are skipped as well, they are retried when the mapping is done.
+     * <p>
+     * The hand-ins and the course members are requested without a transaction, the database is only accessed in
+     * short transactions before and after.
+     *
+     * @param assignmentId id of the assignment of which the gradings should be imported
+     * @return number of gradings which were imported
+     */
+    public int importChangedGradingsForAssignment(final UUID assignmentId) {
+        // only the simple fields of the assignment are used outside of a transaction
+        final AssignmentEntity assignment = inTransaction(() -> assignmentService.requireAssignmentExists(assignmentId)); // throws EntityNotFoundException "Assignment with assessmentId %s not found"
+
+        final JSONArray handIns = new JSONArray(fetchHandInsFromExternalSystem(assignment.getExternalId()));
+
+        final Map<JSONObject, String> changedHandIns = inTransaction(() -> findChangedHandIns(assignmentId, handIns));
+        if (changedHandIns.isEmpty()) {
+            log.debug("No changed gradings for assignment {}", assignmentId);
+            return 0;
+        }
+
+        // only query the course members if there is something to import
+        final List<UserInfo> meitrexStudentInfoList;
+        try {
+            meitrexStudentInfoList = getMeitrexStudentInfoList(assignment.getCourseId());
+        } catch (UserServiceConnectionException | CourseServiceConnectionException e) {
+            throw new RuntimeException(e); // wrapping exception
+        }
+
+        final int importedCount = inTransaction(() -> importHandIns(assignmentId, changedHandIns, meitrexStudentInfoList));
+        log.info("Imported {} changed gradings for assignment {}", importedCount, assignmentId);
+        return importedCount;
+    }
+
+    /**
+     * Returns the hand-ins which changed since the last import, with their content hash.
+     */
+    private Map<JSONObject, String> findChangedHandIns(final UUID assignmentId, final JSONArray handIns) {
+        final Map<String, GradingImportStateEntity> importStates = gradingImportStateRepository
+                .findAllByPrimaryKey_AssignmentId(assignmentId).stream()
+                .collect(Collectors.toMap(state -> state.getPrimaryKey().getExternalStudentId(), Function.identity()));
+        final Map<String, String> unfinishedGradingHashes = unfinishedGradingRepository
+                .findAllByPrimaryKey_AssignmentId(assignmentId).stream()
+                .collect(Collectors.toMap(unfinished -> unfinished.getPrimaryKey().getExternalStudentId(),
+                        unfinished -> ContentHash.sha256HexOfJson(new JSONObject(unfinished.getGradingJson()).toMap())));
+
+        final Map<JSONObject, String> changedHandIns = new LinkedHashMap<>();
+        for (int i = 0; i < handIns.length(); i++) {
+            final JSONObject handIn = handIns.getJSONObject(i);
+            final String externalStudentId = handIn.getString("studentId");
+            final String hash = ContentHash.sha256HexOfJson(handIn.toMap());
+
+            final GradingImportStateEntity importState = importStates.get(externalStudentId);
+            if (importState != null && importState.getContentHash().equals(hash)) {
+                continue; // unchanged since last import
+            }
+            if (hash.equals(unfinishedGradingHashes.get(externalStudentId))) {
+                continue; // unchanged and still waiting for a manual mapping
+            }
+            changedHandIns.put(handIn, hash);
+        }
+        return changedHandIns;
+    }
 
+    /**
+     * Saves the gradings of the given hand-ins, records their content hash and publishes their progress.
+     *
+     * @return number of gradings which were imported
+     */
+    private int importHandIns(final UUID assignmentId, final Map<JSONObject, String> changedHandIns,
+                              final List<UserInfo> meitrexStudentInfoList) {
+        final AssignmentEntity assignment = assignmentService.requireAssignmentExists(assignmentId);
+
+        final List<ContentProgressedEvent> progressEvents = new ArrayList<>(changedHandIns.size());
+        for (final Map.Entry<JSONObject, String> changedHandIn : changedHandIns.entrySet()) {
+            final JSONObject handIn = changedHandIn.getKey();
+            final GradingEntity gradingEntity;
+            try {
+                gradingEntity = parseIntoGradingEntity(handIn, assignment, meitrexStudentInfoList);
+            } catch (ManualMappingRequiredException | ExternalPlatformConnectionException e) {
+                // added to the unfinished grading repository, will be tried again after manual mapping
+                continue;
+            } catch (ValidationException e) {
+                log.warn("Skipping grading of external student {} for assignment {}: {}",
+                        handIn.getString("studentId"), assignmentId, e.getMessage());
+                continue;
+            }
+
+            gradingRepository.save(gradingEntity);
+            progressEvents.add(createGradingImportedEvent(gradingEntity));
+            recordImportState(assignmentId, handIn.getString("studentId"), changedHandIn.getValue());
+        }
+        publishProgressEvents(progressEvents);
+        return progressEvents.size();
+    }
+
+    /**
+     * Stores the content hash of the imported hand-in, so that the next import skips it while it is unchanged.
+     */
+    private void recordImportState(final UUID assignmentId, final String externalStudentId, final String contentHash) {
+        gradingImportStateRepository.save(new GradingImportStateEntity(
+                new GradingImportStateEntity.PrimaryKey(assignmentId, externalStudentId),
+                contentHash,
+                OffsetDateTime.now()));
+    }
+
+    /**
+     * Requests all hand-ins of one assignment from the external system (TMS).
+     *
+     * @param externalId id of the assignment in the external system
+     * @return JSON Array containing the hand-ins as string
+     */
+    private String fetchHandInsFromExternalSystem(final String externalId) {
         String body;
         CompletableFuture<String> response;
         try (HttpClient client = HttpClient.newBuilder().build()) {
@@ -468,40 +1253,7 @@ public class GradingService {
                     new ExternalPlatformConnectionException("Querying gradings for externalAssignmentId %s went wrong.".formatted(externalId))); // wrapping exception
             // return; TODO return or throw wrapped exception?
         }
-
-        List<GradingEntity> gradingEntityList = parseStringIntoGradingEntityList(body, assignment, meitrexStudentInfoList);
-
-        for (GradingEntity gradingEntity : gradingEntityList) {
-            gradingRepository.save(gradingEntity);
-            logGradingImported(gradingEntity);
-        }
-
-    }
-
-    /**
-     * Parses a JSON String to a list of grading entities.
-     *
-     * @param string JSON Array containing a list of TMS-gradings
-     * @param assignmentEntity the assignment id which the gradings belong to
-     * @param meitrexStudentInfoList list of all user infos, passed down for matching ids
-     * @return List of parsed grading entities
-     */
-    private List<GradingEntity> parseStringIntoGradingEntityList(final String string, final AssignmentEntity assignmentEntity, final List<UserInfo> meitrexStudentInfoList) {
-        JSONArray gradingArray = new JSONArray(string);
-        final List<GradingEntity> gradingEntityList = new ArrayList<>(gradingArray.length());
-        GradingEntity gradingEntity;
-        for (int i = 0; i < gradingArray.length(); i++) {
-            JSONObject jsonObject = gradingArray.getJSONObject(i);
-            try {
-                gradingEntity = parseIntoGradingEntity(jsonObject, assignmentEntity, meitrexStudentInfoList);
-                gradingEntityList.add(gradingEntity);
-            } catch (ManualMappingRequiredException e) {
-                // fine, will be handled by manual mapping of admin
-            } catch (ExternalPlatformConnectionException e) {
-                // can't be handled further, will be tried again when manual mapping happened
-            }
-        }
-        return gradingEntityList;
+        return body;
     }
 
     /**
@@ -591,7 +1343,7 @@ public class GradingService {
     /**
      * If a grading could not be imported (e.g. because the corresponding meitrex user could not be found),
      * it is added to the unfinished grading repository, so that it can be tried again later. <br>
-     * Also increments the number of tries, if the grading has been tried before.
+     * Also updates the stored grading and increments the number of tries, if the grading has been tried before.
      *
      * @param jsonObject JSON Object representing a grading (the way it was received from the external system)
      * @param assignmentEntity meitrex assignment entity for which the grading is
@@ -603,6 +1355,8 @@ public class GradingService {
         Optional<UnfinishedGradingEntity> foundEntityOptional = unfinishedGradingRepository.findById(new UnfinishedGradingEntity.PrimaryKey(externalStudentId, assignmentEntity.getAssessmentId()));
         if (foundEntityOptional.isPresent()) {
             unfinishedGradingEntity = foundEntityOptional.get();
+            // the stored grading is compared with the next import, so it must be the current one
+            unfinishedGradingEntity.setGradingJson(jsonObject.toString());
             unfinishedGradingEntity.incrementNumberOfTries();
         } else {
             unfinishedGradingEntity = UnfinishedGradingEntity.fromJson(jsonObject, assignmentEntity.getAssessmentId());
@@ -612,11 +1366,30 @@ public class GradingService {
 
 
     /**
-     * Takes gradingEntity and publishes the {@link ContentProgressedEvent} to the dapr pubsub.
+     * Publishes the progress events of multiple students at once and logs the events which could not be published.
+     *
+     * @param progressEvents the events to publish
+     * @return the result of the publishing
+     */
+    private BulkPublishResult<ContentProgressedEvent> publishProgressEvents(final List<ContentProgressedEvent> progressEvents) {
+        if (progressEvents.isEmpty()) {
+            return BulkPublishResult.allPublished(0);
+        }
+        final BulkPublishResult<ContentProgressedEvent> result = eventPublisher.notifyUsersWorkedOnContent(progressEvents);
+        for (final BulkPublishResult.FailedEvent<ContentProgressedEvent> failedEvent : result.failedEvents()) {
+            log.error("Failed to publish progress of student {} for assignment {}: {}",
+                    failedEvent.event().getUserId(), failedEvent.event().getContentId(), failedEvent.errorMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Takes gradingEntity and creates the {@link ContentProgressedEvent} for it.
      *
      * @param gradingEntity gradingEntity containing all information
+     * @return the progress event of the student
      */
-    private void logGradingImported(final GradingEntity gradingEntity) {
+    private ContentProgressedEvent createGradingImportedEvent(final GradingEntity gradingEntity) {
         final AssignmentEntity assignmentEntity = assignmentService.requireAssignmentExists(gradingEntity.getId().getAssessmentId());
         assignmentValidator.validateGradingEntityFitsAssignmentEntity(assignmentEntity, gradingEntity);
 
@@ -629,19 +1402,19 @@ public class GradingService {
         final double correctness = totalCredits == 0 ? 1.0f : achievedCredits / totalCredits;
 
         // create Responses for each exercise and subexercise
-        final List<Response> responses = new ArrayList<>();
+        final AssignmentCreditIndex creditIndex = assignmentEntity.creditIndex();
+        final List<Response> responses = new ArrayList<>(gradingEntity.getExerciseGradings().size());
         for (final ExerciseGradingEntity exerciseGradingEntity : gradingEntity.getExerciseGradings()) {
             final UUID exerciseId = exerciseGradingEntity.getPrimaryKey().getItemId();
-            final ExerciseEntity exerciseEntity = assignmentService.findExerciseEntityInAssignmentEntity(exerciseId, assignmentEntity);
-            final double totalExerciseCredits = exerciseEntity.getTotalExerciseCredits();
+            final int exerciseSlot = creditIndex.exerciseSlot(exerciseId);
+            final double totalExerciseCredits = creditIndex.totalCredits(exerciseSlot);
             final float achievedExercisePercentage = totalExerciseCredits == 0 ? 1.0f : (float) (exerciseGradingEntity.getAchievedCredits() / totalExerciseCredits);
             final Response exerciseResponse = new Response(exerciseId, achievedExercisePercentage);
             responses.add(exerciseResponse);
 
             for (final SubexerciseGradingEntity subexerciseGradingEntity : exerciseGradingEntity.getSubexerciseGradings()) {
                 final UUID subexerciseId = subexerciseGradingEntity.getPrimaryKey().getItemId();
-                final SubexerciseEntity subexerciseEntity = assignmentService.findSubexerciseEntityInExerciseEntity(subexerciseId, exerciseEntity);
-                final double totalSubexerciseCredits = subexerciseEntity.getTotalSubexerciseCredits();
+                final double totalSubexerciseCredits = creditIndex.totalCredits(creditIndex.subexerciseSlot(exerciseSlot, subexerciseId));
                 final float achievedSubexercisePercentage = totalSubexerciseCredits == 0 ? 1.0f : (float) (subexerciseGradingEntity.getAchievedCredits() / totalSubexerciseCredits);
                 final Response subexerciseResponse = new Response(subexerciseId, achievedSubexercisePercentage);
                 responses.add(subexerciseResponse);
@@ -660,8 +1433,7 @@ public class GradingService {
                 .responses(responses)
                 .build();
 
-        // publish new user progress event message
-        topicPublisher.notifyUserWorkedOnContent(userProgressLogEvent);
+        return userProgressLogEvent;
     }
 
     /**
@@ -790,50 +1562,56 @@ public class GradingService {
      * @param currentUser current logged-in user
      * @return returns all the newly mapped external student ids (without purpose)
      */
+    @Transactional
     public List<String> saveStudentMappings(final UUID courseId, final List<StudentMappingInput> studentMappingInputs, final LoggedInUser currentUser) {
-        try {
-            validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.ADMINISTRATOR, courseId);
-        } catch (final NoAccessToCourseException ex) {
-            return null;
-        }
+        try (AssignmentLookupScope ignored = AssignmentLookupScope.open()) {
+            try {
+                validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.ADMINISTRATOR, courseId);
+            } catch (final NoAccessToCourseException ex) {
+                return null;
+            }
 
-        // deletes all the external ids that have just been mapped from the manualMappingInstance-repo
-        List<String> externalStudentIdList = studentMappingInputs.stream().map(StudentMappingInput::getExternalStudentId).toList();
-        manualMappingInstanceRepository.deleteAllById(externalStudentIdList);
+            // deletes all the external ids that have just been mapped from the manualMappingInstance-repo
+            List<String> externalStudentIdList = studentMappingInputs.stream().map(StudentMappingInput::getExternalStudentId).toList();
+            manualMappingInstanceRepository.deleteAllById(externalStudentIdList);
 
-        // saves the new student mappings to the studentMapping-repo
-        List<StudentMappingEntity> entityList = new ArrayList<>();
-        for (final StudentMappingInput studentMappingInput : studentMappingInputs) {
-            entityList.add(assignmentMapper.studentMappingInputToEntity(studentMappingInput));
+            // saves the new student mappings to the studentMapping-repo
+            List<StudentMappingEntity> entityList = new ArrayList<>();
+            for (final StudentMappingInput studentMappingInput : studentMappingInputs) {
+                entityList.add(assignmentMapper.studentMappingInputToEntity(studentMappingInput));
+            }
+            studentMappingRepository.saveAll(entityList);
+
+            // first only the ones in the course are tried
+            // mainly because it's faster
+            // but also because an admin might be able to match more students in the current course
+            final List<ContentProgressedEvent> progressEvents = new ArrayList<>(retryUnfinishedGradingsInCourse(courseId));
+            // then all remaining
+            progressEvents.addAll(retryAllUnfinishedGradings());
+            publishProgressEvents(progressEvents);
+
+            // returns all the newly mapped external student ids (with no real purpose, only because graphql doesn't allow void)
+            return externalStudentIdList;
         }
-        studentMappingRepository.saveAll(entityList);
-
-        // first only the ones in the course are tried
-        // mainly because it's faster
-        // but also because an admin might be able to match more students in the current course
-        retryUnfinishedGradingsInCourse(courseId);
-        // then all remaining
-        retryAllUnfinishedGradings();
-
-        // returns all the newly mapped external student ids (with no real purpose, only because graphql doesn't allow void)
-        return externalStudentIdList;
     }
 
     /**
      * Retries parsing unfinishedGradingEntities in the given course
      * @param courseId the current course
+     * @return the progress events of the imported gradings, to be published at once by the caller
      */
-    private void retryUnfinishedGradingsInCourse(UUID courseId) {
+    private List<ContentProgressedEvent> retryUnfinishedGradingsInCourse(UUID courseId) {
         // retries parsing unfinishedGradingEntities in the current course
         final List<UserInfo> meitrexStudentInfoList;
         try {
             meitrexStudentInfoList = getMeitrexStudentInfoList(courseId);
         } catch (UserServiceConnectionException | CourseServiceConnectionException e){
             // throw new RuntimeException(e); // wrapping exception
-            return; // TODO return or throw wrapped exception?
+            return List.of(); // TODO return or throw wrapped exception?
         }
 
         List<UnfinishedGradingEntity> unfinishedGradingEntityList = unfinishedGradingRepository.findAll();
+        final List<ContentProgressedEvent> progressEvents = new ArrayList<>();
         for (final UnfinishedGradingEntity unfinishedGradingEntity : unfinishedGradingEntityList) {
             JSONObject jsonObject = new JSONObject(unfinishedGradingEntity.getGradingJson());
             AssignmentEntity assignmentEntity = assignmentService.requireAssignmentExists(unfinishedGradingEntity.getId().getAssignmentId());
@@ -844,8 +1622,10 @@ public class GradingService {
                     GradingEntity gradingEntity = parseIntoGradingEntity(jsonObject, assignmentEntity, meitrexStudentInfoList);
                     // should not throw anything
                     gradingRepository.save(gradingEntity);
-                    logGradingImported(gradingEntity);
+                    progressEvents.add(createGradingImportedEvent(gradingEntity));
                     unfinishedGradingRepository.deleteById(unfinishedGradingEntity.getId());
+                    recordImportState(assignmentEntity.getId(), unfinishedGradingEntity.getId().getExternalStudentId(),
+                            ContentHash.sha256HexOfJson(jsonObject.toMap()));
                 } catch (ManualMappingRequiredException | ExternalPlatformConnectionException e){
                     // if something goes wrong, unfinished gradings will be added to repo again
                     unfinishedGradingEntity.incrementNumberOfTries();
@@ -853,17 +1633,21 @@ public class GradingService {
                 }
             }
         }
+        return progressEvents;
     }
 
 
     /**
      * Retries parsing all unfinished gradings.
      * Might be slow because user infos need to be queried for every grading.
+     *
+     * @return the progress events of the imported gradings, to be published at once by the caller
      */
-    private void retryAllUnfinishedGradings() {
+    private List<ContentProgressedEvent> retryAllUnfinishedGradings() {
         List<UserInfo> meitrexStudentInfoList;
 
         List<UnfinishedGradingEntity> unfinishedGradingEntityList = unfinishedGradingRepository.findAll();
+        final List<ContentProgressedEvent> progressEvents = new ArrayList<>();
 
         for (final UnfinishedGradingEntity unfinishedGradingEntity : unfinishedGradingEntityList) {
             JSONObject jsonObject = new JSONObject(unfinishedGradingEntity.getGradingJson());
@@ -876,8 +1660,10 @@ public class GradingService {
                 GradingEntity gradingEntity = parseIntoGradingEntity(jsonObject, assignmentEntity, meitrexStudentInfoList);
                 // should not throw anything
                 gradingRepository.save(gradingEntity);
-                logGradingImported(gradingEntity);
+                progressEvents.add(createGradingImportedEvent(gradingEntity));
                 unfinishedGradingRepository.deleteById(unfinishedGradingEntity.getId());
+                recordImportState(assignmentEntity.getId(), unfinishedGradingEntity.getId().getExternalStudentId(),
+                        ContentHash.sha256HexOfJson(jsonObject.toMap()));
             } catch (UserServiceConnectionException | CourseServiceConnectionException |
                      ManualMappingRequiredException | ExternalPlatformConnectionException e){
                 // if something goes wrong, unfinished gradings will be added to repo again
@@ -885,6 +1671,7 @@ public class GradingService {
                 unfinishedGradingRepository.save(unfinishedGradingEntity);
             }
         }
+        return progressEvents;
     }
 
     /**
@@ -960,7 +1747,7 @@ public class GradingService {
     }
     
     /**
-     * Publishes a StudentCodeSubmittedEvent to the Dapr topic.
+     * Creates the StudentCodeSubmittedEvent to publish to the Dapr topic.
      * This event will contain the student's code submission including all source files.
      * 
      * NOTE: This assumes that a StudentCodeSubmittedEvent class exists in the common module
@@ -976,9 +1763,10 @@ public class GradingService {
      * - branch: String
      *
      * @param codeSubmission the student code submission containing all files and metadata
+     * @return the event
      */
-    private void publishStudentCodeSubmittedEvent(de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.StudentCodeSubmission codeSubmission) {
-        log.info("Publishing StudentCodeSubmittedEvent for student {} on assignment {} (total files: {})", 
+    private StudentCodeSubmittedEvent createStudentCodeSubmittedEvent(de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.StudentCodeSubmission codeSubmission) {
+        log.info("Creating StudentCodeSubmittedEvent for student {} on assignment {} (total files: {})", 
                 codeSubmission.getStudentId(), 
                 codeSubmission.getAssignmentId(),
                 codeSubmission.getFiles().size());
@@ -994,13 +1782,12 @@ public class GradingService {
                 .branch(codeSubmission.getBranch())
                 .build();
         
-        topicPublisher.notifyStudentCodeSubmitted(event);
-        
         log.debug("Code submission details: repository={}, commit={}, branch={}, files={}", 
                 codeSubmission.getRepositoryUrl(),
                 codeSubmission.getCommitSha(),
                 codeSubmission.getBranch(),
                 codeSubmission.getFiles().keySet());
+        return event;
     }
 
 }
@@ -0,0 +1,66 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import de.unistuttgart.iste.meitrex.generated.dto.Grading;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Broadcasts updated gradings to the subscribers of their assignment.
+ * <p>
+ * Each assignment with subscribers has its own sink, so an update is only offered to the subscribers of its
+ * assignment, and idle subscribers cost nothing but their subscription. The sink of an assignment is removed when
+ * its last subscriber is gone. Updates are delivered best effort: a subscriber which can't keep up misses updates
+ * instead of slowing down the others.
+ */
+@Component
+public class GradingUpdateBroadcaster {
+
+    private final Map<UUID, Channel> channelsByAssessmentId = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the updates of the gradings of the given assignment, starting with the next update.
+     *
+     * @param assessmentId id of the assignment
+     * @return the updated gradings
+     */
+    public Flux<Grading> gradingUpdates(final UUID assessmentId) {
+        return Flux.defer(() -> {
+            // the subscriber is counted while the channel can't be removed concurrently
+            final Channel channel = channelsByAssessmentId.compute(assessmentId, (id, existingChannel) -> {
+                final Channel subscribedChannel = existingChannel != null ? existingChannel : new Channel();
+                subscribedChannel.subscribers++;
+                return subscribedChannel;
+            });
+            return channel.sink.asFlux()
+                    .doFinally(signal -> channelsByAssessmentId.computeIfPresent(assessmentId,
+                            (id, subscribedChannel) -> --subscribedChannel.subscribers == 0 ? null : subscribedChannel));
+        });
+    }
+
+    /**
+     * Sends the updated grading to the subscribers of its assignment.
+     *
+     * @param grading the updated grading
+     */
+    public void publish(final Grading grading) {
+        final Channel channel = channelsByAssessmentId.get(grading.getAssessmentId());
+        if (channel == null) {
+            return; // nobody is subscribed
+        }
+        // a sink must not be emitted to concurrently
+        synchronized (channel) {
+            channel.sink.tryEmitNext(grading);
+        }
+    }
+
+    private static final class Channel {
+        private final Sinks.Many<Grading> sink = Sinks.many().multicast().directBestEffort();
+        // only modified while the channel is locked by the map
+        private int subscribers;
+    }
+}
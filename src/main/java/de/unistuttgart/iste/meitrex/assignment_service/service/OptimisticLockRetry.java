@@ -0,0 +1,65 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs read-modify-write operations on versioned entities in their own transaction and repeats them if a concurrent
+ * modification was detected, so that concurrent edits don't overwrite each other and don't need a lock.
+ * <p>
+ * The operation has to load the entities it modifies itself, so that a repeated attempt works on the current state.
+ * If a transaction is already active, the operation joins it and is not repeated, because the outer transaction
+ * can't be continued after a conflict.
+ */
+@Slf4j
+@Component
+public class OptimisticLockRetry {
+
+    private final TransactionOperations transactionOperations;
+    private final int maxAttempts;
+
+    @Autowired
+    public OptimisticLockRetry(final PlatformTransactionManager transactionManager,
+                               @Value("${assignment.mutation.max_attempts:5}") final int maxAttempts) {
+        this(new TransactionTemplate(transactionManager), maxAttempts);
+    }
+
+    public OptimisticLockRetry(final TransactionOperations transactionOperations, final int maxAttempts) {
+        this.transactionOperations = transactionOperations;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Executes the operation, repeating it if it fails because of a concurrent modification.
+     *
+     * @param operation the operation
+     * @param <T>       the result type of the operation
+     * @return the result of the operation
+     * @throws OptimisticLockingFailureException if the operation still conflicts after the maximum number of attempts
+     */
+    public <T> T execute(final Supplier<T> operation) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return operation.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionOperations.execute(status -> operation.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.debug("Concurrent modification detected, repeating operation (attempt {} of {}): {}",
+                        attempt + 1, maxAttempts, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.CodeAssignmentGradingMetadataEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradingEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers which progress was last published for a code assignment grading, so that reading the gradings
+ * does not publish the same ContentProgressedEvent again and again.
+ * <p>
+ * The last published progress is kept in memory and persisted in the {@link CodeAssignmentGradingMetadataEntity},
+ * which is used as fallback if the progress is not in memory, e.g. after a restart.
+ */
+@Component
+public class ProgressPublicationTracker {
+
+    private final Map<GradingEntity.PrimaryKey, PublishedProgress> lastPublished;
+
+    public ProgressPublicationTracker(@Value("${progress_tracker.max_entries:100000}") final int maxEntries) {
+        this.lastPublished = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<GradingEntity.PrimaryKey, PublishedProgress> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Checks whether the progress of the grading differs from the last published one.
+     *
+     * @param gradingEntity   the grading
+     * @param achievedCredits the achieved credits which would be published
+     * @param totalCredits    the total credits of the assignment
+     * @return true if the progress was not published yet
+     */
+    public boolean hasChanged(final GradingEntity gradingEntity, final double achievedCredits, final double totalCredits) {
+        final PublishedProgress current = new PublishedProgress(achievedCredits, totalCredits, commitShaOf(gradingEntity));
+
+        PublishedProgress published = lastPublished.get(gradingEntity.getPrimaryKey());
+        if (published == null) {
+            published = persistedProgressOf(gradingEntity);
+            if (published != null) {
+                lastPublished.put(gradingEntity.getPrimaryKey(), published);
+            }
+        }
+        return !current.equals(published);
+    }
+
+    /**
+     * Records that the progress of the grading was published. The progress is persisted in the metadata of the
+     * grading (as part of the current transaction) and kept in memory once the transaction is committed.
+     *
+     * @param gradingEntity   the grading
+     * @param achievedCredits the published achieved credits
+     * @param totalCredits    the published total credits
+     */
+    public void markPublished(final GradingEntity gradingEntity, final double achievedCredits, final double totalCredits) {
+        final PublishedProgress progress = new PublishedProgress(achievedCredits, totalCredits, commitShaOf(gradingEntity));
+
+        final CodeAssignmentGradingMetadataEntity metadata = gradingEntity.getCodeAssignmentGradingMetadata();
+        if (metadata != null) {
+            metadata.setLastPublishedAchievedCredits(progress.achievedCredits());
+            metadata.setLastPublishedTotalCredits(progress.totalCredits());
+            metadata.setLastPublishedCommitSha(progress.commitSha());
+        }
+
+        final GradingEntity.PrimaryKey key = gradingEntity.getPrimaryKey();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // if the transaction is rolled back, the progress must be published again
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    lastPublished.put(key, progress);
+                }
+            });
+        } else {
+            lastPublished.put(key, progress);
+        }
+    }
+
+    private static String commitShaOf(final GradingEntity gradingEntity) {
+        final CodeAssignmentGradingMetadataEntity metadata = gradingEntity.getCodeAssignmentGradingMetadata();
+        return metadata == null ? null : metadata.getLastProcessedCommitSha();
+    }
+
+    private static PublishedProgress persistedProgressOf(final GradingEntity gradingEntity) {
+        final CodeAssignmentGradingMetadataEntity metadata = gradingEntity.getCodeAssignmentGradingMetadata();
+        if (metadata == null || metadata.getLastPublishedAchievedCredits() == null) {
+            return null;
+        }
+        return new PublishedProgress(metadata.getLastPublishedAchievedCredits(),
+                metadata.getLastPublishedTotalCredits(), metadata.getLastPublishedCommitSha());
+    }
+
+    private record PublishedProgress(Double achievedCredits, Double totalCredits, String commitSha) {
+    }
+}
@@ -0,0 +1,72 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Coalesces concurrent executions of the same operation, so that e.g. several users refreshing the same repository
+ * at once cause only one call to the external platform.
+ * <p>
+ * The first caller of a key executes the operation, callers with the same key arriving while it is in flight wait for
+ * it and get its result or exception. Results are not cached, a caller arriving afterwards executes the operation
+ * again.
+ */
+@Component
+public class SingleFlight {
+
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlightByKey = new ConcurrentHashMap<>();
+
+    /**
+     * Executes the operation, unless an operation with the same key is already in flight, in which case its result
+     * is returned instead.
+     *
+     * @param key       identifies the operation and its arguments, e.g. the kind of call and the repository
+     * @param operation the operation, has to throw the same exceptions for all callers of the key
+     * @param <T>       the result type of the operation
+     * @param <E>       the checked exception thrown by the operation
+     * @return the result of the operation
+     * @throws E if the operation failed
+     */
+    @SuppressWarnings("unchecked")
+    public <T, E extends Exception> T execute(final Object key, final Operation<T, E> operation) throws E {
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        final CompletableFuture<Object> inFlight = inFlightByKey.putIfAbsent(key, future);
+        if (inFlight != null) {
+            try {
+                return (T) inFlight.join();
+            } catch (CompletionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (cause instanceof Error error) {
+                    throw error;
+                }
+                throw (E) cause;
+            }
+        }
+
+        try {
+            final T result = operation.execute();
+            future.complete(result);
+            return result;
+        } catch (final Throwable t) {
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlightByKey.remove(key, future);
+        }
+    }
+
+    /**
+     * An operation which may throw a checked exception.
+     */
+    @FunctionalInterface
+    public interface Operation<T, E extends Exception> {
+        T execute() throws E;
+    }
+}
@@ -0,0 +1,51 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.AssignmentRepository;
+import de.unistuttgart.iste.meitrex.generated.dto.AssignmentType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Periodically imports the gradings of all assignments which are mapped to an assignment in the external system (TMS).
+ * Only hand-ins which changed since the last run are written and published, see
+ * {@link GradingService#importChangedGradingsForAssignment(UUID)}.
+ * <br>
+ * Code assignments are skipped, their external id refers to GitHub Classroom and not to the TMS.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "external_system.import.enabled", havingValue = "true")
+public class TmsGradingImportScheduler {
+
+    private final AssignmentRepository assignmentRepository;
+    private final GradingService gradingService;
+
+    @Scheduled(cron = "${external_system.import.cron:0 */15 * * * *}")
+    public void importChangedGradings() {
+        final List<UUID> assignmentIds = assignmentRepository
+                .findAllByExternalIdIsNotNullAndAssignmentTypeNot(AssignmentType.CODE_ASSIGNMENT).stream()
+                .map(AssignmentEntity::getId)
+                .toList();
+
+        int importedCount = 0;
+        for (final UUID assignmentId : assignmentIds) {
+            try {
+                importedCount += gradingService.importChangedGradingsForAssignment(assignmentId);
+            } catch (RuntimeException e) {
+                // one failing assignment must not stop the import of the others, it is tried again in the next run
+                log.error("Scheduled grading import failed for assignment {}: {}", assignmentId, e.toString());
+            }
+        }
+
+        log.info("Scheduled grading import finished: {} assignments checked, {} gradings imported",
+                assignmentIds.size(), importedCount);
+    }
+}
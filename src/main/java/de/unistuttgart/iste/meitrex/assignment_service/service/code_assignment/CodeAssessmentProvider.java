@@ -7,6 +7,7 @@ import de.unistuttgart.iste.meitrex.user_service.exception.UserServiceConnection
 import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Defines the contract for integrating with external code assessment platforms (e.g., GitHub Classroom).
@@ -58,7 +59,7 @@ public interface CodeAssessmentProvider {
     /**
      * Locates the student's repository for the given assignment.
      *
-     * @param assignmentName the name of the assignment
+     * @param assignmentName the name of the assignment, or its slug as returned by {@link #getAssignmentSlug(String)}
      * @param organizationName the name of the organization (e.g., GitHub organization) used to find the repository
      * @param currentUser the user performing the lookup; must be a STUDENT in the external course
      * @throws ExternalPlatformConnectionException if the external platform is unreachable or returns an error
@@ -67,16 +68,54 @@ public interface CodeAssessmentProvider {
     String findRepository(String assignmentName, String organizationName, LoggedInUser currentUser)
             throws ExternalPlatformConnectionException, UserServiceConnectionException;
 
+    /**
+     * Finds the repositories of all students who accepted the given assignment at once.
+     *
+     * @param externalAssignmentId the identifier of the assignment on the external platform
+     * @param currentUser          the user performing the lookup; must be an ADMIN in the external course
+     * @return map from the external username of a student to the link of their repository
+     * @throws ExternalPlatformConnectionException if the external platform is unreachable or returns an error
+     * @throws UserServiceConnectionException      if user-related data cannot be resolved
+     */
+    Map<String, String> findRepositories(String externalAssignmentId, LoggedInUser currentUser)
+            throws ExternalPlatformConnectionException, UserServiceConnectionException;
+
+    /**
+     * Converts the name of an assignment into the identifier the external platform derives from it,
+     * e.g. the prefix of the students' repository names.
+     *
+     * @param assignmentName the name of the assignment
+     * @return the slug of the assignment
+     */
+    String getAssignmentSlug(String assignmentName);
+
+    /**
+     * Retrieves the latest grading information for a single student's submission based on the given repository link.
+     *
+     * @param repoLink    the link to the student's GitHub repository (or other external platform)
+     * @param currentUser the user performing the lookup; must be a STUDENT in the external course
+     * @return an {@link ExternalGrading} result for the student
+     * @throws ExternalPlatformConnectionException if the external platform is unreachable or returns an error
+     * @throws UserServiceConnectionException      if user-related data cannot be resolved
+     */
+    default ExternalGrading syncGradeForStudent(String repoLink, LoggedInUser currentUser)
+            throws ExternalPlatformConnectionException, UserServiceConnectionException {
+        return syncGradeForStudent(repoLink, currentUser, null);
+    }
+
     /**
      * Retrieves the latest grading information for a single student's submission based on the given repository link.
+     * If the latest run of the external system is the run the given last grading was read from, the result of that
+     * grading is reused instead of being read again.
      *
      * @param repoLink    the link to the student's GitHub repository (or other external platform)
      * @param currentUser the user performing the lookup; must be a STUDENT in the external course
+     * @param lastGrading the grading read at the last sync, or null if there is none
      * @return an {@link ExternalGrading} result for the student
      * @throws ExternalPlatformConnectionException if the external platform is unreachable or returns an error
      * @throws UserServiceConnectionException      if user-related data cannot be resolved
      */
-    ExternalGrading syncGradeForStudent(String repoLink, LoggedInUser currentUser)
+    ExternalGrading syncGradeForStudent(String repoLink, LoggedInUser currentUser, ExternalGrading lastGrading)
             throws ExternalPlatformConnectionException, UserServiceConnectionException;
 
     /**
@@ -2,6 +2,10 @@ package de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment;
 
 import java.time.OffsetDateTime;
 
+/**
+ * @param runId identifies the run of the external system the grading was read from, e.g. the workflow run
+ *              (and attempt) on GitHub; null if unknown
+ */
 public record ExternalGrading(
         String externalUsername, 
         String status, 
@@ -9,5 +13,16 @@ public record ExternalGrading(
         String tableHtml, 
         Double achievedPoints, 
         Double totalPoints,
-        String commitSha) {
-}
\ No newline at end of file
+        String commitSha,
+        String runId) {
+
+    public ExternalGrading(String externalUsername,
+                           String status,
+                           OffsetDateTime date,
+                           String tableHtml,
+                           Double achievedPoints,
+                           Double totalPoints,
+                           String commitSha) {
+        this(externalUsername, status, date, tableHtml, achievedPoints, totalPoints, commitSha, null);
+    }
+}
@@ -0,0 +1,89 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradingEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Applies the gradings of an external code assessment platform (e.g. GitHub Classroom) to the stored gradings
+ * of an assignment.
+ * <p>
+ * External gradings are indexed by external username, so that reconciling is linear in the number of students.
+ * Only gradings whose achieved credits or date actually differ are modified and returned for saving.
+ */
+@Component
+public class ExternalGradingReconciler {
+
+    /**
+     * Indexes the external gradings by external username. If there are multiple gradings for one username,
+     * the first one is used.
+     *
+     * @param externalGradings the gradings from the external platform
+     * @return map from external username to external grading
+     */
+    public Map<String, ExternalGrading> indexByExternalUsername(final List<ExternalGrading> externalGradings) {
+        final Map<String, ExternalGrading> index = HashMap.newHashMap(externalGradings.size());
+        for (final ExternalGrading externalGrading : externalGradings) {
+            if (externalGrading.externalUsername() != null) {
+                index.putIfAbsent(externalGrading.externalUsername(), externalGrading);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Updates the achieved credits and date of the given gradings from the matching external gradings.
+     *
+     * @param gradings                 the stored gradings of the assignment
+     * @param externalGradingsByUsername external gradings indexed by external username,
+     *                                 see {@link #indexByExternalUsername(List)}
+     * @param userIdToExternalId       map from MEITREX user id to external username
+     * @return the modified gradings and statistics
+     */
+    public ReconciliationResult reconcile(final List<GradingEntity> gradings,
+                                          final Map<String, ExternalGrading> externalGradingsByUsername,
+                                          final Map<UUID, String> userIdToExternalId) {
+        final List<GradingEntity> changedGradings = new ArrayList<>();
+        int unchangedCount = 0;
+        int unmatchedCount = 0;
+
+        for (final GradingEntity gradingEntity : gradings) {
+            final String externalUsername = userIdToExternalId.get(gradingEntity.getPrimaryKey().getStudentId());
+            final ExternalGrading externalGrading = externalUsername == null ? null : externalGradingsByUsername.get(externalUsername);
+            if (externalGrading == null) {
+                unmatchedCount++;
+                continue;
+            }
+
+            if (applyChanges(gradingEntity, externalGrading)) {
+                changedGradings.add(gradingEntity);
+            } else {
+                unchangedCount++;
+            }
+        }
+        return new ReconciliationResult(changedGradings, unchangedCount, unmatchedCount);
+    }
+
+    private boolean applyChanges(final GradingEntity gradingEntity, final ExternalGrading externalGrading) {
+        boolean changed = false;
+        if (!Objects.equals(gradingEntity.getAchievedCredits(), externalGrading.achievedPoints())) {
+            gradingEntity.setAchievedCredits(externalGrading.achievedPoints());
+            changed = true;
+        }
+        if (!isSameInstant(gradingEntity.getDate(), externalGrading.date())) {
+            gradingEntity.setDate(externalGrading.date());
+            changed = true;
+        }
+        return changed;
+    }
+
+    // dates loaded from the database may have a different offset than the ones of the external platform
+    private static boolean isSameInstant(final OffsetDateTime first, final OffsetDateTime second) {
+        if (first == null || second == null) {
+            return first == second;
+        }
+        return first.isEqual(second);
+    }
+}
@@ -14,6 +14,7 @@ import de.unistuttgart.iste.meitrex.user_service.client.UserServiceClient;
 import de.unistuttgart.iste.meitrex.generated.dto.AccessToken;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
@@ -21,11 +22,13 @@ import org.springframework.stereotype.Component;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -75,6 +78,10 @@ public class GithubClassroom implements CodeAssessmentProvider {
     private static final String TOKEN_PREFIX = "Bearer ";
     private static final String ACCEPT_HEADER_JSON = "application/vnd.github+json";
     private static final String ACCEPT_HEADER_HTML = "application/vnd.github.html+json";
+    // maximum page size of the GitHub API
+    private static final int PAGE_SIZE = 100;
+    // name of the job of the GitHub Classroom workflow which runs the tests and reports the points
+    private static final String AUTOGRADING_JOB_NAME = "run-autograding-tests";
     private final String basePath;
     private final HttpClient client = HttpClient.newBuilder()
             .followRedirects(HttpClient.Redirect.ALWAYS)
@@ -82,13 +89,31 @@ public class GithubClassroom implements CodeAssessmentProvider {
     private final UserServiceClient userServiceClient;
     private final AssignmentRepository assignmentRepository;
     private final ExternalCodeAssignmentRepository externalCodeAssignmentRepository;
+    // whether only the log of the autograding job is downloaded instead of the archive with the logs of all jobs
+    private final boolean fetchJobLogOnly;
 
+    /**
+     * Creates a GitHub Classroom integration which reads the grading from the logs archive of the workflow runs.
+     */
+    public GithubClassroom(UserServiceClient userServiceClient, AssignmentRepository assignmentRepository,
+                           ExternalCodeAssignmentRepository externalCodeAssignmentRepository, String basePath) {
+        this(userServiceClient, assignmentRepository, externalCodeAssignmentRepository, basePath, "archive");
+    }
+
+    /**
+     * @param workflowLogMode {@code job} to download only the log of the autograding job, falling back to the logs
+     *                        archive if it can't be found, or {@code archive} to always download the logs archive
+     */
+    @Autowired
     public GithubClassroom(UserServiceClient userServiceClient, AssignmentRepository assignmentRepository,
-                           ExternalCodeAssignmentRepository externalCodeAssignmentRepository, @Value("${github.api_basePath:https://api.github.com}") String basePath) {
+                           ExternalCodeAssignmentRepository externalCodeAssignmentRepository,
+                           @Value("${github.api_basePath:https://api.github.com}") String basePath,
+                           @Value("${github.workflow_log_mode:job}") String workflowLogMode) {
         this.userServiceClient = userServiceClient;
         this.assignmentRepository = assignmentRepository;
         this.externalCodeAssignmentRepository = externalCodeAssignmentRepository;
         this.basePath = basePath;
+        this.fetchJobLogOnly = "job".equalsIgnoreCase(workflowLogMode);
     }
 
     @Override
@@ -293,7 +318,7 @@ public class GithubClassroom implements CodeAssessmentProvider {
         }
     }
 
-    public ExternalGrading syncGradeForStudent(String repoLink, LoggedInUser currentUser)
+    public ExternalGrading syncGradeForStudent(String repoLink, LoggedInUser currentUser, ExternalGrading lastGrading)
             throws ExternalPlatformConnectionException, UserServiceConnectionException {
 
         try {
@@ -335,57 +360,37 @@ public class GithubClassroom implements CodeAssessmentProvider {
             String logsUrl = run.get("logs_url").getAsString();
             String lastlyTested = run.get("updated_at").getAsString();
             String commitSha = run.has("head_sha") ? run.get("head_sha").getAsString() : null;
+            // a re-run keeps the id of the run, but has new logs
+            String runId = !run.has("id") ? null : run.get("id").getAsString()
+                    + (run.has("run_attempt") ? "/" + run.get("run_attempt").getAsString() : "");
 
             if (!status.equals("completed")){
-                return new ExternalGrading(null, status, OffsetDateTime.parse(lastlyTested), null, null, null, commitSha);
+                return new ExternalGrading(null, status, OffsetDateTime.parse(lastlyTested), null, null, null, commitSha, runId);
             }
 
-            // Download logs
-            HttpRequest logRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(logsUrl))
-                    .header(HEADER_AUTHORIZATION, TOKEN_PREFIX + token)
-                    .header(HEADER_ACCEPT, ACCEPT_HEADER_JSON)
-                    .header(HEADER_API_VERSION, API_VERSION)
-                    .GET()
-                    .build();
-
-            HttpResponse<byte[]> logResponse = client.send(logRequest, HttpResponse.BodyHandlers.ofByteArray());
-            if (logResponse.statusCode() != 200) {
-                throw new ExternalPlatformConnectionException("Failed to fetch workflow logs: " + logResponse.body());
+            // the logs of this run were already parsed, downloading them again would give the same result
+            if (runId != null && lastGrading != null && runId.equals(lastGrading.runId()) && lastGrading.achievedPoints() != null) {
+                return new ExternalGrading(null, status, OffsetDateTime.parse(lastlyTested), lastGrading.tableHtml(),
+                        lastGrading.achievedPoints(), lastGrading.totalPoints(), commitSha, runId);
             }
 
-            byte[] zipBytes = logResponse.body();
-            try (ByteArrayInputStream bais = new ByteArrayInputStream(zipBytes);
-                 ZipInputStream zis = new ZipInputStream(bais)) {
-
-                ZipEntry entry;
-                while ((entry = zis.getNextEntry()) != null) {
-                    if (!entry.getName().endsWith("run-autograding-tests.txt")) {
-                        continue;
-                    }
-
-                    StringBuilder logBuilder = new StringBuilder();
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(zis));
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        logBuilder.append(line).append("\n");
-                    }
-                    String logs = logBuilder.toString();
-
-                    // Now apply your regex on `logs`
-                    Pattern pattern = Pattern.compile("\\{\"totalPoints\":(\\d+(?:\\.\\d+)?),\"maxPoints\":(\\d+(?:\\.\\d+)?)\\}");
-                    Matcher matcher = pattern.matcher(logs);
-                    if (matcher.find()) {
-                        double totalPoints = Double.parseDouble(matcher.group(1));
-                        double maxPoints = Double.parseDouble(matcher.group(2));
-                        String tableHtml = extractGradingTableAsHtml(logs);
-                        return new ExternalGrading(null, status, OffsetDateTime.parse(lastlyTested), tableHtml, totalPoints, maxPoints, commitSha);
-                    } else {
-                        throw new ExternalPlatformConnectionException("Could not find totalPoints/maxPoints in logs.");
-                    }
-                }
+            String logs = fetchJobLogOnly && run.has("id")
+                    ? fetchAutogradingJobLog(owner, repo, run.get("id").getAsString(), token)
+                    : null;
+            if (logs == null) {
+                logs = fetchAutogradingLogFromArchive(logsUrl, token);
+            }
 
-                throw new ExternalPlatformConnectionException("No grading file found in logs.");
+            // Now apply your regex on `logs`
+            Pattern pattern = Pattern.compile("\\{\"totalPoints\":(\\d+(?:\\.\\d+)?),\"maxPoints\":(\\d+(?:\\.\\d+)?)\\}");
+            Matcher matcher = pattern.matcher(logs);
+            if (matcher.find()) {
+                double totalPoints = Double.parseDouble(matcher.group(1));
+                double maxPoints = Double.parseDouble(matcher.group(2));
+                String tableHtml = extractGradingTableAsHtml(logs);
+                return new ExternalGrading(null, status, OffsetDateTime.parse(lastlyTested), tableHtml, totalPoints, maxPoints, commitSha, runId);
+            } else {
+                throw new ExternalPlatformConnectionException("Could not find totalPoints/maxPoints in logs.");
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -396,6 +401,102 @@ public class GithubClassroom implements CodeAssessmentProvider {
 
     }
 
+    /**
+     * Downloads only the plain-text log of the autograding job of the workflow run, instead of the archive with the
+     * logs of all jobs of the run.
+     *
+     * @return the log, null if the run has no autograding job or the log could not be downloaded
+     */
+    private String fetchAutogradingJobLog(String owner, String repo, String runId, String token)
+            throws IOException, InterruptedException {
+        HttpRequest jobsRequest = HttpRequest.newBuilder()
+                .uri(URI.create(basePath + "/repos/" + owner + "/" + repo + "/actions/runs/" + runId + "/jobs?per_page=" + PAGE_SIZE))
+                .header(HEADER_AUTHORIZATION, TOKEN_PREFIX + token)
+                .header(HEADER_ACCEPT, ACCEPT_HEADER_JSON)
+                .header(HEADER_API_VERSION, API_VERSION)
+                .GET()
+                .build();
+
+        HttpResponse<String> jobsResponse = client.send(jobsRequest, HttpResponse.BodyHandlers.ofString());
+        if (jobsResponse.statusCode() != 200) {
+            log.warn("Failed to fetch jobs of workflow run {}, falling back to the logs archive: {}", runId, jobsResponse.body());
+            return null;
+        }
+
+        String jobId = null;
+        for (JsonElement job : JsonParser.parseString(jobsResponse.body()).getAsJsonObject().getAsJsonArray("jobs")) {
+            if (AUTOGRADING_JOB_NAME.equalsIgnoreCase(job.getAsJsonObject().get("name").getAsString())) {
+                jobId = job.getAsJsonObject().get("id").getAsString();
+                break;
+            }
+        }
+        if (jobId == null) {
+            log.info("Workflow run {} has no {} job, falling back to the logs archive", runId, AUTOGRADING_JOB_NAME);
+            return null;
+        }
+
+        HttpRequest logRequest = HttpRequest.newBuilder()
+                .uri(URI.create(basePath + "/repos/" + owner + "/" + repo + "/actions/jobs/" + jobId + "/logs"))
+                .header(HEADER_AUTHORIZATION, TOKEN_PREFIX + token)
+                .header(HEADER_ACCEPT, ACCEPT_HEADER_JSON)
+                .header(HEADER_API_VERSION, API_VERSION)
+                .GET()
+                .build();
+
+        // the log is read while it is downloaded
+        HttpResponse<InputStream> logResponse = client.send(logRequest, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream logStream = logResponse.body()) {
+            if (logResponse.statusCode() != 200) {
+                log.warn("Failed to fetch log of job {}, falling back to the logs archive", jobId);
+                return null;
+            }
+            return readLog(logStream);
+        }
+    }
+
+    /**
+     * Downloads the archive with the logs of all jobs of the workflow run and reads the log of the autograding job.
+     */
+    private String fetchAutogradingLogFromArchive(String logsUrl, String token)
+            throws IOException, InterruptedException, ExternalPlatformConnectionException {
+        HttpRequest logRequest = HttpRequest.newBuilder()
+                .uri(URI.create(logsUrl))
+                .header(HEADER_AUTHORIZATION, TOKEN_PREFIX + token)
+                .header(HEADER_ACCEPT, ACCEPT_HEADER_JSON)
+                .header(HEADER_API_VERSION, API_VERSION)
+                .GET()
+                .build();
+
+        HttpResponse<byte[]> logResponse = client.send(logRequest, HttpResponse.BodyHandlers.ofByteArray());
+        if (logResponse.statusCode() != 200) {
+            throw new ExternalPlatformConnectionException("Failed to fetch workflow logs: " + logResponse.body());
+        }
+
+        byte[] zipBytes = logResponse.body();
+        try (ByteArrayInputStream bais = new ByteArrayInputStream(zipBytes);
+             ZipInputStream zis = new ZipInputStream(bais)) {
+
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (entry.getName().endsWith(AUTOGRADING_JOB_NAME + ".txt")) {
+                    return readLog(zis);
+                }
+            }
+        }
+
+        throw new ExternalPlatformConnectionException("No grading file found in logs.");
+    }
+
+    private String readLog(InputStream logStream) throws IOException {
+        StringBuilder logBuilder = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(logStream, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            logBuilder.append(line).append("\n");
+        }
+        return logBuilder.toString();
+    }
+
     @Override
     public ExternalServiceProviderDto getName() {
         return NAME;
@@ -519,8 +620,8 @@ public class GithubClassroom implements CodeAssessmentProvider {
             String token = queryTokenResponse.getAccessToken();
             String githubUsername = queryTokenResponse.getExternalUserId();
 
-            final Slugify slg = Slugify.builder().build();
-            String slug = slg.slugify(assignmentName);
+            // slugifying is idempotent, so the assignment name may already be the slug
+            String slug = getAssignmentSlug(assignmentName);
             String repoName = slug + "-" + githubUsername;
             log.info("[GITHUB-API] Constructed repository name: {}", repoName);
 
@@ -557,6 +658,70 @@ public class GithubClassroom implements CodeAssessmentProvider {
 
     }
 
+    /**
+     * Pages through the accepted assignments of the classroom assignment, so the repositories of a whole course
+     * cost one request per {@value #PAGE_SIZE} students instead of one request per student.
+     * Students of group assignments share the repository of their group.
+     */
+    @Override
+    public Map<String, String> findRepositories(final String externalAssignmentId, final LoggedInUser currentUser)
+            throws ExternalPlatformConnectionException, UserServiceConnectionException {
+        try {
+            AccessToken queryTokenResponse = userServiceClient.queryAccessToken(currentUser, NAME);
+            String token = queryTokenResponse.getAccessToken();
+
+            Map<String, String> repositories = new HashMap<>();
+            for (int page = 1; ; page++) {
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create(basePath + "/assignments/" + externalAssignmentId + "/accepted_assignments?per_page=" + PAGE_SIZE + "&page=" + page))
+                        .header(HEADER_ACCEPT, ACCEPT_HEADER_JSON)
+                        .header(HEADER_AUTHORIZATION, TOKEN_PREFIX + token)
+                        .header(HEADER_API_VERSION, API_VERSION)
+                        .GET()
+                        .build();
+
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    throw new ExternalPlatformConnectionException("Failed to fetch accepted assignments: " + response.body());
+                }
+
+                JsonArray acceptedAssignments = JsonParser.parseString(response.body()).getAsJsonArray();
+                for (JsonElement element : acceptedAssignments) {
+                    JsonObject acceptedAssignment = element.getAsJsonObject();
+                    JsonElement repository = acceptedAssignment.get("repository");
+                    JsonElement students = acceptedAssignment.get("students");
+                    if (repository == null || !repository.isJsonObject() || !repository.getAsJsonObject().has("html_url")
+                        || students == null || !students.isJsonArray()) {
+                        continue;
+                    }
+
+                    String repoLink = repository.getAsJsonObject().get("html_url").getAsString();
+                    for (JsonElement student : students.getAsJsonArray()) {
+                        JsonElement login = student.getAsJsonObject().get("login");
+                        if (login != null && !login.isJsonNull()) {
+                            repositories.put(login.getAsString(), repoLink);
+                        }
+                    }
+                }
+
+                if (acceptedAssignments.size() < PAGE_SIZE) {
+                    log.info("[GITHUB-API] Found {} repositories of assignment {} on {} pages", repositories.size(), externalAssignmentId, page);
+                    return repositories;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExternalPlatformConnectionException("Interrupted while fetching accepted assignments", e);
+        } catch (IOException | IllegalStateException e) {
+            throw new ExternalPlatformConnectionException("Failed to fetch accepted assignments", e);
+        }
+    }
+
+    @Override
+    public String getAssignmentSlug(final String assignmentName) {
+        return Slugify.builder().build().slugify(assignmentName);
+    }
+
     public ExternalCourse getExternalCourse(final String courseTitle, final LoggedInUser currentUser)
             throws ExternalPlatformConnectionException, UserServiceConnectionException {
         try {
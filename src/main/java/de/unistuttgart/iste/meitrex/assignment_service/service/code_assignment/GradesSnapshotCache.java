@@ -0,0 +1,194 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradesSnapshotEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradesSnapshotEntryEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradesSnapshotEntryRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradesSnapshotRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a snapshot of the grades of each code assignment, as synced for the whole assignment at once, in memory and
+ * in the database. Students' credits can be answered from the snapshot instead of syncing each repository.
+ * <p>
+ * A snapshot is taken whenever the grades of an assignment are synced, i.e. when an admin views the gradebook, since
+ * the external platform only reports the grades to its admins. It is not refreshed in the background, so students'
+ * credits are answered from it until it expires and synced per repository afterward.
+ * <p>
+ * If an assignment has no fresh snapshot, that is remembered until the next snapshot of this instance, or until the
+ * maximum age passed, so that snapshots taken by other instances are found.
+ */
+@Component
+public class GradesSnapshotCache {
+
+    private final GradesSnapshotRepository gradesSnapshotRepository;
+    private final GradesSnapshotEntryRepository gradesSnapshotEntryRepository;
+    private final TransactionOperations transactionOperations;
+    private final Duration maxAge;
+    private final Clock clock;
+
+    private final Map<UUID, Snapshot> snapshotsByAssignmentId = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GradesSnapshotCache(final GradesSnapshotRepository gradesSnapshotRepository,
+                               final GradesSnapshotEntryRepository gradesSnapshotEntryRepository,
+                               final TransactionOperations transactionOperations,
+                               @Value("${code_assignment.grades_snapshot.max_age_seconds:300}") final long maxAgeSeconds) {
+        this(gradesSnapshotRepository, gradesSnapshotEntryRepository, transactionOperations,
+                Duration.ofSeconds(maxAgeSeconds), Clock.systemUTC());
+    }
+
+    public GradesSnapshotCache(final GradesSnapshotRepository gradesSnapshotRepository,
+                               final GradesSnapshotEntryRepository gradesSnapshotEntryRepository,
+                               final TransactionOperations transactionOperations,
+                               final Duration maxAge,
+                               final Clock clock) {
+        this.gradesSnapshotRepository = gradesSnapshotRepository;
+        this.gradesSnapshotEntryRepository = gradesSnapshotEntryRepository;
+        this.transactionOperations = transactionOperations;
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    /**
+     * Stores the synced grades of the assignment as its snapshot.
+     *
+     * @param assignmentId     id of the code assignment
+     * @param externalGradings the synced grades of all students
+     */
+    public void record(final UUID assignmentId, final List<ExternalGrading> externalGradings) {
+        final OffsetDateTime syncedAt = OffsetDateTime.now(clock);
+        final Map<String, ExternalGrading> gradingsByExternalUsername = externalGradings.stream()
+                .filter(externalGrading -> externalGrading.externalUsername() != null)
+                .collect(Collectors.toMap(ExternalGrading::externalUsername, Function.identity(), (first, second) -> first));
+
+        transactionOperations.executeWithoutResult(status -> storeSnapshot(assignmentId, gradingsByExternalUsername, syncedAt));
+        snapshotsByAssignmentId.put(assignmentId, new Snapshot(gradingsByExternalUsername, syncedAt, syncedAt));
+    }
+
+    /**
+     * Checks whether the assignment has a snapshot which is not older than the maximum age.
+     *
+     * @param assignmentId id of the code assignment
+     * @return true if the snapshot can be used
+     */
+    public boolean hasFreshSnapshot(final UUID assignmentId) {
+        return isFresh(snapshotOf(assignmentId));
+    }
+
+    /**
+     * Returns the grading of the student from the snapshot of the assignment, if it is not older than the maximum age.
+     *
+     * @param assignmentId     id of the code assignment
+     * @param externalUsername the username of the student on the external platform
+     * @return the grading and when it was synced, empty if there is no fresh snapshot or the student is not in it
+     */
+    public Optional<SnapshotGrading> findFreshGrading(final UUID assignmentId, final String externalUsername) {
+        final Snapshot snapshot = snapshotOf(assignmentId);
+        if (!isFresh(snapshot)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(snapshot.gradingsByExternalUsername().get(externalUsername))
+                .map(externalGrading -> new SnapshotGrading(externalGrading, snapshot.syncedAt()));
+    }
+
+    private boolean isFresh(final Snapshot snapshot) {
+        return isFresh(snapshot.syncedAt());
+    }
+
+    private boolean isFresh(final OffsetDateTime syncedAt) {
+        return syncedAt != null && syncedAt.toInstant().plus(maxAge).isAfter(clock.instant());
+    }
+
+    /**
+     * Returns the snapshot of the assignment from memory. If there is none, or it expired and wasn't checked within
+     * the maximum age, it is loaded from the database, since it may have been refreshed by another instance.
+     */
+    private Snapshot snapshotOf(final UUID assignmentId) {
+        final Snapshot snapshot = snapshotsByAssignmentId.get(assignmentId);
+        if (snapshot != null && (isFresh(snapshot) || isFresh(snapshot.checkedAt()))) {
+            return snapshot;
+        }
+        final Snapshot loadedSnapshot = loadSnapshot(assignmentId);
+        // don't replace a snapshot recorded concurrently
+        return snapshotsByAssignmentId.merge(assignmentId, loadedSnapshot, (current, loaded) -> isNewer(current, loaded) ? current : loaded);
+    }
+
+    private static boolean isNewer(final Snapshot snapshot, final Snapshot otherSnapshot) {
+        return snapshot.syncedAt() != null
+               && (otherSnapshot.syncedAt() == null || snapshot.syncedAt().isAfter(otherSnapshot.syncedAt()));
+    }
+
+    /**
+     * Loads the snapshot of the assignment. Its entries are only loaded if it is fresh, otherwise the result
+     * only records that there is no fresh snapshot.
+     */
+    private Snapshot loadSnapshot(final UUID assignmentId) {
+        final OffsetDateTime checkedAt = OffsetDateTime.now(clock);
+        final OffsetDateTime syncedAt = gradesSnapshotRepository.findById(assignmentId)
+                .map(GradesSnapshotEntity::getSyncedAt)
+                .orElse(null);
+        if (!isFresh(syncedAt)) {
+            return new Snapshot(Map.of(), syncedAt, checkedAt);
+        }
+        final Map<String, ExternalGrading> gradingsByExternalUsername = new HashMap<>();
+        for (final GradesSnapshotEntryEntity entry : gradesSnapshotEntryRepository.findAllByPrimaryKey_AssignmentId(assignmentId)) {
+            final String externalUsername = entry.getPrimaryKey().getExternalUsername();
+            gradingsByExternalUsername.put(externalUsername, new ExternalGrading(externalUsername, null,
+                    entry.getSubmittedAt(), null, entry.getAchievedPoints(), null, null));
+        }
+        return new Snapshot(gradingsByExternalUsername, syncedAt, checkedAt);
+    }
+
+    /**
+     * Stores the snapshot. Only the entries of students whose points or submission date changed are written.
+     */
+    private void storeSnapshot(final UUID assignmentId, final Map<String, ExternalGrading> gradingsByExternalUsername,
+                               final OffsetDateTime syncedAt) {
+        gradesSnapshotRepository.save(new GradesSnapshotEntity(assignmentId, syncedAt));
+
+        final Map<String, GradesSnapshotEntryEntity> existingEntries = gradesSnapshotEntryRepository
+                .findAllByPrimaryKey_AssignmentId(assignmentId).stream()
+                .collect(Collectors.toMap(entry -> entry.getPrimaryKey().getExternalUsername(), Function.identity()));
+
+        final List<GradesSnapshotEntryEntity> changedEntries = new ArrayList<>();
+        gradingsByExternalUsername.forEach((externalUsername, externalGrading) -> {
+            final GradesSnapshotEntryEntity entry = existingEntries.remove(externalUsername);
+            if (entry != null && Objects.equals(entry.getAchievedPoints(), externalGrading.achievedPoints())
+                && isSameInstant(entry.getSubmittedAt(), externalGrading.date())) {
+                return;
+            }
+            changedEntries.add(new GradesSnapshotEntryEntity(new GradesSnapshotEntryEntity.PrimaryKey(assignmentId, externalUsername),
+                    externalGrading.achievedPoints(), externalGrading.date()));
+        });
+        // students no longer reported by the external platform
+        gradesSnapshotEntryRepository.deleteAll(existingEntries.values());
+        gradesSnapshotEntryRepository.saveAll(changedEntries);
+    }
+
+    private static boolean isSameInstant(final OffsetDateTime date, final OffsetDateTime otherDate) {
+        return date == null ? otherDate == null : otherDate != null && date.isEqual(otherDate);
+    }
+
+    /**
+     * A grading from a snapshot, with the time the snapshot was taken.
+     */
+    public record SnapshotGrading(ExternalGrading externalGrading, OffsetDateTime syncedAt) {
+    }
+
+    /**
+     * The gradings of a snapshot and when it was taken, both empty if there is none. Also remembers when it was
+     * loaded, to not check the database again for a snapshot until the maximum age passed.
+     */
+    private record Snapshot(Map<String, ExternalGrading> gradingsByExternalUsername, OffsetDateTime syncedAt,
+                            OffsetDateTime checkedAt) {
+    }
+}
@@ -0,0 +1,114 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Remembers for which students the repository of a code assignment was not found, e.g. because they have not
+ * accepted the assignment yet, so that reading their grading doesn't search the repository again on every read.
+ * <p>
+ * Entries expire after a configurable time, so that a repository created in the meantime is found eventually.
+ * They are removed earlier if the repositories of the assignment were discovered, or if the assignment changed
+ * in a way that affects the search. The number of entries is bounded, the oldest entries are evicted first.
+ */
+@Component
+public class MissingRepositoryCache {
+
+    private final Map<Key, Instant> expiryByKey;
+    private final Duration timeToLive;
+    private final Clock clock;
+
+    @Autowired
+    public MissingRepositoryCache(@Value("${code_assignment.missing_repository.ttl_seconds:300}") final long timeToLiveSeconds,
+                                  @Value("${code_assignment.missing_repository.max_entries:100000}") final int maxEntries) {
+        this(Duration.ofSeconds(timeToLiveSeconds), maxEntries, Clock.systemUTC());
+    }
+
+    public MissingRepositoryCache(final Duration timeToLive, final int maxEntries, final Clock clock) {
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+        // insertion order equals expiry order, since all entries live equally long
+        this.expiryByKey = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Instant> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Checks whether the repository of the student was recently not found.
+     *
+     * @param assignmentId id of the code assignment
+     * @param studentId    id of the student
+     * @return true if the repository was not found and the entry has not expired yet
+     */
+    public boolean isMissing(final UUID assignmentId, final UUID studentId) {
+        final Key key = new Key(assignmentId, studentId);
+        synchronized (expiryByKey) {
+            final Instant expiry = expiryByKey.get(key);
+            if (expiry == null) {
+                return false;
+            }
+            if (!clock.instant().isBefore(expiry)) {
+                expiryByKey.remove(key);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Records that the repository of the student was not found.
+     *
+     * @param assignmentId id of the code assignment
+     * @param studentId    id of the student
+     */
+    public void markMissing(final UUID assignmentId, final UUID studentId) {
+        final Key key = new Key(assignmentId, studentId);
+        final Instant now = clock.instant();
+        synchronized (expiryByKey) {
+            removeExpired(now);
+            // re-insert, so that the entry moves to the end of the expiry order
+            expiryByKey.remove(key);
+            expiryByKey.put(key, now.plus(timeToLive));
+        }
+    }
+
+    /**
+     * Forgets that the repository of the student was not found, e.g. because it was discovered.
+     *
+     * @param assignmentId id of the code assignment
+     * @param studentId    id of the student
+     */
+    public void invalidate(final UUID assignmentId, final UUID studentId) {
+        expiryByKey.remove(new Key(assignmentId, studentId));
+    }
+
+    /**
+     * Forgets all missing repositories of the assignment, e.g. because the name it is searched with changed.
+     *
+     * @param assignmentId id of the code assignment
+     */
+    public void invalidateAssignment(final UUID assignmentId) {
+        synchronized (expiryByKey) {
+            expiryByKey.keySet().removeIf(key -> key.assignmentId().equals(assignmentId));
+        }
+    }
+
+    private void removeExpired(final Instant now) {
+        final Iterator<Instant> expiries = expiryByKey.values().iterator();
+        while (expiries.hasNext() && !now.isBefore(expiries.next())) {
+            expiries.remove();
+        }
+    }
+
+    private record Key(UUID assignmentId, UUID studentId) {
+    }
+}
@@ -0,0 +1,19 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradingEntity;
+
+import java.util.List;
+
+/**
+ * Result of reconciling the gradings of an assignment with the gradings of the external platform.
+ *
+ * @param changedGradings gradings which were modified and need to be saved
+ * @param unchangedCount  number of gradings which already matched the external grading
+ * @param unmatchedCount  number of gradings for which no external username or no external grading was found
+ */
+public record ReconciliationResult(List<GradingEntity> changedGradings, int unchangedCount, int unmatchedCount) {
+
+    public int changedCount() {
+        return changedGradings.size();
+    }
+}
@@ -0,0 +1,102 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Decides whether a code assignment grading synced with the external platform is still fresh, and refreshes stale
+ * gradings in the background.
+ * <p>
+ * In stale-while-revalidate mode, reading a grading returns the stored grading immediately instead of waiting for the
+ * external platform. If it is older than the freshness window, a refresh is started in the background, so that the
+ * next read returns the refreshed grading. A grading is refreshed by at most one background task at a time, and the
+ * number of waiting refreshes is bounded, refreshes exceeding it are skipped.
+ */
+@Slf4j
+@Component
+public class StaleGradingRefresher {
+
+    private final boolean staleWhileRevalidate;
+    private final Duration freshnessWindow;
+    private final Clock clock;
+    private final ExecutorService executor;
+    private final Set<Object> refreshingKeys = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public StaleGradingRefresher(@Value("${code_assignment.grading.stale_while_revalidate:false}") final boolean staleWhileRevalidate,
+                                 @Value("${code_assignment.grading.freshness_seconds:60}") final long freshnessSeconds,
+                                 @Value("${code_assignment.grading.refresh_threads:4}") final int refreshThreads,
+                                 @Value("${code_assignment.grading.refresh_queue_capacity:1000}") final int refreshQueueCapacity) {
+        this(staleWhileRevalidate, Duration.ofSeconds(freshnessSeconds), Clock.systemUTC(),
+                new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(refreshQueueCapacity)));
+    }
+
+    public StaleGradingRefresher(final boolean staleWhileRevalidate, final Duration freshnessWindow,
+                                 final Clock clock, final ExecutorService executor) {
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.freshnessWindow = freshnessWindow;
+        this.clock = clock;
+        this.executor = executor;
+    }
+
+    /**
+     * @return true if stored gradings are returned immediately and refreshed in the background
+     */
+    public boolean isStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    /**
+     * Checks whether a grading last synced at the given time is older than the freshness window.
+     *
+     * @param lastSyncedAt when the grading was last synced, null if it was never synced
+     * @return true if the grading is stale
+     */
+    public boolean isStale(final OffsetDateTime lastSyncedAt) {
+        return lastSyncedAt == null || !lastSyncedAt.toInstant().plus(freshnessWindow).isAfter(clock.instant());
+    }
+
+    /**
+     * Starts the refresh in the background, unless a refresh with the same key is already running or waiting.
+     *
+     * @param key     identifies the refreshed grading
+     * @param refresh the refresh
+     * @return true if the refresh was started
+     */
+    public boolean refreshInBackground(final Object key, final Runnable refresh) {
+        if (!refreshingKeys.add(key)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    refresh.run();
+                } catch (RuntimeException e) {
+                    log.error("Failed to refresh grading {} in the background", key, e);
+                } finally {
+                    refreshingKeys.remove(key);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            refreshingKeys.remove(key);
+            log.warn("Too many gradings waiting for a refresh, not refreshing grading {}", key);
+            return false;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
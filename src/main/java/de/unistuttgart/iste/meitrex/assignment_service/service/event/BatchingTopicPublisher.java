@@ -0,0 +1,71 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service.event;
+
+import de.unistuttgart.iste.meitrex.assignment_service.config.EventTopicConfiguration;
+import io.dapr.client.DaprPreviewClient;
+import io.dapr.client.domain.BulkPublishResponse;
+import io.dapr.client.domain.BulkPublishResponseFailedEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Publishes events to the dapr pubsub using dapr's bulk publish API, so that many events need only one request
+ * to the sidecar instead of one request per event.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dapr.bulk_publish.enabled", havingValue = "true")
+public class BatchingTopicPublisher {
+
+    private static final String CONTENT_TYPE = "application/json";
+
+    private final DaprPreviewClient daprPreviewClient;
+    private final String pubsubName;
+    private final int maxBatchSize;
+
+    public BatchingTopicPublisher(final DaprPreviewClient daprPreviewClient,
+                                  final EventTopicConfiguration eventTopicConfiguration,
+                                  @Value("${dapr.bulk_publish.max_batch_size:100}") final int maxBatchSize) {
+        this.daprPreviewClient = daprPreviewClient;
+        this.pubsubName = eventTopicConfiguration.getPubsubName();
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Publishes the given events to the topic. Lists larger than the maximum batch size are split into multiple
+     * bulk requests. Failures don't throw, they are returned as part of the result.
+     *
+     * @param topic  the topic to publish to
+     * @param events the events to publish
+     * @param <T>    type of the events
+     * @return the published count and the events which could not be published
+     */
+    public <T> BulkPublishResult<T> publishAll(final String topic, final List<T> events) {
+        final List<BulkPublishResult.FailedEvent<T>> failedEvents = new ArrayList<>();
+        for (int start = 0; start < events.size(); start += maxBatchSize) {
+            final List<T> chunk = events.subList(start, Math.min(start + maxBatchSize, events.size()));
+            try {
+                final BulkPublishResponse<T> response = daprPreviewClient
+                        .publishEvents(pubsubName, topic, CONTENT_TYPE, chunk)
+                        .block();
+                if (response != null) {
+                    for (final BulkPublishResponseFailedEntry<T> failedEntry : response.getFailedEntries()) {
+                        failedEvents.add(new BulkPublishResult.FailedEvent<>(
+                                failedEntry.getEntry().getEvent(), failedEntry.getErrorMessage()));
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("Bulk publishing {} events to topic {} failed: {}", chunk.size(), topic, e.toString());
+                chunk.forEach(event -> failedEvents.add(new BulkPublishResult.FailedEvent<>(event, e.toString())));
+            }
+        }
+        if (!failedEvents.isEmpty()) {
+            log.warn("{} of {} events could not be published to topic {}", failedEvents.size(), events.size(), topic);
+        }
+        return new BulkPublishResult<>(events.size() - failedEvents.size(), failedEvents);
+    }
+}
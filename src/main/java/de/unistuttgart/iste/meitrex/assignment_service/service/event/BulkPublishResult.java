@@ -0,0 +1,24 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service.event;
+
+import java.util.List;
+
+/**
+ * Result of publishing multiple events at once.
+ *
+ * @param publishedCount number of events which were published successfully
+ * @param failedEvents   events which could not be published, together with the reason
+ * @param <T>            type of the events
+ */
+public record BulkPublishResult<T>(int publishedCount, List<FailedEvent<T>> failedEvents) {
+
+    public static <T> BulkPublishResult<T> allPublished(final int publishedCount) {
+        return new BulkPublishResult<>(publishedCount, List.of());
+    }
+
+    public boolean hasFailures() {
+        return !failedEvents.isEmpty();
+    }
+
+    public record FailedEvent<T>(T event, String errorMessage) {
+    }
+}
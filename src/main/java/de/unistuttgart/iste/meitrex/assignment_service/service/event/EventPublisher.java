@@ -0,0 +1,146 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.unistuttgart.iste.meitrex.assignment_service.config.EventTopicConfiguration;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.OutboxEventEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.OutboxEventRepository;
+import de.unistuttgart.iste.meitrex.common.dapr.TopicPublisher;
+import de.unistuttgart.iste.meitrex.common.event.AssessmentContentMutatedEvent;
+import de.unistuttgart.iste.meitrex.common.event.ContentProgressedEvent;
+import de.unistuttgart.iste.meitrex.common.event.CrudOperation;
+import de.unistuttgart.iste.meitrex.common.event.StudentCodeSubmittedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Publishes the events of the assignment service.
+ * <p>
+ * If the outbox is enabled ({@code outbox.enabled=true}), events are not sent to dapr directly. Instead, they are
+ * stored in the outbox table as part of the current transaction, so that they are only published if the change they
+ * describe is committed, and request threads never wait for the pubsub. The {@link OutboxRelay} publishes them
+ * afterwards. If the outbox is disabled, events are published directly via the {@link TopicPublisher}, or in bulk via
+ * the {@link BatchingTopicPublisher} if bulk publishing is enabled ({@code dapr.bulk_publish.enabled=true}).
+ */
+@Slf4j
+@Component
+public class EventPublisher {
+
+    private final TopicPublisher topicPublisher;
+    private final OutboxEventRepository outboxEventRepository;
+    private final Optional<BatchingTopicPublisher> batchingTopicPublisher;
+    private final EventTopicConfiguration eventTopicConfiguration;
+    private final ObjectMapper objectMapper;
+    private final boolean outboxEnabled;
+
+    public EventPublisher(final TopicPublisher topicPublisher,
+                          final OutboxEventRepository outboxEventRepository,
+                          final Optional<BatchingTopicPublisher> batchingTopicPublisher,
+                          final EventTopicConfiguration eventTopicConfiguration,
+                          final ObjectMapper objectMapper,
+                          @Value("${outbox.enabled:false}") final boolean outboxEnabled) {
+        this.topicPublisher = topicPublisher;
+        this.outboxEventRepository = outboxEventRepository;
+        this.batchingTopicPublisher = batchingTopicPublisher;
+        this.eventTopicConfiguration = eventTopicConfiguration;
+        this.objectMapper = objectMapper;
+        this.outboxEnabled = outboxEnabled;
+    }
+
+    /**
+     * @return true if events are stored in the outbox as part of the current transaction instead of being published
+     *         directly, so that they are only published if the transaction is committed
+     */
+    public boolean isOutboxEnabled() {
+        return outboxEnabled;
+    }
+
+    public void notifyUserWorkedOnContent(final ContentProgressedEvent event) {
+        if (!outboxEnabled) {
+            topicPublisher.notifyUserWorkedOnContent(event);
+            return;
+        }
+        enqueue(event.getContentId() + "/" + event.getUserId(), OutboxEventEntity.EventType.CONTENT_PROGRESSED, event);
+    }
+
+    /**
+     * Publishes the progress of multiple users at once, e.g. after importing the gradings of an assignment.
+     *
+     * @param events the events to publish
+     * @return the result of the publishing, containing the events which could not be published
+     */
+    public BulkPublishResult<ContentProgressedEvent> notifyUsersWorkedOnContent(final List<ContentProgressedEvent> events) {
+        if (outboxEnabled) {
+            outboxEventRepository.saveAll(events.stream()
+                    .map(event -> createOutboxEvent(event.getContentId() + "/" + event.getUserId(),
+                            OutboxEventEntity.EventType.CONTENT_PROGRESSED, event))
+                    .toList());
+            return BulkPublishResult.allPublished(events.size());
+        }
+        if (batchingTopicPublisher.isPresent()) {
+            return batchingTopicPublisher.get().publishAll(eventTopicConfiguration.getContentProgressedTopic(), events);
+        }
+        events.forEach(topicPublisher::notifyUserWorkedOnContent);
+        return BulkPublishResult.allPublished(events.size());
+    }
+
+    public void notifyStudentCodeSubmitted(final StudentCodeSubmittedEvent event) {
+        if (!outboxEnabled) {
+            topicPublisher.notifyStudentCodeSubmitted(event);
+            return;
+        }
+        enqueue(event.getAssignmentId() + "/" + event.getStudentId(), OutboxEventEntity.EventType.STUDENT_CODE_SUBMITTED, event);
+    }
+
+    public void notifyAssessmentContentMutated(final AssessmentContentMutatedEvent event) {
+        if (!outboxEnabled) {
+            topicPublisher.notifyAssessmentContentMutated(event);
+            return;
+        }
+        enqueue(String.valueOf(event.getAssessmentId()), OutboxEventEntity.EventType.ASSESSMENT_CONTENT_MUTATED, event);
+    }
+
+    public void notifyItemChanges(final UUID itemId, final CrudOperation operation) {
+        if (!outboxEnabled) {
+            topicPublisher.notifyItemChanges(itemId, operation);
+            return;
+        }
+        enqueue(String.valueOf(itemId), OutboxEventEntity.EventType.ITEM_CHANGED, new ItemChange(itemId, operation));
+    }
+
+    private void enqueue(final String aggregateId, final OutboxEventEntity.EventType eventType, final Object event) {
+        outboxEventRepository.save(createOutboxEvent(aggregateId, eventType, event));
+        log.debug("Stored {} event for aggregate {} in outbox", eventType, aggregateId);
+    }
+
+    private OutboxEventEntity createOutboxEvent(final String aggregateId, final OutboxEventEntity.EventType eventType, final Object event) {
+        final String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialize %s event".formatted(eventType), e);
+        }
+
+        final OffsetDateTime now = OffsetDateTime.now();
+        return OutboxEventEntity.builder()
+                .aggregateId(aggregateId)
+                .eventType(eventType)
+                .payload(payload)
+                .createdAt(now)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .build();
+    }
+
+    /**
+     * Payload of an outbox event of type {@link OutboxEventEntity.EventType#ITEM_CHANGED}.
+     */
+    record ItemChange(UUID itemId, CrudOperation operation) {
+    }
+}
@@ -0,0 +1,284 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.unistuttgart.iste.meitrex.assignment_service.config.EventTopicConfiguration;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.OutboxEventEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.OutboxEventRepository;
+import de.unistuttgart.iste.meitrex.common.dapr.TopicPublisher;
+import de.unistuttgart.iste.meitrex.common.event.AssessmentContentMutatedEvent;
+import de.unistuttgart.iste.meitrex.common.event.ContentProgressedEvent;
+import de.unistuttgart.iste.meitrex.common.event.StudentCodeSubmittedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the events stored in the outbox to the dapr pubsub.
+ * <p>
+ * The outbox is drained in batches. Events of the same aggregate are published in the order they were stored:
+ * if publishing an event fails, the remaining events of its aggregate are held back until the failed one was
+ * published. Failed events are retried with exponential backoff.
+ * <p>
+ * A batch is claimed in a short transaction: the aggregates of the batch are locked, so that no other instance
+ * claims events of them at the same time, and the events are claimed for the claim duration. They are published
+ * without a transaction and the result is recorded in a second short transaction. Events whose result was not
+ * recorded, e.g. because the instance stopped, are published again once their claim expired.
+ * <p>
+ * If bulk publishing is enabled, the events of a batch are published with one bulk request per topic and round.
+ * Each round contains at most one event per aggregate, so that the order per aggregate is kept.
+ * <p>
+ * Exposes the metrics {@code outbox.events.pending}, {@code outbox.events.lag} (age of the oldest unpublished event
+ * in seconds), {@code outbox.events.published} and {@code outbox.events.failed}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "outbox.enabled", havingValue = "true")
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final TopicPublisher topicPublisher;
+    private final Optional<BatchingTopicPublisher> batchingTopicPublisher;
+    private final EventTopicConfiguration eventTopicConfiguration;
+    private final ObjectMapper objectMapper;
+    private final TransactionOperations transactionOperations;
+
+    private final int batchSize;
+    private final Duration claimDuration;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+
+    public OutboxRelay(final OutboxEventRepository outboxEventRepository,
+                       final TopicPublisher topicPublisher,
+                       final Optional<BatchingTopicPublisher> batchingTopicPublisher,
+                       final EventTopicConfiguration eventTopicConfiguration,
+                       final ObjectMapper objectMapper,
+                       final MeterRegistry meterRegistry,
+                       final TransactionOperations transactionOperations,
+                       @Value("${outbox.relay.batch_size:100}") final int batchSize,
+                       @Value("${outbox.relay.claim_duration:PT1M}") final Duration claimDuration,
+                       @Value("${outbox.relay.initial_backoff:PT1S}") final Duration initialBackoff,
+                       @Value("${outbox.relay.max_backoff:PT5M}") final Duration maxBackoff) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.topicPublisher = topicPublisher;
+        this.batchingTopicPublisher = batchingTopicPublisher;
+        this.eventTopicConfiguration = eventTopicConfiguration;
+        this.objectMapper = objectMapper;
+        this.transactionOperations = transactionOperations;
+        this.batchSize = batchSize;
+        this.claimDuration = claimDuration;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+
+        Gauge.builder("outbox.events.pending", pendingEvents, AtomicLong::get)
+                .description("Number of events in the outbox which are not yet published")
+                .register(meterRegistry);
+        Gauge.builder("outbox.events.lag", lagSeconds, AtomicLong::get)
+                .description("Age of the oldest event in the outbox")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder("outbox.events.published").register(meterRegistry);
+        this.failedCounter = Counter.builder("outbox.events.failed").register(meterRegistry);
+    }
+
+    /**
+     * Publishes one batch of due events. Published events are removed from the outbox.
+     *
+     * @return number of published events
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.interval_ms:500}")
+    public int relay() {
+        final OffsetDateTime now = OffsetDateTime.now();
+        final List<OutboxEventEntity> batch = transactionOperations.execute(status -> claimDueEvents(now));
+
+        // queue of events per aggregate, in the order they were stored
+        final Map<String, Deque<OutboxEventEntity>> eventsByAggregate = new LinkedHashMap<>();
+        batch.forEach(event -> eventsByAggregate
+                .computeIfAbsent(event.getAggregateId(), key -> new ArrayDeque<>())
+                .add(event));
+
+        final List<Long> publishedIds = new ArrayList<>(batch.size());
+        final List<OutboxEventEntity> failedEvents = new ArrayList<>();
+        final List<Long> heldBackIds = new ArrayList<>();
+        while (!eventsByAggregate.isEmpty()) {
+            // each round contains the next event of every aggregate
+            final List<OutboxEventEntity> round = new ArrayList<>(eventsByAggregate.size());
+            eventsByAggregate.values().removeIf(events -> {
+                round.add(events.poll());
+                return events.isEmpty();
+            });
+
+            final Map<OutboxEventEntity, Exception> failures = publishRound(round);
+            for (final OutboxEventEntity event : round) {
+                final Exception failure = failures.get(event);
+                if (failure == null) {
+                    publishedIds.add(event.getId());
+                    publishedCounter.increment();
+                } else {
+                    // hold back the remaining events of this aggregate to keep the order
+                    final Deque<OutboxEventEntity> heldBackEvents = eventsByAggregate.remove(event.getAggregateId());
+                    if (heldBackEvents != null) {
+                        heldBackEvents.forEach(heldBackEvent -> heldBackIds.add(heldBackEvent.getId()));
+                    }
+                    scheduleRetry(event, now, failure);
+                    failedEvents.add(event);
+                    failedCounter.increment();
+                }
+            }
+        }
+
+        transactionOperations.executeWithoutResult(status -> recordResult(publishedIds, failedEvents, heldBackIds, now));
+        updateMetrics(now);
+        return publishedIds.size();
+    }
+
+    /**
+     * Locks the aggregates of the next batch and claims their due events.
+     */
+    private List<OutboxEventEntity> claimDueEvents(final OffsetDateTime now) {
+        final List<String> aggregateIds = outboxEventRepository.lockDueAggregates(now, batchSize);
+        if (aggregateIds.isEmpty()) {
+            return List.of();
+        }
+        final List<OutboxEventEntity> batch = outboxEventRepository.findDueForRelay(now, aggregateIds, batchSize);
+        if (!batch.isEmpty()) {
+            outboxEventRepository.claim(batch.stream().map(OutboxEventEntity::getId).toList(), now.plus(claimDuration));
+        }
+        return batch;
+    }
+
+    /**
+     * Removes the published events from the outbox, schedules the failed ones for a retry and releases the claim of
+     * the held back ones. They stay behind the failed event of their aggregate.
+     */
+    private void recordResult(final List<Long> publishedIds, final List<OutboxEventEntity> failedEvents,
+                              final List<Long> heldBackIds, final OffsetDateTime now) {
+        if (!publishedIds.isEmpty()) {
+            outboxEventRepository.deleteAllByIdInBatch(publishedIds);
+        }
+        for (final OutboxEventEntity failedEvent : failedEvents) {
+            outboxEventRepository.reschedule(failedEvent.getId(), failedEvent.getAttempts(),
+                    failedEvent.getNextAttemptAt(), failedEvent.getLastError());
+        }
+        if (!heldBackIds.isEmpty()) {
+            outboxEventRepository.claim(heldBackIds, now);
+        }
+    }
+
+    /**
+     * Publishes the events of one round, in bulk per topic if possible.
+     *
+     * @return the events which could not be published, with the cause
+     */
+    private Map<OutboxEventEntity, Exception> publishRound(final List<OutboxEventEntity> round) {
+        final Map<OutboxEventEntity, Exception> failures = new IdentityHashMap<>();
+        if (batchingTopicPublisher.isEmpty()) {
+            for (final OutboxEventEntity event : round) {
+                try {
+                    dispatch(event);
+                } catch (JsonProcessingException | RuntimeException e) {
+                    failures.put(event, e);
+                }
+            }
+            return failures;
+        }
+
+        final Map<String, Map<Object, OutboxEventEntity>> eventsByTopic = new HashMap<>();
+        for (final OutboxEventEntity event : round) {
+            try {
+                final String topic = topicOf(event.getEventType());
+                if (topic == null) {
+                    // no bulk publishing possible, the topic is only known to the TopicPublisher
+                    dispatch(event);
+                    continue;
+                }
+                eventsByTopic.computeIfAbsent(topic, key -> new IdentityHashMap<>())
+                        .put(objectMapper.readValue(event.getPayload(), payloadTypeOf(event.getEventType())), event);
+            } catch (JsonProcessingException | RuntimeException e) {
+                failures.put(event, e);
+            }
+        }
+
+        eventsByTopic.forEach((topic, outboxEvents) -> {
+            final BulkPublishResult<Object> result = batchingTopicPublisher.get()
+                    .publishAll(topic, new ArrayList<>(outboxEvents.keySet()));
+            for (final BulkPublishResult.FailedEvent<Object> failedEvent : result.failedEvents()) {
+                failures.put(outboxEvents.get(failedEvent.event()), new IllegalStateException(failedEvent.errorMessage()));
+            }
+        });
+        return failures;
+    }
+
+    private String topicOf(final OutboxEventEntity.EventType eventType) {
+        return switch (eventType) {
+            case CONTENT_PROGRESSED -> eventTopicConfiguration.getContentProgressedTopic();
+            case STUDENT_CODE_SUBMITTED -> eventTopicConfiguration.getStudentCodeSubmittedTopic();
+            case ASSESSMENT_CONTENT_MUTATED -> eventTopicConfiguration.getAssessmentContentMutatedTopic();
+            case ITEM_CHANGED -> null;
+        };
+    }
+
+    private Class<?> payloadTypeOf(final OutboxEventEntity.EventType eventType) {
+        return switch (eventType) {
+            case CONTENT_PROGRESSED -> ContentProgressedEvent.class;
+            case STUDENT_CODE_SUBMITTED -> StudentCodeSubmittedEvent.class;
+            case ASSESSMENT_CONTENT_MUTATED -> AssessmentContentMutatedEvent.class;
+            case ITEM_CHANGED -> EventPublisher.ItemChange.class;
+        };
+    }
+
+    private void dispatch(final OutboxEventEntity event) throws JsonProcessingException {
+        final String payload = event.getPayload();
+        switch (event.getEventType()) {
+            case CONTENT_PROGRESSED -> topicPublisher.notifyUserWorkedOnContent(
+                    objectMapper.readValue(payload, ContentProgressedEvent.class));
+            case STUDENT_CODE_SUBMITTED -> topicPublisher.notifyStudentCodeSubmitted(
+                    objectMapper.readValue(payload, StudentCodeSubmittedEvent.class));
+            case ASSESSMENT_CONTENT_MUTATED -> topicPublisher.notifyAssessmentContentMutated(
+                    objectMapper.readValue(payload, AssessmentContentMutatedEvent.class));
+            case ITEM_CHANGED -> {
+                final EventPublisher.ItemChange itemChange = objectMapper.readValue(payload, EventPublisher.ItemChange.class);
+                topicPublisher.notifyItemChanges(itemChange.itemId(), itemChange.operation());
+            }
+        }
+    }
+
+    private void scheduleRetry(final OutboxEventEntity event, final OffsetDateTime now, final Exception e) {
+        event.setAttempts(event.getAttempts() + 1);
+        event.setNextAttemptAt(now.plus(backoff(event.getAttempts())));
+        event.setLastError(e.toString());
+        log.warn("Publishing {} event {} of aggregate {} failed (attempt {}), retrying at {}: {}",
+                event.getEventType(), event.getId(), event.getAggregateId(), event.getAttempts(),
+                event.getNextAttemptAt(), e.toString());
+    }
+
+    /**
+     * Returns the delay before the given attempt, doubling with every failed attempt up to the maximum backoff.
+     */
+    Duration backoff(final int attempts) {
+        final Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 30));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private void updateMetrics(final OffsetDateTime now) {
+        pendingEvents.set(outboxEventRepository.count());
+        final OffsetDateTime oldest = outboxEventRepository.findOldestCreatedAt();
+        lagSeconds.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest, now).toSeconds()));
+    }
+}
@@ -0,0 +1,91 @@
+package de.unistuttgart.iste.meitrex.assignment_service.api;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.OutboxEventEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.AssignmentRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.OutboxEventRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.test_config.MockedTopicPublisherConfig;
+import de.unistuttgart.iste.meitrex.assignment_service.test_utils.TestUtils;
+import de.unistuttgart.iste.meitrex.common.dapr.TopicPublisher;
+import de.unistuttgart.iste.meitrex.common.testutil.GraphQlApiTest;
+import de.unistuttgart.iste.meitrex.common.testutil.InjectCurrentUserHeader;
+import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.graphql.test.tester.GraphQlTester;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.UUID;
+
+import static de.unistuttgart.iste.meitrex.common.testutil.TestUsers.userWithMembershipInCourseWithId;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests that deleting an exercise stores the item change in the outbox if the outbox is enabled, as part of the
+ * transaction which deletes it. Transactional, so the relay never sees the stored events.
+ */
+@GraphQlApiTest
+@TestPropertySource(properties = {
+        "outbox.enabled=true",
+        "outbox.relay.interval_ms=3600000"
+})
+@ContextConfiguration(classes = MockedTopicPublisherConfig.class)
+class MutationDeleteExerciseOutboxTest {
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private TopicPublisher topicPublisher;
+
+    @Autowired
+    private TestUtils testUtils;
+
+    private final UUID courseId = UUID.randomUUID();
+
+    @InjectCurrentUserHeader
+    private final LoggedInUser loggedInUser = userWithMembershipInCourseWithId(courseId, LoggedInUser.UserRoleInCourse.ADMINISTRATOR);
+
+    @Test
+    @Transactional
+    void testDeletedExerciseIsStoredInOutbox(final GraphQlTester tester) {
+        final AssignmentEntity assignmentEntity = testUtils.populateAssignmentRepository(assignmentRepository, courseId);
+        final UUID exerciseId = assignmentEntity.getExercises().getFirst().getId();
+
+        final String query = """
+                mutation ($assignmentId: UUID!, $exerciseId: UUID!) {
+                    mutateAssignment (assessmentId: $assignmentId) {
+                        deleteExercise (itemId: $exerciseId)
+                    }
+                }
+                """;
+
+        tester.document(query)
+                .variable("assignmentId", assignmentEntity.getId())
+                .variable("exerciseId", exerciseId)
+                .execute()
+                .path("mutateAssignment.deleteExercise")
+                .entity(UUID.class)
+                .isEqualTo(exerciseId);
+
+        final List<OutboxEventEntity> outboxEvents = outboxEventRepository.findAll().stream()
+                .filter(outboxEvent -> outboxEvent.getAggregateId().equals(exerciseId.toString()))
+                .toList();
+        assertThat(outboxEvents.size(), is(1));
+        assertThat(outboxEvents.getFirst().getEventType(), is(OutboxEventEntity.EventType.ITEM_CHANGED));
+        assertThat(outboxEvents.getFirst().getPayload(), containsString("DELETE"));
+        verify(topicPublisher, never()).notifyItemChanges(eq(exerciseId), any());
+    }
+}
@@ -0,0 +1,173 @@
+package de.unistuttgart.iste.meitrex.assignment_service.api;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.ExternalCourseEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradingEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.AssignmentRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.ExternalCourseRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradingRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.CodeAssessmentProvider;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.ExternalGrading;
+import de.unistuttgart.iste.meitrex.assignment_service.test_config.*;
+import de.unistuttgart.iste.meitrex.assignment_service.test_utils.TestUtils;
+import de.unistuttgart.iste.meitrex.common.testutil.GraphQlApiTest;
+import de.unistuttgart.iste.meitrex.common.testutil.InjectCurrentUserHeader;
+import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
+import de.unistuttgart.iste.meitrex.content_service.client.ContentServiceClient;
+import de.unistuttgart.iste.meitrex.course_service.client.CourseServiceClient;
+import de.unistuttgart.iste.meitrex.generated.dto.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.graphql.test.tester.GraphQlTester;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static de.unistuttgart.iste.meitrex.common.testutil.TestUsers.userWithMembershipInCourseWithId;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that reading the gradings of a code assignment doesn't hold a database connection while the remote
+ * services are called. Not transactional on purpose, a test transaction would be joined by the service.
+ */
+@GraphQlApiTest
+@ContextConfiguration(classes = {
+        MockedCodeAssessmentProviderConfig.class,
+        MockedUserServiceClientConfig.class,
+        MockedCourseServiceClientConfig.class,
+        MockedContentServiceClientConfig.class,
+        MockedTopicPublisherConfig.class
+})
+class QueryGetCodeGradingConnectionUsageTest {
+
+    private final UUID courseId = UUID.randomUUID();
+
+    @InjectCurrentUserHeader
+    private final LoggedInUser loggedInUser = userWithMembershipInCourseWithId(courseId, LoggedInUser.UserRoleInCourse.STUDENT);
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private GradingRepository gradingRepository;
+
+    @Autowired
+    private ExternalCourseRepository externalCourseRepository;
+
+    @Autowired
+    private CodeAssessmentProvider codeAssessmentProvider;
+
+    @Autowired
+    private ContentServiceClient contentServiceClient;
+
+    @Autowired
+    private CourseServiceClient courseServiceClient;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestUtils testUtils;
+
+    private final String courseTitle = "courseTitle-" + courseId;
+
+    // names of the remote calls during which a transaction or a database session was bound to the request thread
+    private final List<String> callsHoldingConnection = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        gradingRepository.deleteAll();
+        assignmentRepository.deleteAll();
+        externalCourseRepository.deleteById(courseTitle);
+    }
+
+    @Test
+    void testNoConnectionIsHeldDuringRemoteCalls(final GraphQlTester tester) throws Exception {
+        final UUID studentId = loggedInUser.getId();
+        final AssignmentEntity assignment = testUtils.populateAssignmentRepositoryWithCodeAssignment(assignmentRepository, courseId);
+        externalCourseRepository.save(new ExternalCourseEntity(courseTitle, "https://external.provider.url", "TestOrg"));
+
+        final AssignmentAssessment mockedAssessment = AssignmentAssessment.builder()
+                .setId(assignment.getAssessmentId())
+                .setAssessmentMetadata(AssessmentMetadata.builder()
+                        .setSkillPoints(50)
+                        .setSkillTypes(List.of(SkillType.CREATE))
+                        .setInitialLearningInterval(50)
+                        .build())
+                .setItems(List.of())
+                .setUserProgressData(new UserProgressData())
+                .setMetadata(ContentMetadata.builder()
+                        .setChapterId(UUID.randomUUID())
+                        .setCourseId(courseId)
+                        .setName("Connection Usage Assignment")
+                        .setRewardPoints(50)
+                        .setSuggestedDate(OffsetDateTime.now().plusDays(7))
+                        .setType(ContentType.ASSIGNMENT)
+                        .setTagNames(List.of("code", "assignment")).build()).build();
+
+        when(contentServiceClient.queryContentsOfCourse(studentId, courseId)).thenAnswer(invocation -> {
+            recordConnectionUsage("queryContentsOfCourse");
+            return List.of(mockedAssessment);
+        });
+        when(courseServiceClient.queryCourseById(eq(courseId))).thenAnswer(invocation -> {
+            recordConnectionUsage("queryCourseById");
+            return Course.builder().setId(courseId).setTitle(courseTitle).build();
+        });
+        when(codeAssessmentProvider.findRepository(eq("Connection Usage Assignment"), eq("TestOrg"), any())).thenAnswer(invocation -> {
+            recordConnectionUsage("findRepository");
+            return "https://github.com/user/connection-usage-repo";
+        });
+        final ExternalGrading externalGrading = new ExternalGrading("ext-student-id", "https://github.com/user/connection-usage-repo",
+                OffsetDateTime.now().truncatedTo(ChronoUnit.SECONDS), "<table>feedback</table>", 30.0, 40.0, "connection-usage-sha");
+        when(codeAssessmentProvider.syncGradeForStudent(eq("https://github.com/user/connection-usage-repo"), any(), any())).thenAnswer(invocation -> {
+            recordConnectionUsage("syncGradeForStudent");
+            return externalGrading;
+        });
+
+        final String query = """
+                query($assignmentId: UUID!) {
+                    getGradingsForAssignment(assessmentId: $assignmentId) {
+                        assessmentId
+                        studentId
+                        achievedCredits
+                    }
+                }
+                """;
+
+        final List<Grading> results = tester.document(query)
+                .variable("assignmentId", assignment.getAssessmentId())
+                .execute()
+                .path("getGradingsForAssignment")
+                .entityList(Grading.class)
+                .get();
+
+        assertThat(results, hasSize(1));
+        assertThat(results.get(0).getAchievedCredits(), is(30.0));
+        assertThat(callsHoldingConnection, is(empty()));
+
+        // the results of the remote calls were written afterwards
+        final GradingEntity gradingEntity = gradingRepository.findWithAllGradingsByPrimaryKey(
+                new GradingEntity.PrimaryKey(assignment.getAssessmentId(), studentId)).orElseThrow();
+        assertThat(gradingEntity.getCodeAssignmentGradingMetadata().getRepoLink(), is("https://github.com/user/connection-usage-repo"));
+        assertThat(assignmentRepository.findById(assignment.getAssessmentId()).orElseThrow().getTotalCredits(), is(40.0));
+    }
+
+    private void recordConnectionUsage(final String call) {
+        // a bound entity manager holds a connection, as it would with open-session-in-view
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+            || TransactionSynchronizationManager.hasResource(entityManagerFactory)) {
+            callsHoldingConnection.add(call);
+        }
+    }
+}
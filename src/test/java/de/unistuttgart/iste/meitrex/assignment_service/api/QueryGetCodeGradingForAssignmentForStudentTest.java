@@ -40,6 +40,7 @@ import static de.unistuttgart.iste.meitrex.common.testutil.TestUsers.userWithMem
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.*;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.Mockito.*;
 
 @GraphQlApiTest
@@ -120,7 +121,7 @@ class QueryGetCodeGradingForAssignmentForStudentTest {
 
         when(codeAssessmentProvider.findRepository(eq(assignment.getExternalId()), any(), any())).thenReturn(gradingEntity.getCodeAssignmentGradingMetadata().getRepoLink());
 
-        when(codeAssessmentProvider.syncGradeForStudent(eq(gradingEntity.getCodeAssignmentGradingMetadata().getRepoLink()), any())).thenReturn(externalGrading);
+        when(codeAssessmentProvider.syncGradeForStudent(eq(gradingEntity.getCodeAssignmentGradingMetadata().getRepoLink()), any(), any())).thenReturn(externalGrading);
 
         String query = """
                 query($assignmentId: UUID!) {
@@ -147,6 +148,8 @@ class QueryGetCodeGradingForAssignmentForStudentTest {
 
         AssignmentEntity updatedAssignment = assignmentRepository.findById(assignment.getAssessmentId()).orElseThrow();
         assertThat(updatedAssignment.getTotalCredits(), is(60.0));
+        // the total credits were read from a log, the admin view doesn't have to read them again
+        assertThat(updatedAssignment.getCodeAssignmentMetadata().getTotalCreditsDeterminedAt(), is(notNullValue()));
 
         ArgumentCaptor<ContentProgressedEvent> captor = ArgumentCaptor.forClass(ContentProgressedEvent.class);
         verify(topicPublisher, atLeastOnce()).notifyUserWorkedOnContent(captor.capture());
@@ -230,7 +233,7 @@ class QueryGetCodeGradingForAssignmentForStudentTest {
                 50.0,
                 "test-commit-sha-2"
         );
-        when(codeAssessmentProvider.syncGradeForStudent(eq("https://github.com/user/repo"), any()))
+        when(codeAssessmentProvider.syncGradeForStudent(eq("https://github.com/user/repo"), any(), any()))
                 .thenReturn(externalGrading);
 
         String query = """
@@ -279,4 +282,54 @@ class QueryGetCodeGradingForAssignmentForStudentTest {
         assertThat(event.getResponses().isEmpty(), is(true));
     }
 
-}
\ No newline at end of file
+    @Test
+    @Transactional
+    void testStudentRepositoryIsFoundWithStoredSlugAndOrganization(GraphQlTester tester)
+            throws ExternalPlatformConnectionException, ContentServiceConnectionException, UserServiceConnectionException, CourseServiceConnectionException {
+
+        final UUID studentId = loggedInUser.getId();
+        AssignmentEntity assignment = testUtils.populateAssignmentRepositoryWithCodeAssignment(assignmentRepository, courseId);
+        assignment.getCodeAssignmentMetadata().setAssignmentSlug("stored-assignment-slug");
+        assignment.getCodeAssignmentMetadata().setOrganizationName("StoredOrg");
+        assignment = assignmentRepository.save(assignment);
+
+        when(codeAssessmentProvider.findRepository(eq("stored-assignment-slug"), eq("StoredOrg"), any(LoggedInUser.class)))
+                .thenReturn("https://github.com/user/stored-repo");
+
+        ExternalGrading externalGrading = new ExternalGrading(
+                "ext-student-id",
+                "https://github.com/user/stored-repo",
+                OffsetDateTime.now().truncatedTo(ChronoUnit.SECONDS),
+                "<table>feedback</table>",
+                20.0,
+                40.0,
+                "stored-commit-sha"
+        );
+        when(codeAssessmentProvider.syncGradeForStudent(eq("https://github.com/user/stored-repo"), any(), any()))
+                .thenReturn(externalGrading);
+
+        String query = """
+            query($assignmentId: UUID!) {
+                getGradingsForAssignment(assessmentId: $assignmentId) {
+                    studentId
+                    achievedCredits
+                }
+            }
+            """;
+
+        List<Grading> results = tester.document(query)
+                .variable("assignmentId", assignment.getAssessmentId())
+                .execute()
+                .path("getGradingsForAssignment")
+                .entityList(Grading.class)
+                .get();
+
+        assertThat(results.get(0).getStudentId(), is(studentId));
+        assertThat(results.get(0).getAchievedCredits(), is(20.0));
+
+        // no other service is needed to find the repository
+        verify(contentServiceClient, never()).queryContentsOfCourse(studentId, courseId);
+        verify(courseServiceClient, never()).queryCourseById(courseId);
+    }
+
+}
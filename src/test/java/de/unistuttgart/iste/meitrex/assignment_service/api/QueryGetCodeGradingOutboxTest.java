@@ -0,0 +1,144 @@
+package de.unistuttgart.iste.meitrex.assignment_service.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.OutboxEventEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.CodeAssignmentGradingMetadataEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradingEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.AssignmentRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradingRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.OutboxEventRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.CodeAssessmentProvider;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.ExternalGrading;
+import de.unistuttgart.iste.meitrex.assignment_service.test_config.*;
+import de.unistuttgart.iste.meitrex.assignment_service.test_utils.TestUtils;
+import de.unistuttgart.iste.meitrex.common.dapr.TopicPublisher;
+import de.unistuttgart.iste.meitrex.common.event.ContentProgressedEvent;
+import de.unistuttgart.iste.meitrex.common.testutil.GraphQlApiTest;
+import de.unistuttgart.iste.meitrex.common.testutil.InjectCurrentUserHeader;
+import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
+import de.unistuttgart.iste.meitrex.generated.dto.Grading;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.graphql.test.tester.GraphQlTester;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static de.unistuttgart.iste.meitrex.common.testutil.TestUsers.userWithMembershipInCourseWithId;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests that syncing a code assignment grading stores its progress in the outbox if the outbox is enabled, as part of
+ * the transaction which changes the grading. Transactional, so the relay never sees the stored events.
+ */
+@GraphQlApiTest
+@TestPropertySource(properties = {
+        "outbox.enabled=true",
+        "outbox.relay.interval_ms=3600000"
+})
+@ContextConfiguration(classes = {
+        MockedCodeAssessmentProviderConfig.class,
+        MockedUserServiceClientConfig.class,
+        MockedCourseServiceClientConfig.class,
+        MockedContentServiceClientConfig.class,
+        MockedTopicPublisherConfig.class
+})
+class QueryGetCodeGradingOutboxTest {
+
+    private static final String QUERY = """
+            query($assignmentId: UUID!) {
+                getGradingsForAssignment(assessmentId: $assignmentId) {
+                    studentId
+                    achievedCredits
+                }
+            }
+            """;
+
+    private final UUID courseId = UUID.randomUUID();
+
+    @InjectCurrentUserHeader
+    private final LoggedInUser loggedInUser = userWithMembershipInCourseWithId(courseId, LoggedInUser.UserRoleInCourse.STUDENT);
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private GradingRepository gradingRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private CodeAssessmentProvider codeAssessmentProvider;
+
+    @Autowired
+    private TopicPublisher topicPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TestUtils testUtils;
+
+    @Test
+    @Transactional
+    void testSyncedProgressIsStoredInOutboxAndMarkedPublished(final GraphQlTester tester) throws Exception {
+        final UUID studentId = loggedInUser.getId();
+        final AssignmentEntity assignment = testUtils.populateAssignmentRepositoryWithCodeAssignment(assignmentRepository, courseId);
+        final String repoLink = testUtils.populateGradingRepositoryForCodeAssignment(gradingRepository, assignment, studentId)
+                .getFirst().getCodeAssignmentGradingMetadata().getRepoLink();
+        when(codeAssessmentProvider.syncGradeForStudent(eq(repoLink), any(), any())).thenReturn(new ExternalGrading(
+                "ext-user", "SUCCESS", OffsetDateTime.now(), "<table>feedback</table>", 42.0, 60.0, "outbox-commit-sha"));
+
+        final Grading grading = queryGrading(tester, assignment);
+        assertThat(grading.getAchievedCredits(), is(42.0));
+
+        // stored in the outbox instead of being published directly
+        final String aggregateId = assignment.getAssessmentId() + "/" + studentId;
+        final List<OutboxEventEntity> outboxEvents = outboxEventsOf(aggregateId);
+        assertThat(outboxEvents.size(), is(1));
+        assertThat(outboxEvents.getFirst().getEventType(), is(OutboxEventEntity.EventType.CONTENT_PROGRESSED));
+        assertThat(outboxEvents.getFirst().getAttempts(), is(0));
+        final ContentProgressedEvent event = objectMapper.readValue(outboxEvents.getFirst().getPayload(), ContentProgressedEvent.class);
+        assertThat(event.getUserId(), is(studentId));
+        assertThat(event.getContentId(), is(assignment.getAssessmentId()));
+        assertThat(event.getCorrectness(), is(42.0 / 60.0));
+        verify(topicPublisher, never()).notifyUserWorkedOnContent(argThat(published -> published.getUserId().equals(studentId)));
+
+        // marked as published in the same transaction
+        final CodeAssignmentGradingMetadataEntity metadata = gradingRepository
+                .findById(new GradingEntity.PrimaryKey(assignment.getAssessmentId(), studentId))
+                .orElseThrow().getCodeAssignmentGradingMetadata();
+        assertThat(metadata.getLastPublishedAchievedCredits(), is(42.0));
+        assertThat(metadata.getLastPublishedTotalCredits(), is(60.0));
+
+        // syncing the unchanged grading again stores no further event
+        queryGrading(tester, assignment);
+        assertThat(outboxEventsOf(aggregateId).size(), is(1));
+    }
+
+    private Grading queryGrading(final GraphQlTester tester, final AssignmentEntity assignment) {
+        final List<Grading> gradings = tester.document(QUERY)
+                .variable("assignmentId", assignment.getAssessmentId())
+                .execute()
+                .path("getGradingsForAssignment")
+                .entityList(Grading.class)
+                .get();
+        assertThat(gradings.size(), is(1));
+        return gradings.getFirst();
+    }
+
+    private List<OutboxEventEntity> outboxEventsOf(final String aggregateId) {
+        return outboxEventRepository.findAll().stream()
+                .filter(outboxEvent -> outboxEvent.getAggregateId().equals(aggregateId))
+                .toList();
+    }
+}
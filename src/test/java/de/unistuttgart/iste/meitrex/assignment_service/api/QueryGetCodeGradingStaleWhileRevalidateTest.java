@@ -0,0 +1,170 @@
+package de.unistuttgart.iste.meitrex.assignment_service.api;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.CodeAssignmentGradingMetadataEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradingEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.AssignmentRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradingRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.CodeAssessmentProvider;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.ExternalGrading;
+import de.unistuttgart.iste.meitrex.assignment_service.test_config.*;
+import de.unistuttgart.iste.meitrex.assignment_service.test_utils.TestUtils;
+import de.unistuttgart.iste.meitrex.common.testutil.GraphQlApiTest;
+import de.unistuttgart.iste.meitrex.common.testutil.InjectCurrentUserHeader;
+import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
+import de.unistuttgart.iste.meitrex.generated.dto.Grading;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.graphql.test.tester.GraphQlTester;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static de.unistuttgart.iste.meitrex.common.testutil.TestUsers.userWithMembershipInCourseWithId;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests reading the grading of a code assignment in stale-while-revalidate mode. Not transactional on purpose,
+ * the background refresh runs in its own transaction and has to see the stored grading.
+ */
+@GraphQlApiTest
+@TestPropertySource(properties = {
+        "code_assignment.grading.stale_while_revalidate=true",
+        "code_assignment.grading.freshness_seconds=60"
+})
+@ContextConfiguration(classes = {
+        MockedCodeAssessmentProviderConfig.class,
+        MockedUserServiceClientConfig.class,
+        MockedCourseServiceClientConfig.class,
+        MockedContentServiceClientConfig.class,
+        MockedTopicPublisherConfig.class
+})
+class QueryGetCodeGradingStaleWhileRevalidateTest {
+
+    private static final String QUERY = """
+            query($assignmentId: UUID!) {
+                getGradingsForAssignment(assessmentId: $assignmentId) {
+                    studentId
+                    achievedCredits
+                    codeAssignmentGradingMetadata {
+                        repoLink
+                        feedbackTableHtml
+                        isStale
+                    }
+                }
+            }
+            """;
+
+    private final UUID courseId = UUID.randomUUID();
+
+    @InjectCurrentUserHeader
+    private final LoggedInUser loggedInUser = userWithMembershipInCourseWithId(courseId, LoggedInUser.UserRoleInCourse.STUDENT);
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private GradingRepository gradingRepository;
+
+    @Autowired
+    private CodeAssessmentProvider codeAssessmentProvider;
+
+    @Autowired
+    private TestUtils testUtils;
+
+    @AfterEach
+    void cleanUp() {
+        gradingRepository.deleteAll();
+        assignmentRepository.deleteAll();
+    }
+
+    @Test
+    void testFreshGradingIsReturnedWithoutSync(final GraphQlTester tester) throws Exception {
+        final AssignmentEntity assignment = testUtils.populateAssignmentRepositoryWithCodeAssignment(assignmentRepository, courseId);
+        final String repoLink = "https://github.com/user/fresh-repo-" + courseId;
+        storeGrading(assignment, repoLink, OffsetDateTime.now().minusSeconds(10));
+
+        final Grading grading = queryGrading(tester, assignment);
+
+        assertThat(grading.getAchievedCredits(), is(5.0));
+        assertThat(grading.getCodeAssignmentGradingMetadata().getIsStale(), is(false));
+        verify(codeAssessmentProvider, never()).syncGradeForStudent(eq(repoLink), any(), any());
+    }
+
+    @Test
+    void testStaleGradingIsReturnedAndRefreshedInBackground(final GraphQlTester tester) throws Exception {
+        final AssignmentEntity assignment = testUtils.populateAssignmentRepositoryWithCodeAssignment(assignmentRepository, courseId);
+        final String repoLink = "https://github.com/user/stale-repo-" + courseId;
+        storeGrading(assignment, repoLink, OffsetDateTime.now().minusHours(1));
+        when(codeAssessmentProvider.syncGradeForStudent(eq(repoLink), any(), any())).thenReturn(new ExternalGrading(
+                "ext-student-id", "SUCCESS", OffsetDateTime.now().truncatedTo(ChronoUnit.SECONDS),
+                "<table>refreshed</table>", 8.0, 10.0, null));
+
+        // the stored grading is returned without waiting for the external platform
+        final Grading grading = queryGrading(tester, assignment);
+        assertThat(grading.getAchievedCredits(), is(5.0));
+        assertThat(grading.getCodeAssignmentGradingMetadata().getIsStale(), is(true));
+
+        verify(codeAssessmentProvider, timeout(5000)).syncGradeForStudent(eq(repoLink), any(), any());
+        final GradingEntity refreshedGrading = awaitRefresh(assignment);
+        assertThat(refreshedGrading.getAchievedCredits(), is(8.0));
+
+        // the next read returns the refreshed grading without syncing again
+        final Grading nextGrading = queryGrading(tester, assignment);
+        assertThat(nextGrading.getAchievedCredits(), is(8.0));
+        assertThat(nextGrading.getCodeAssignmentGradingMetadata().getFeedbackTableHtml(), is("<table>refreshed</table>"));
+        assertThat(nextGrading.getCodeAssignmentGradingMetadata().getIsStale(), is(false));
+        verify(codeAssessmentProvider, times(1)).syncGradeForStudent(eq(repoLink), any(), any());
+    }
+
+    private void storeGrading(final AssignmentEntity assignment, final String repoLink, final OffsetDateTime lastSyncedAt) {
+        final GradingEntity grading = GradingEntity.builder()
+                .primaryKey(new GradingEntity.PrimaryKey(assignment.getAssessmentId(), loggedInUser.getId()))
+                .date(OffsetDateTime.now().minusDays(1))
+                .achievedCredits(5.0)
+                .build();
+        grading.setCodeAssignmentGradingMetadata(CodeAssignmentGradingMetadataEntity.builder()
+                .id(grading.getPrimaryKey())
+                .grading(grading)
+                .repoLink(repoLink)
+                .feedbackTableHtml("<table>stored</table>")
+                .lastSyncedAt(lastSyncedAt)
+                .build());
+        gradingRepository.save(grading);
+    }
+
+    private Grading queryGrading(final GraphQlTester tester, final AssignmentEntity assignment) {
+        final List<Grading> gradings = tester.document(QUERY)
+                .variable("assignmentId", assignment.getAssessmentId())
+                .execute()
+                .path("getGradingsForAssignment")
+                .entityList(Grading.class)
+                .get();
+        assertThat(gradings.size(), is(1));
+        return gradings.getFirst();
+    }
+
+    /**
+     * Waits until the background refresh has written the synced grading.
+     */
+    private GradingEntity awaitRefresh(final AssignmentEntity assignment) throws InterruptedException {
+        final GradingEntity.PrimaryKey primaryKey = new GradingEntity.PrimaryKey(assignment.getAssessmentId(), loggedInUser.getId());
+        for (int i = 0; i < 50; i++) {
+            final GradingEntity grading = gradingRepository.findById(primaryKey).orElseThrow();
+            if (!Double.valueOf(5.0).equals(grading.getAchievedCredits())) {
+                return grading;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Grading was not refreshed in the background");
+    }
+}
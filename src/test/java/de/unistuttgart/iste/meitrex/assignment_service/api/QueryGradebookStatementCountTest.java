@@ -0,0 +1,108 @@
+package de.unistuttgart.iste.meitrex.assignment_service.api;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.AssignmentRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradingRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.test_utils.TestUtils;
+import de.unistuttgart.iste.meitrex.common.testutil.GraphQlApiTest;
+import de.unistuttgart.iste.meitrex.common.testutil.InjectCurrentUserHeader;
+import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
+import de.unistuttgart.iste.meitrex.generated.dto.Grading;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.graphql.test.tester.GraphQlTester;
+
+import java.util.UUID;
+
+import static de.unistuttgart.iste.meitrex.common.testutil.TestUsers.userWithMembershipInCourseWithId;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests that the gradebook of an assignment is loaded with the same number of statements, independent of the
+ * number of students. Not transactional on purpose, the gradings must not be in the persistence context already.
+ */
+@GraphQlApiTest
+class QueryGradebookStatementCountTest {
+
+    private static final String QUERY = """
+            query($assignmentId: UUID!) {
+                getGradingsForAssignment(assessmentId: $assignmentId) {
+                    studentId
+                    achievedCredits
+                    exerciseGradings {
+                        itemId
+                        achievedCredits
+                        subexerciseGradings {
+                            itemId
+                            achievedCredits
+                        }
+                    }
+                }
+            }
+            """;
+
+    private final UUID courseId = UUID.randomUUID();
+
+    @InjectCurrentUserHeader
+    private final LoggedInUser loggedInUser = userWithMembershipInCourseWithId(courseId, LoggedInUser.UserRoleInCourse.TUTOR);
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private GradingRepository gradingRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestUtils testUtils;
+
+    @AfterEach
+    void cleanUp() {
+        gradingRepository.deleteAll();
+        assignmentRepository.deleteAll();
+    }
+
+    @Test
+    void testGradebookStatementCountIsIndependentOfStudentCount(final GraphQlTester tester) {
+        final AssignmentEntity assignmentWithOneStudent = assignmentWithGradedStudents(1);
+        final AssignmentEntity assignmentWithManyStudents = assignmentWithGradedStudents(10);
+
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            final long statementsForOneStudent = countStatementsOfGradebook(tester, statistics, assignmentWithOneStudent, 1);
+            final long statementsForManyStudents = countStatementsOfGradebook(tester, statistics, assignmentWithManyStudents, 10);
+
+            assertThat(statementsForManyStudents, is(statementsForOneStudent));
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    private AssignmentEntity assignmentWithGradedStudents(final int studentCount) {
+        final AssignmentEntity assignment = testUtils.populateAssignmentRepository(assignmentRepository, courseId);
+        for (int i = 0; i < studentCount; i++) {
+            testUtils.populateGradingRepository(gradingRepository, assignment, UUID.randomUUID());
+        }
+        return assignment;
+    }
+
+    private long countStatementsOfGradebook(final GraphQlTester tester, final Statistics statistics,
+                                            final AssignmentEntity assignment, final int studentCount) {
+        statistics.clear();
+        tester.document(QUERY)
+                .variable("assignmentId", assignment.getAssessmentId())
+                .execute()
+                .path("getGradingsForAssignment")
+                .entityList(Grading.class)
+                .hasSize(studentCount);
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,143 @@
+package de.unistuttgart.iste.meitrex.assignment_service.api;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.CodeAssignmentGradingMetadataEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradingEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.AssignmentRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradingRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.service.GradingService;
+import de.unistuttgart.iste.meitrex.assignment_service.service.GradingUpdateBroadcaster;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.CodeAssessmentProvider;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.ExternalGrading;
+import de.unistuttgart.iste.meitrex.assignment_service.test_config.*;
+import de.unistuttgart.iste.meitrex.assignment_service.test_utils.TestUtils;
+import de.unistuttgart.iste.meitrex.common.testutil.GraphQlApiTest;
+import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
+import de.unistuttgart.iste.meitrex.generated.dto.Grading;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import reactor.core.Disposable;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static de.unistuttgart.iste.meitrex.common.testutil.TestUsers.userWithMembershipInCourseWithId;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests which grading updates the subscribers of an assignment receive. Not transactional on purpose, the
+ * background sync started by a subscription runs in its own transaction and has to see the stored grading.
+ */
+@GraphQlApiTest
+@ContextConfiguration(classes = {
+        MockedCodeAssessmentProviderConfig.class,
+        MockedUserServiceClientConfig.class,
+        MockedCourseServiceClientConfig.class,
+        MockedContentServiceClientConfig.class,
+        MockedTopicPublisherConfig.class
+})
+class SubscriptionGradingUpdatedTest {
+
+    private final UUID courseId = UUID.randomUUID();
+
+    private final LoggedInUser student = userWithMembershipInCourseWithId(courseId, LoggedInUser.UserRoleInCourse.STUDENT);
+
+    private final LoggedInUser tutor = userWithMembershipInCourseWithId(courseId, LoggedInUser.UserRoleInCourse.TUTOR);
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private GradingRepository gradingRepository;
+
+    @Autowired
+    private CodeAssessmentProvider codeAssessmentProvider;
+
+    @Autowired
+    private GradingService gradingService;
+
+    @Autowired
+    private GradingUpdateBroadcaster gradingUpdateBroadcaster;
+
+    @Autowired
+    private TestUtils testUtils;
+
+    @AfterEach
+    void cleanUp() {
+        gradingRepository.deleteAll();
+        assignmentRepository.deleteAll();
+    }
+
+    @Test
+    void testStudentReceivesOnlyOwnGradingAndTutorReceivesAll() {
+        final AssignmentEntity assignment = testUtils.populateAssignmentRepository(assignmentRepository, courseId);
+        final List<Grading> receivedByStudent = new CopyOnWriteArrayList<>();
+        final List<Grading> receivedByTutor = new CopyOnWriteArrayList<>();
+        final Disposable studentSubscription = gradingService.subscribeToGradingUpdates(assignment.getAssessmentId(), student)
+                .subscribe(receivedByStudent::add);
+        final Disposable tutorSubscription = gradingService.subscribeToGradingUpdates(assignment.getAssessmentId(), tutor)
+                .subscribe(receivedByTutor::add);
+
+        final Grading ownGrading = grading(assignment, student.getId());
+        final Grading otherGrading = grading(assignment, UUID.randomUUID());
+        gradingUpdateBroadcaster.publish(ownGrading);
+        gradingUpdateBroadcaster.publish(otherGrading);
+
+        assertThat(receivedByStudent, is(List.of(ownGrading)));
+        assertThat(receivedByTutor, is(List.of(ownGrading, otherGrading)));
+
+        studentSubscription.dispose();
+        tutorSubscription.dispose();
+    }
+
+    @Test
+    void testSubscriptionSyncsStaleCodeAssignmentGrading() throws Exception {
+        final AssignmentEntity assignment = testUtils.populateAssignmentRepositoryWithCodeAssignment(assignmentRepository, courseId);
+        final String repoLink = "https://github.com/user/subscribed-repo-" + courseId;
+        final GradingEntity gradingEntity = GradingEntity.builder()
+                .primaryKey(new GradingEntity.PrimaryKey(assignment.getAssessmentId(), student.getId()))
+                .date(OffsetDateTime.now().minusDays(1))
+                .achievedCredits(5.0)
+                .build();
+        gradingEntity.setCodeAssignmentGradingMetadata(CodeAssignmentGradingMetadataEntity.builder()
+                .id(gradingEntity.getPrimaryKey())
+                .grading(gradingEntity)
+                .repoLink(repoLink)
+                .lastSyncedAt(OffsetDateTime.now().minusHours(1))
+                .build());
+        gradingRepository.save(gradingEntity);
+        when(codeAssessmentProvider.syncGradeForStudent(eq(repoLink), any(), any())).thenReturn(new ExternalGrading(
+                "ext-student-id", "SUCCESS", OffsetDateTime.now().truncatedTo(ChronoUnit.SECONDS),
+                "<table>feedback</table>", 8.0, 10.0, null));
+
+        final List<Grading> received = new CopyOnWriteArrayList<>();
+        final Disposable subscription = gradingService.subscribeToGradingUpdates(assignment.getAssessmentId(), student)
+                .subscribe(received::add);
+
+        verify(codeAssessmentProvider, timeout(5000)).syncGradeForStudent(eq(repoLink), any(), any());
+        for (int i = 0; i < 50 && received.isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(received.size(), is(1));
+        assertThat(received.getFirst().getStudentId(), is(student.getId()));
+        assertThat(received.getFirst().getAchievedCredits(), is(8.0));
+
+        subscription.dispose();
+    }
+
+    private static Grading grading(final AssignmentEntity assignment, final UUID studentId) {
+        return Grading.builder()
+                .setAssessmentId(assignment.getAssessmentId())
+                .setStudentId(studentId)
+                .build();
+    }
+}
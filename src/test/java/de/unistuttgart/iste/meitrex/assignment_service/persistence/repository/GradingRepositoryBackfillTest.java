@@ -0,0 +1,85 @@
+package de.unistuttgart.iste.meitrex.assignment_service.persistence.repository;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.CodeAssignmentGradingMetadataEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradingEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.test_utils.TestUtils;
+import de.unistuttgart.iste.meitrex.common.testutil.GraphQlApiTest;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests storing discovered repositories of a code assignment with the set-based statements of the repository.
+ */
+@GraphQlApiTest
+class GradingRepositoryBackfillTest {
+
+    private final UUID courseId = UUID.randomUUID();
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private GradingRepository gradingRepository;
+
+    @Autowired
+    private TestUtils testUtils;
+
+    @Test
+    @Transactional
+    void testBackfillRepoLinksCreatesMissingGradingsAndKeepsStoredLinks() {
+        final AssignmentEntity assignment = testUtils.populateAssignmentRepositoryWithCodeAssignment(assignmentRepository, courseId);
+        final UUID studentWithoutLink = UUID.randomUUID();
+        final UUID studentWithLink = UUID.randomUUID();
+        final UUID studentWithoutGrading = UUID.randomUUID();
+        final UUID otherStudentWithoutGrading = UUID.randomUUID();
+        saveGrading(assignment, studentWithoutLink, null);
+        saveGrading(assignment, studentWithLink, "https://github.com/org/stored-repo");
+
+        final int backfilledCount = gradingRepository.backfillRepoLinks(assignment.getAssessmentId(), Map.of(
+                studentWithoutLink, "https://github.com/org/repo-1",
+                studentWithLink, "https://github.com/org/discovered-repo",
+                studentWithoutGrading, "https://github.com/org/repo-3",
+                otherStudentWithoutGrading, "https://github.com/org/repo-4"));
+
+        assertThat(backfilledCount, is(3));
+        final Map<UUID, String> repoLinksByStudentId = gradingRepository
+                .findAllWithMetadataByPrimaryKey_AssessmentId(assignment.getAssessmentId()).stream()
+                .collect(Collectors.toMap(grading -> grading.getPrimaryKey().getStudentId(),
+                        grading -> grading.getCodeAssignmentGradingMetadata().getRepoLink()));
+        assertThat(repoLinksByStudentId, is(Map.of(
+                studentWithoutLink, "https://github.com/org/repo-1",
+                studentWithLink, "https://github.com/org/stored-repo",
+                studentWithoutGrading, "https://github.com/org/repo-3",
+                otherStudentWithoutGrading, "https://github.com/org/repo-4")));
+    }
+
+    @Test
+    @Transactional
+    void testBackfillRepoLinksWithoutDiscoveredRepositories() {
+        final AssignmentEntity assignment = testUtils.populateAssignmentRepositoryWithCodeAssignment(assignmentRepository, courseId);
+
+        assertThat(gradingRepository.backfillRepoLinks(assignment.getAssessmentId(), Map.of()), is(0));
+        assertThat(gradingRepository.findAllWithMetadataByPrimaryKey_AssessmentId(assignment.getAssessmentId()).isEmpty(), is(true));
+    }
+
+    private void saveGrading(final AssignmentEntity assignment, final UUID studentId, final String repoLink) {
+        final GradingEntity grading = GradingEntity.builder()
+                .primaryKey(new GradingEntity.PrimaryKey(assignment.getAssessmentId(), studentId))
+                .build();
+        grading.setCodeAssignmentGradingMetadata(CodeAssignmentGradingMetadataEntity.builder()
+                .id(grading.getPrimaryKey())
+                .grading(grading)
+                .repoLink(repoLink)
+                .build());
+        gradingRepository.save(grading);
+    }
+}
@@ -0,0 +1,67 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentCreditIndex;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.exercise.ExerciseEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.exercise.SubexerciseEntity;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentCreditIndexTest {
+
+    private final UUID exerciseId = UUID.randomUUID();
+    private final UUID otherExerciseId = UUID.randomUUID();
+    private final UUID subexerciseId = UUID.randomUUID();
+
+    private AssignmentEntity createAssignment() {
+        SubexerciseEntity subexercise = SubexerciseEntity.builder().itemId(subexerciseId).totalSubexerciseCredits(3).build();
+        ExerciseEntity exercise = ExerciseEntity.builder().itemId(exerciseId).totalExerciseCredits(10)
+                .subexercises(new ArrayList<>(List.of(subexercise))).build();
+        ExerciseEntity otherExercise = ExerciseEntity.builder().itemId(otherExerciseId).totalExerciseCredits(5)
+                .subexercises(new ArrayList<>()).build();
+        return AssignmentEntity.builder().assessmentId(UUID.randomUUID())
+                .exercises(new ArrayList<>(List.of(exercise, otherExercise))).build();
+    }
+
+    @Test
+    void testLookupOfCredits() {
+        AssignmentCreditIndex index = AssignmentCreditIndex.of(createAssignment());
+
+        int exerciseSlot = index.exerciseSlot(exerciseId);
+        assertEquals(10, index.totalCredits(exerciseSlot));
+        assertEquals(5, index.totalCredits(index.exerciseSlot(otherExerciseId)));
+        assertEquals(3, index.totalCredits(index.subexerciseSlot(exerciseSlot, subexerciseId)));
+    }
+
+    @Test
+    void testUnknownItemsAreRejected() {
+        AssignmentCreditIndex index = AssignmentCreditIndex.of(createAssignment());
+
+        assertThrows(EntityNotFoundException.class, () -> index.exerciseSlot(UUID.randomUUID()));
+        // a subexercise is not an exercise
+        assertThrows(EntityNotFoundException.class, () -> index.exerciseSlot(subexerciseId));
+        // the subexercise belongs to another exercise
+        int otherExerciseSlot = index.exerciseSlot(otherExerciseId);
+        assertThrows(EntityNotFoundException.class, () -> index.subexerciseSlot(otherExerciseSlot, subexerciseId));
+    }
+
+    @Test
+    void testIndexIsRebuiltAfterInvalidation() {
+        AssignmentEntity assignment = createAssignment();
+        AssignmentCreditIndex index = assignment.creditIndex();
+        assertSame(index, assignment.creditIndex());
+
+        assignment.getExercises().get(0).setTotalExerciseCredits(12);
+        assignment.invalidateCreditIndex();
+
+        AssignmentCreditIndex rebuiltIndex = assignment.creditIndex();
+        assertNotSame(index, rebuiltIndex);
+        assertEquals(12, rebuiltIndex.totalCredits(rebuiltIndex.exerciseSlot(exerciseId)));
+    }
+}
@@ -1,14 +1,22 @@
 package de.unistuttgart.iste.meitrex.assignment_service.service;
 
+import de.unistuttgart.iste.meitrex.assignment_service.config.EventTopicConfiguration;
 import de.unistuttgart.iste.meitrex.assignment_service.exception.ExternalPlatformConnectionException;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.AssignmentEntity;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.CodeAssignmentMetadataEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.assignment.exercise.ExerciseEntity;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.mapper.AssignmentMapper;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.AssignmentRepository;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.ExternalCodeAssignmentRepository;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.ExternalCourseRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradesSnapshotEntryRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradesSnapshotRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradingImportStateRepository;
 import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradingRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.OutboxEventRepository;
 import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.CodeAssessmentProvider;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.MissingRepositoryCache;
+import de.unistuttgart.iste.meitrex.assignment_service.service.event.EventPublisher;
 import de.unistuttgart.iste.meitrex.assignment_service.validation.AssignmentValidator;
 import de.unistuttgart.iste.meitrex.common.dapr.TopicPublisher;
 import de.unistuttgart.iste.meitrex.common.event.ContentChangeEvent;
@@ -24,11 +32,13 @@ import de.unistuttgart.iste.meitrex.generated.dto.Course;
 import de.unistuttgart.iste.meitrex.generated.dto.ExternalCourse;
 import de.unistuttgart.iste.meitrex.generated.dto.UpdateAssignmentInput;
 import jakarta.persistence.EntityNotFoundException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.modelmapper.ModelMapper;
-import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradingEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
@@ -48,13 +58,17 @@ class AssignmentServiceTest {
     private final AssignmentMapper assignmentMapper = new AssignmentMapper(new ModelMapper());
     private final AssignmentValidator assignmentValidator = new AssignmentValidator();
     private final TopicPublisher topicPublisher = Mockito.mock(TopicPublisher.class);
+    private final EventPublisher eventPublisher = new EventPublisher(topicPublisher, Mockito.mock(OutboxEventRepository.class), Optional.empty(), new EventTopicConfiguration(), new ObjectMapper(), false);
     private final CourseServiceClient courseServiceClient = Mockito.mock(CourseServiceClient.class);
     private final ContentServiceClient contentServiceClient = Mockito.mock(ContentServiceClient.class);
     private final CodeAssessmentProvider codeAssessmentProvider = Mockito.mock(CodeAssessmentProvider.class);
     private final ExternalCodeAssignmentRepository externalCodeAssignmentRepository = Mockito.mock(ExternalCodeAssignmentRepository.class);
     private final ExternalCourseRepository externalCourseRepository = Mockito.mock(ExternalCourseRepository.class);
+    private final GradingImportStateRepository gradingImportStateRepository = Mockito.mock(GradingImportStateRepository.class);
+    private final GradesSnapshotRepository gradesSnapshotRepository = Mockito.mock(GradesSnapshotRepository.class);
+    private final GradesSnapshotEntryRepository gradesSnapshotEntryRepository = Mockito.mock(GradesSnapshotEntryRepository.class);
 
-    private final AssignmentService assignmentService = new AssignmentService(assignmentRepository, assignmentMapper, assignmentValidator, topicPublisher, courseServiceClient, contentServiceClient, codeAssessmentProvider, externalCodeAssignmentRepository, gradingRepository, externalCourseRepository);
+    private final AssignmentService assignmentService = new AssignmentService(assignmentRepository, assignmentMapper, assignmentValidator, topicPublisher, eventPublisher, courseServiceClient, contentServiceClient, codeAssessmentProvider, externalCodeAssignmentRepository, gradingRepository, externalCourseRepository, new OptimisticLockRetry(TransactionOperations.withoutTransaction(), 2), Mockito.mock(MissingRepositoryCache.class), TransactionOperations.withoutTransaction(), gradingImportStateRepository, gradesSnapshotRepository, gradesSnapshotEntryRepository);
 
     private UUID courseId = UUID.randomUUID();
     private String courseTitle;
@@ -100,7 +114,7 @@ class AssignmentServiceTest {
 
         // invoke method under test
         assertDoesNotThrow(() -> assignmentService.deleteAssignmentIfContentIsDeleted(contentChangeEvent));
-        verify(assignmentRepository, times(1)).deleteAllById(any());
+        verify(assignmentRepository, times(1)).deleteAllByAssessmentIds(any());
     }
 
     @Test
@@ -116,20 +130,35 @@ class AssignmentServiceTest {
                 .exercises(new ArrayList<>())
                 .build();
 
-        GradingEntity gradingEntity = GradingEntity.builder()
-                .primaryKey(new GradingEntity.PrimaryKey(UUID.randomUUID(), assessmentId))
-                .build();
-
         when(assignmentRepository.findAllById(contentChangeEvent.getContentIds()))
                 .thenReturn(List.of(assignment));
-        when(gradingRepository.findAllByPrimaryKey_AssessmentIdIn(List.of(assessmentId)))
-                .thenReturn(List.of(gradingEntity));
 
         assertDoesNotThrow(() -> assignmentService.deleteAssignmentIfContentIsDeleted(contentChangeEvent));
 
-        verify(gradingRepository, times(1)).findAllByPrimaryKey_AssessmentIdIn(List.of(assessmentId));
-        verify(gradingRepository, times(1)).deleteAll(List.of(gradingEntity));
-        verify(assignmentRepository, times(1)).deleteAllById(List.of(assessmentId));
+        // gradings are deleted set-based without loading them
+        verify(gradingRepository, never()).findAllByPrimaryKey_AssessmentIdIn(any());
+        verify(gradingRepository, times(1)).deleteAllByAssessmentIds(List.of(assessmentId));
+        verify(assignmentRepository, times(1)).deleteAllByAssessmentIds(List.of(assessmentId));
+    }
+
+    @Test
+    void deleteAssignmentIfContentIsDeletedAlsoDeletesImportStatesAndGradesSnapshotsTest() {
+        final UUID assessmentId = UUID.randomUUID();
+        final ContentChangeEvent contentChangeEvent = ContentChangeEvent.builder()
+                .contentIds(List.of(assessmentId))
+                .operation(CrudOperation.DELETE)
+                .build();
+
+        assertDoesNotThrow(() -> assignmentService.deleteAssignmentIfContentIsDeleted(contentChangeEvent));
+
+        // deleted set-based together with the gradings, before the assignment itself
+        final var inOrder = inOrder(gradingRepository, gradingImportStateRepository, gradesSnapshotEntryRepository,
+                gradesSnapshotRepository, assignmentRepository);
+        inOrder.verify(gradingRepository).deleteAllByAssessmentIds(List.of(assessmentId));
+        inOrder.verify(gradingImportStateRepository).deleteAllByAssignmentIds(List.of(assessmentId));
+        inOrder.verify(gradesSnapshotEntryRepository).deleteAllByAssignmentIds(List.of(assessmentId));
+        inOrder.verify(gradesSnapshotRepository).deleteAllByAssignmentIds(List.of(assessmentId));
+        inOrder.verify(assignmentRepository).deleteAllByAssessmentIds(List.of(assessmentId));
     }
 
     @Test
@@ -147,7 +176,7 @@ class AssignmentServiceTest {
 
         // invoke method under test
         assertDoesNotThrow(() -> assignmentService.deleteAssignmentIfContentIsDeleted(contentChangeEvent));
-        verify(assignmentRepository, times(1)).deleteAllById(any());
+        verify(assignmentRepository, times(1)).deleteAllByAssessmentIds(any());
     }
 
     @Test
@@ -187,17 +216,47 @@ class AssignmentServiceTest {
             // invoke method under test
             assertDoesNotThrow(() -> assignmentService.deleteAssignmentIfContentIsDeleted(event));
             verify(assignmentRepository, never()).findAllById(any());
-            verify(assignmentRepository, never()).deleteAllById(any());
+            verify(assignmentRepository, never()).deleteAllByAssessmentIds(any());
         }
 
         for (ContentChangeEvent errorEvent : errorEvents) {
             // invoke method under test
             assertThrows(IncompleteEventMessageException.class, () -> assignmentService.deleteAssignmentIfContentIsDeleted(errorEvent));
             verify(assignmentRepository, never()).findAllById(any());
-            verify(assignmentRepository, never()).deleteAllById(any());
+            verify(assignmentRepository, never()).deleteAllByAssessmentIds(any());
         }
     }
 
+    @Test
+    void deleteExercisePublishesItemChangeOnceIfRetriedTest() {
+        final UUID assessmentId = UUID.randomUUID();
+        final UUID exerciseId = UUID.randomUUID();
+        // every attempt loads the assignment anew
+        when(assignmentRepository.findById(assessmentId)).thenAnswer(invocation -> {
+            final AssignmentEntity assignmentEntity = AssignmentEntity.builder()
+                    .assessmentId(assessmentId)
+                    .totalCredits(10.0)
+                    .exercises(new ArrayList<>())
+                    .build();
+            assignmentEntity.getExercises().add(ExerciseEntity.builder()
+                    .itemId(exerciseId)
+                    .totalExerciseCredits(10.0)
+                    .subexercises(new ArrayList<>())
+                    .parentAssignment(assignmentEntity)
+                    .build());
+            return Optional.of(assignmentEntity);
+        });
+        // the first attempt conflicts with a concurrent modification
+        when(assignmentRepository.save(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(AssignmentEntity.class, assessmentId))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertEquals(exerciseId, assignmentService.deleteExercise(assessmentId, exerciseId));
+
+        verify(assignmentRepository, times(2)).save(any());
+        verify(topicPublisher, times(1)).notifyItemChanges(exerciseId, CrudOperation.DELETE);
+    }
+
     @Test
     void updateCodeAssignment_UpdatesRequiredPercentage() {
         UUID assessmentId = UUID.randomUUID();
@@ -272,6 +331,7 @@ class AssignmentServiceTest {
         assertEquals(courseTitle, course.getCourseTitle());
         assertEquals(organizationName, course.getOrganizationName());
         assertEquals(url, course.getUrl());
+        verify(assignmentRepository).updateOrganizationNameOfCourse(courseId, organizationName);
     }
 
     @Test
@@ -0,0 +1,75 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ContentDeletionBatcherTest {
+
+    private final AssignmentService assignmentService = Mockito.mock(AssignmentService.class);
+
+    @Test
+    void testContentIdsOfEventsAreDeletedTogether() {
+        ContentDeletionBatcher batcher = new ContentDeletionBatcher(assignmentService, 10, 10, 10);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        CompletableFuture<Void> firstResult = batcher.submit("event-1", List.of(first)).orElseThrow();
+        CompletableFuture<Void> secondResult = batcher.submit("event-2", List.of(second, first)).orElseThrow();
+        batcher.flush();
+
+        verify(assignmentService, times(1)).deleteAssignmentsOfContents(List.of(first, second));
+        assertTrue(firstResult.isDone() && !firstResult.isCompletedExceptionally());
+        assertTrue(secondResult.isDone() && !secondResult.isCompletedExceptionally());
+    }
+
+    @Test
+    void testRedeliveredEventIsNotProcessedAgain() {
+        ContentDeletionBatcher batcher = new ContentDeletionBatcher(assignmentService, 10, 10, 10);
+        List<UUID> contentIds = List.of(UUID.randomUUID());
+
+        batcher.submit("event-1", contentIds);
+        batcher.flush();
+        CompletableFuture<Void> redelivered = batcher.submit("event-1", contentIds).orElseThrow();
+        batcher.flush();
+
+        assertTrue(redelivered.isDone());
+        verify(assignmentService, times(1)).deleteAssignmentsOfContents(any());
+    }
+
+    @Test
+    void testFailedDeletionCanBeRetried() {
+        ContentDeletionBatcher batcher = new ContentDeletionBatcher(assignmentService, 10, 10, 10);
+        List<UUID> contentIds = List.of(UUID.randomUUID());
+        doThrow(new IllegalStateException("database down")).doNothing()
+                .when(assignmentService).deleteAssignmentsOfContents(any());
+
+        CompletableFuture<Void> failed = batcher.submit("event-1", contentIds).orElseThrow();
+        batcher.flush();
+        assertTrue(failed.isCompletedExceptionally());
+
+        CompletableFuture<Void> retried = batcher.submit("event-1", contentIds).orElseThrow();
+        batcher.flush();
+        assertTrue(retried.isDone() && !retried.isCompletedExceptionally());
+        verify(assignmentService, times(2)).deleteAssignmentsOfContents(contentIds);
+    }
+
+    @Test
+    void testSubmitIsRejectedIfQueueIsFull() {
+        ContentDeletionBatcher batcher = new ContentDeletionBatcher(assignmentService, 1, 10, 10);
+
+        assertTrue(batcher.submit("event-1", List.of(UUID.randomUUID())).isPresent());
+        Optional<CompletableFuture<Void>> rejected = batcher.submit("event-2", List.of(UUID.randomUUID()));
+
+        assertTrue(rejected.isEmpty());
+        verify(assignmentService, never()).deleteAssignmentsOfContents(any());
+    }
+}
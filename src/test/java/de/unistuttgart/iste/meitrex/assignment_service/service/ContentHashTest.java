@@ -0,0 +1,30 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentHashTest {
+
+    @Test
+    void testHashOfJsonDoesNotDependOnKeyOrder() {
+        JSONObject first = new JSONObject("{\"studentId\":\"s1\",\"gradingData\":{\"points\":5,\"exerciseGradings\":[]}}");
+        JSONObject second = new JSONObject("{\"gradingData\":{\"exerciseGradings\":[],\"points\":5},\"studentId\":\"s1\"}");
+
+        assertEquals(ContentHash.sha256HexOfJson(first.toMap()), ContentHash.sha256HexOfJson(second.toMap()));
+    }
+
+    @Test
+    void testHashOfJsonChangesWithContent() {
+        JSONObject first = new JSONObject("{\"studentId\":\"s1\",\"gradingData\":{\"points\":5}}");
+        JSONObject second = new JSONObject("{\"studentId\":\"s1\",\"gradingData\":{\"points\":6}}");
+
+        assertNotEquals(ContentHash.sha256HexOfJson(first.toMap()), ContentHash.sha256HexOfJson(second.toMap()));
+    }
+
+    @Test
+    void testSha256Hex() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", ContentHash.sha256Hex(""));
+    }
+}
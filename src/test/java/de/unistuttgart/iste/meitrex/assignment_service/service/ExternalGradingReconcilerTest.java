@@ -0,0 +1,60 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradingEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.ExternalGrading;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.ExternalGradingReconciler;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.ReconciliationResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalGradingReconcilerTest {
+
+    private final ExternalGradingReconciler reconciler = new ExternalGradingReconciler();
+
+    @Test
+    void testReconcileOnlyReturnsChangedGradings() {
+        UUID assignmentId = UUID.randomUUID();
+        OffsetDateTime date = OffsetDateTime.of(2025, 5, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+
+        GradingEntity unchanged = createGrading(assignmentId, 10.0, date.withOffsetSameInstant(ZoneOffset.ofHours(2)));
+        GradingEntity changed = createGrading(assignmentId, 5.0, date);
+        GradingEntity withoutExternalGrading = createGrading(assignmentId, null, null);
+        GradingEntity withoutExternalUsername = createGrading(assignmentId, null, null);
+
+        List<ExternalGrading> externalGradings = List.of(
+                new ExternalGrading("alice", "passed", date, null, 10.0, 0.0, null),
+                new ExternalGrading("bob", "passed", date, null, 8.0, 0.0, null),
+                new ExternalGrading("bob", "passed", date, null, 1.0, 0.0, null));
+        Map<UUID, String> userIdToExternalId = Map.of(
+                unchanged.getPrimaryKey().getStudentId(), "alice",
+                changed.getPrimaryKey().getStudentId(), "bob",
+                withoutExternalGrading.getPrimaryKey().getStudentId(), "carol");
+
+        ReconciliationResult result = reconciler.reconcile(
+                List.of(unchanged, changed, withoutExternalGrading, withoutExternalUsername),
+                reconciler.indexByExternalUsername(externalGradings),
+                userIdToExternalId);
+
+        assertEquals(List.of(changed), result.changedGradings());
+        assertEquals(1, result.unchangedCount());
+        assertEquals(2, result.unmatchedCount());
+        // the first external grading of a username is used
+        assertEquals(8.0, changed.getAchievedCredits());
+        assertEquals(date, changed.getDate());
+    }
+
+    private GradingEntity createGrading(final UUID assignmentId, final Double achievedCredits, final OffsetDateTime date) {
+        return GradingEntity.builder()
+                .primaryKey(new GradingEntity.PrimaryKey(assignmentId, UUID.randomUUID()))
+                .achievedCredits(achievedCredits)
+                .date(date)
+                .build();
+    }
+}
@@ -23,8 +23,10 @@ import okhttp3.mockwebserver.MockResponse;
 import java.io.IOException;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -355,6 +357,153 @@ class GithubClassroomTest {
         assertEquals("completed", grading.status());
     }
 
+    @Test
+    void testSyncGradeForStudent_jobLogMode() throws Exception {
+        GithubClassroom jobLogGithubClassroom = new GithubClassroom(
+                userServiceClient,
+                assignmentRepository,
+                externalCodeAssignmentRepository,
+                mockWebServer.url("/").toString(),
+                "job"
+        );
+        LoggedInUser user = mock(LoggedInUser.class);
+        when(userServiceClient.queryAccessToken(eq(user), any()))
+                .thenReturn(AccessToken.builder()
+                        .setAccessToken("dummy-token")
+                        .build());
+
+        mockWebServer.enqueue(new MockResponse().setBody("""
+        {
+          "workflow_runs": [
+            {
+              "id": 4711,
+              "status": "completed",
+              "logs_url": "http://localhost:%d/logs",
+              "updated_at": "2025-07-10T14:00:00Z"
+            }
+          ]
+        }
+        """.formatted(mockWebServer.getPort()))
+                .setHeader("Content-Type", "application/json"));
+        mockWebServer.enqueue(new MockResponse().setBody("""
+        {
+          "total_count": 2,
+          "jobs": [
+            { "id": 1, "name": "lint" },
+            { "id": 2, "name": "run-autograding-tests" }
+          ]
+        }
+        """)
+                .setHeader("Content-Type", "application/json"));
+        mockWebServer.enqueue(new MockResponse().setBody("""
+                2025-07-10T14:00:00.0000000Z Test runner summary
+                2025-07-10T14:00:00.0000000Z {"totalPoints":8.0,"maxPoints":10.0}
+                """)
+                .setHeader("Content-Type", "text/plain"));
+
+        ExternalGrading grading = jobLogGithubClassroom.syncGradeForStudent("https://github.com/org-name/assignment-repo", user);
+
+        assertEquals(8.0, grading.achievedPoints());
+        assertEquals(10.0, grading.totalPoints());
+        assertEquals(3, mockWebServer.getRequestCount());
+        assertTrue(mockWebServer.takeRequest().getPath().endsWith("/repos/org-name/assignment-repo/actions/runs?per_page=1"));
+        assertTrue(mockWebServer.takeRequest().getPath().endsWith("/repos/org-name/assignment-repo/actions/runs/4711/jobs?per_page=100"));
+        assertTrue(mockWebServer.takeRequest().getPath().endsWith("/repos/org-name/assignment-repo/actions/jobs/2/logs"));
+    }
+
+    @Test
+    void testSyncGradeForStudent_jobLogModeFallsBackToArchiveWithoutAutogradingJob() throws Exception {
+        GithubClassroom jobLogGithubClassroom = createJobLogGithubClassroom();
+        LoggedInUser user = mockUserWithToken();
+
+        enqueueCompletedRun();
+        mockWebServer.enqueue(new MockResponse().setBody("""
+        {
+          "total_count": 1,
+          "jobs": [
+            { "id": 1, "name": "lint" }
+          ]
+        }
+        """)
+                .setHeader("Content-Type", "application/json"));
+        enqueueLogsArchive();
+
+        ExternalGrading grading = jobLogGithubClassroom.syncGradeForStudent("https://github.com/org-name/assignment-repo", user);
+
+        assertEquals(6.0, grading.achievedPoints());
+        assertEquals(10.0, grading.totalPoints());
+        assertEquals(3, mockWebServer.getRequestCount());
+        mockWebServer.takeRequest();
+        assertTrue(mockWebServer.takeRequest().getPath().endsWith("/repos/org-name/assignment-repo/actions/runs/4711/jobs?per_page=100"));
+        assertEquals("/logs", mockWebServer.takeRequest().getPath());
+    }
+
+    @Test
+    void testSyncGradeForStudent_jobLogModeFallsBackToArchiveIfJobLogFails() throws Exception {
+        GithubClassroom jobLogGithubClassroom = createJobLogGithubClassroom();
+        LoggedInUser user = mockUserWithToken();
+
+        enqueueCompletedRun();
+        mockWebServer.enqueue(new MockResponse().setBody("""
+        {
+          "total_count": 1,
+          "jobs": [
+            { "id": 2, "name": "run-autograding-tests" }
+          ]
+        }
+        """)
+                .setHeader("Content-Type", "application/json"));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404).setBody("Not Found"));
+        enqueueLogsArchive();
+
+        ExternalGrading grading = jobLogGithubClassroom.syncGradeForStudent("https://github.com/org-name/assignment-repo", user);
+
+        assertEquals(6.0, grading.achievedPoints());
+        assertEquals(10.0, grading.totalPoints());
+        assertEquals(4, mockWebServer.getRequestCount());
+        mockWebServer.takeRequest();
+        mockWebServer.takeRequest();
+        assertTrue(mockWebServer.takeRequest().getPath().endsWith("/repos/org-name/assignment-repo/actions/jobs/2/logs"));
+        assertEquals("/logs", mockWebServer.takeRequest().getPath());
+    }
+
+    @Test
+    void testSyncGradeForStudent_sameRunReusesLastGrading() throws Exception {
+        LoggedInUser user = mock(LoggedInUser.class);
+        when(userServiceClient.queryAccessToken(eq(user), any()))
+                .thenReturn(AccessToken.builder()
+                        .setAccessToken("dummy-token")
+                        .build());
+
+        mockWebServer.enqueue(new MockResponse().setBody("""
+        {
+          "workflow_runs": [
+            {
+              "id": 4711,
+              "run_attempt": 1,
+              "status": "completed",
+              "logs_url": "http://localhost:%d/logs",
+              "updated_at": "2025-07-10T14:00:00Z",
+              "head_sha": "abc123"
+            }
+          ]
+        }
+        """.formatted(mockWebServer.getPort()))
+                .setHeader("Content-Type", "application/json"));
+
+        ExternalGrading lastGrading = new ExternalGrading(null, "completed", null, "<table>feedback</table>",
+                7.0, 10.0, "abc123", "4711/1");
+        ExternalGrading grading = githubClassroom.syncGradeForStudent("https://github.com/org-name/assignment-repo", user, lastGrading);
+
+        assertEquals(7.0, grading.achievedPoints());
+        assertEquals(10.0, grading.totalPoints());
+        assertEquals("<table>feedback</table>", grading.tableHtml());
+        assertEquals("4711/1", grading.runId());
+        assertEquals(OffsetDateTime.parse("2025-07-10T14:00:00Z"), grading.date());
+        // the logs were not downloaded
+        assertEquals(1, mockWebServer.getRequestCount());
+    }
+
     @Test
     void testFindRepository_success() throws Exception {
         String token = "dummy-token";
@@ -379,4 +528,93 @@ class GithubClassroomTest {
 
         assertEquals(expectedUrl, actualUrl);
     }
+
+    @Test
+    void testFindRepositories_pagesThroughAcceptedAssignments() throws Exception {
+        LoggedInUser user = mock(LoggedInUser.class);
+
+        when(userServiceClient.queryAccessToken(eq(user), any()))
+                .thenReturn(AccessToken.builder().setAccessToken("dummy-token").build());
+
+        // a full first page, so the second page has to be requested
+        StringBuilder firstPage = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) {
+                firstPage.append(',');
+            }
+            firstPage.append("""
+                    { "students": [{ "login": "student%d" }], "repository": { "html_url": "https://github.com/org/assignment-student%d" } }
+                    """.formatted(i, i));
+        }
+        firstPage.append(']');
+        mockWebServer.enqueue(new MockResponse()
+                .setBody(firstPage.toString())
+                .setHeader("Content-Type", "application/json"));
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("""
+                        [
+                          { "students": [{ "login": "alice" }, { "login": "bob" }], "repository": { "html_url": "https://github.com/org/assignment-group" } },
+                          { "students": [{ "login": "carol" }], "repository": null }
+                        ]
+                        """)
+                .setHeader("Content-Type", "application/json"));
+
+        Map<String, String> repositories = githubClassroom.findRepositories("42", user);
+
+        assertEquals(102, repositories.size());
+        assertEquals("https://github.com/org/assignment-student7", repositories.get("student7"));
+        assertEquals("https://github.com/org/assignment-group", repositories.get("alice"));
+        assertEquals("https://github.com/org/assignment-group", repositories.get("bob"));
+        assertEquals(2, mockWebServer.getRequestCount());
+        assertTrue(mockWebServer.takeRequest().getPath().endsWith("/assignments/42/accepted_assignments?per_page=100&page=1"));
+        assertTrue(mockWebServer.takeRequest().getPath().endsWith("/assignments/42/accepted_assignments?per_page=100&page=2"));
+    }
+
+    private GithubClassroom createJobLogGithubClassroom() {
+        return new GithubClassroom(
+                userServiceClient,
+                assignmentRepository,
+                externalCodeAssignmentRepository,
+                mockWebServer.url("/").toString(),
+                "job"
+        );
+    }
+
+    private LoggedInUser mockUserWithToken() throws Exception {
+        LoggedInUser user = mock(LoggedInUser.class);
+        when(userServiceClient.queryAccessToken(eq(user), any()))
+                .thenReturn(AccessToken.builder()
+                        .setAccessToken("dummy-token")
+                        .build());
+        return user;
+    }
+
+    private void enqueueCompletedRun() {
+        mockWebServer.enqueue(new MockResponse().setBody("""
+        {
+          "workflow_runs": [
+            {
+              "id": 4711,
+              "status": "completed",
+              "logs_url": "http://localhost:%d/logs",
+              "updated_at": "2025-07-10T14:00:00Z"
+            }
+          ]
+        }
+        """.formatted(mockWebServer.getPort()))
+                .setHeader("Content-Type", "application/json"));
+    }
+
+    private void enqueueLogsArchive() throws IOException {
+        byte[] zipBytes = TestUtils.createZipWithEntry(
+                "autograding/run-autograding-tests.txt",
+                """
+                Test runner summary
+                {"totalPoints":6.0,"maxPoints":10.0}
+                """
+        );
+        mockWebServer.enqueue(new MockResponse()
+                .setBody(new Buffer().write(zipBytes))
+                .setHeader("Content-Type", "application/zip"));
+    }
 }
@@ -0,0 +1,173 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradesSnapshotEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradesSnapshotEntryEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradesSnapshotEntryRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.GradesSnapshotRepository;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.ExternalGrading;
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.GradesSnapshotCache;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.*;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class GradesSnapshotCacheTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T12:00:00Z"));
+    private final GradesSnapshotRepository gradesSnapshotRepository = mock(GradesSnapshotRepository.class);
+    private final GradesSnapshotEntryRepository gradesSnapshotEntryRepository = mock(GradesSnapshotEntryRepository.class);
+    private final GradesSnapshotCache gradesSnapshotCache = new GradesSnapshotCache(gradesSnapshotRepository, gradesSnapshotEntryRepository,
+            TransactionOperations.withoutTransaction(), Duration.ofMinutes(5), clock);
+
+    @Test
+    void testRecordedGradesAreAnswered() {
+        final UUID assignmentId = UUID.randomUUID();
+        gradesSnapshotCache.record(assignmentId, List.of(grading("student", 7.0)));
+
+        final GradesSnapshotCache.SnapshotGrading snapshotGrading = gradesSnapshotCache.findFreshGrading(assignmentId, "student").orElseThrow();
+        assertEquals(7.0, snapshotGrading.externalGrading().achievedPoints());
+        assertEquals(clock.instant(), snapshotGrading.syncedAt().toInstant());
+        assertTrue(gradesSnapshotCache.findFreshGrading(assignmentId, "other student").isEmpty());
+        verify(gradesSnapshotRepository).save(new GradesSnapshotEntity(assignmentId, snapshotGrading.syncedAt()));
+        verify(gradesSnapshotEntryRepository).saveAll(any());
+    }
+
+    @Test
+    void testOnlyChangedEntriesAreWritten() {
+        final UUID assignmentId = UUID.randomUUID();
+        // stored with another offset, but at the same instant
+        final OffsetDateTime submittedAt = OffsetDateTime.ofInstant(clock.instant(), ZoneOffset.ofHours(2));
+        when(gradesSnapshotEntryRepository.findAllByPrimaryKey_AssignmentId(assignmentId)).thenReturn(List.of(
+                entry(assignmentId, "unchanged", 7.0, submittedAt),
+                entry(assignmentId, "changed", 5.0, submittedAt),
+                entry(assignmentId, "removed", 4.0, submittedAt)));
+
+        gradesSnapshotCache.record(assignmentId, List.of(grading("unchanged", 7.0), grading("changed", 9.0), grading("added", 3.0)));
+
+        @SuppressWarnings("unchecked") final ArgumentCaptor<Iterable<GradesSnapshotEntryEntity>> savedCaptor =
+                ArgumentCaptor.forClass(Iterable.class);
+        @SuppressWarnings("unchecked") final ArgumentCaptor<Iterable<GradesSnapshotEntryEntity>> deletedCaptor =
+                ArgumentCaptor.forClass(Iterable.class);
+        verify(gradesSnapshotEntryRepository).saveAll(savedCaptor.capture());
+        verify(gradesSnapshotEntryRepository).deleteAll(deletedCaptor.capture());
+        assertEquals(List.of("added", "changed"), externalUsernamesOf(savedCaptor.getValue()));
+        assertEquals(List.of("removed"), externalUsernamesOf(deletedCaptor.getValue()));
+    }
+
+    @Test
+    void testMissingSnapshotIsRememberedUntilNextRecord() {
+        final UUID assignmentId = UUID.randomUUID();
+
+        assertFalse(gradesSnapshotCache.hasFreshSnapshot(assignmentId));
+        assertFalse(gradesSnapshotCache.hasFreshSnapshot(assignmentId));
+        assertTrue(gradesSnapshotCache.findFreshGrading(assignmentId, "student").isEmpty());
+        verify(gradesSnapshotRepository, times(1)).findById(assignmentId);
+        verify(gradesSnapshotEntryRepository, never()).findAllByPrimaryKey_AssignmentId(assignmentId);
+
+        gradesSnapshotCache.record(assignmentId, List.of(grading("student", 7.0)));
+        assertTrue(gradesSnapshotCache.hasFreshSnapshot(assignmentId));
+
+        // once the snapshot expired, the database is checked again for a snapshot of another instance
+        clock.advance(Duration.ofMinutes(5));
+        assertFalse(gradesSnapshotCache.hasFreshSnapshot(assignmentId));
+        assertFalse(gradesSnapshotCache.hasFreshSnapshot(assignmentId));
+        verify(gradesSnapshotRepository, times(2)).findById(assignmentId);
+    }
+
+    @Test
+    void testExpiredSnapshotIsNotAnswered() {
+        final UUID assignmentId = UUID.randomUUID();
+        gradesSnapshotCache.record(assignmentId, List.of(grading("student", 7.0)));
+
+        clock.advance(Duration.ofMinutes(5));
+
+        assertFalse(gradesSnapshotCache.hasFreshSnapshot(assignmentId));
+        assertTrue(gradesSnapshotCache.findFreshGrading(assignmentId, "student").isEmpty());
+    }
+
+    @Test
+    void testStoredSnapshotIsLoaded() {
+        final UUID assignmentId = UUID.randomUUID();
+        when(gradesSnapshotRepository.findById(assignmentId)).thenReturn(Optional.of(
+                new GradesSnapshotEntity(assignmentId, OffsetDateTime.ofInstant(clock.instant().minusSeconds(60), ZoneOffset.UTC))));
+        when(gradesSnapshotEntryRepository.findAllByPrimaryKey_AssignmentId(assignmentId)).thenReturn(List.of(
+                entry(assignmentId, "student", 5.0, null)));
+
+        assertTrue(gradesSnapshotCache.hasFreshSnapshot(assignmentId));
+        assertEquals(5.0, gradesSnapshotCache.findFreshGrading(assignmentId, "student").orElseThrow()
+                .externalGrading().achievedPoints());
+        // the entries are loaded once, not for every read
+        verify(gradesSnapshotEntryRepository, times(1)).findAllByPrimaryKey_AssignmentId(assignmentId);
+    }
+
+    @Test
+    void testNextRecordReplacesSnapshot() {
+        final UUID assignmentId = UUID.randomUUID();
+        gradesSnapshotCache.record(assignmentId, List.of(grading("student", 7.0)));
+
+        // e.g. an admin viewed the gradebook again
+        clock.advance(Duration.ofMinutes(1));
+        gradesSnapshotCache.record(assignmentId, List.of(grading("student", 9.0)));
+
+        final GradesSnapshotCache.SnapshotGrading snapshotGrading = gradesSnapshotCache.findFreshGrading(assignmentId, "student").orElseThrow();
+        assertEquals(9.0, snapshotGrading.externalGrading().achievedPoints());
+        assertEquals(clock.instant(), snapshotGrading.syncedAt().toInstant());
+    }
+
+    private GradesSnapshotEntryEntity entry(final UUID assignmentId, final String externalUsername,
+                                            final Double achievedPoints, final OffsetDateTime submittedAt) {
+        return new GradesSnapshotEntryEntity(new GradesSnapshotEntryEntity.PrimaryKey(assignmentId, externalUsername),
+                achievedPoints, submittedAt);
+    }
+
+    private static List<String> externalUsernamesOf(final Iterable<GradesSnapshotEntryEntity> entries) {
+        return StreamSupport.stream(entries.spliterator(), false)
+                .map(entry -> entry.getPrimaryKey().getExternalUsername())
+                .sorted()
+                .toList();
+    }
+
+    private ExternalGrading grading(final String externalUsername, final Double achievedPoints) {
+        return new ExternalGrading(externalUsername, "SUCCESS", OffsetDateTime.ofInstant(clock.instant(), ZoneOffset.UTC),
+                null, achievedPoints, 10.0, null);
+    }
+
+    /**
+     * Clock which only moves when advanced.
+     */
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(final Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(final Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import de.unistuttgart.iste.meitrex.generated.dto.Grading;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GradingUpdateBroadcasterTest {
+
+    private final GradingUpdateBroadcaster broadcaster = new GradingUpdateBroadcaster();
+
+    private final UUID assessmentId = UUID.randomUUID();
+
+    @Test
+    void testUpdatesAreSentToSubscribersOfTheAssignment() {
+        final List<Grading> firstReceived = new ArrayList<>();
+        final List<Grading> secondReceived = new ArrayList<>();
+        final List<Grading> otherReceived = new ArrayList<>();
+        final Disposable first = broadcaster.gradingUpdates(assessmentId).subscribe(firstReceived::add);
+        final Disposable second = broadcaster.gradingUpdates(assessmentId).subscribe(secondReceived::add);
+        final Disposable other = broadcaster.gradingUpdates(UUID.randomUUID()).subscribe(otherReceived::add);
+
+        final Grading grading = grading(assessmentId);
+        broadcaster.publish(grading);
+
+        assertEquals(List.of(grading), firstReceived);
+        assertEquals(List.of(grading), secondReceived);
+        assertEquals(List.of(), otherReceived);
+
+        first.dispose();
+        broadcaster.publish(grading(assessmentId));
+        assertEquals(1, firstReceived.size());
+        assertEquals(2, secondReceived.size());
+
+        second.dispose();
+        other.dispose();
+    }
+
+    @Test
+    void testSubscribingAgainAfterAllSubscribersLeft() {
+        broadcaster.gradingUpdates(assessmentId).subscribe().dispose();
+
+        final List<Grading> received = new ArrayList<>();
+        final Disposable subscription = broadcaster.gradingUpdates(assessmentId).subscribe(received::add);
+        final Grading grading = grading(assessmentId);
+        broadcaster.publish(grading);
+
+        assertEquals(List.of(grading), received);
+        subscription.dispose();
+    }
+
+    @Test
+    void testUpdateWithoutSubscribersIsDropped() {
+        broadcaster.publish(grading(assessmentId));
+
+        final List<Grading> received = new ArrayList<>();
+        final Disposable subscription = broadcaster.gradingUpdates(assessmentId).subscribe(received::add);
+
+        assertEquals(List.of(), received);
+        subscription.dispose();
+    }
+
+    private static Grading grading(final UUID assessmentId) {
+        return Grading.builder()
+                .setAssessmentId(assessmentId)
+                .setStudentId(UUID.randomUUID())
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.MissingRepositoryCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MissingRepositoryCacheTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+    private final MissingRepositoryCache cache = new MissingRepositoryCache(Duration.ofMinutes(5), 2, clock);
+
+    private final UUID assignmentId = UUID.randomUUID();
+    private final UUID studentId = UUID.randomUUID();
+
+    @Test
+    void testMissingRepositoryExpires() {
+        assertFalse(cache.isMissing(assignmentId, studentId));
+
+        cache.markMissing(assignmentId, studentId);
+        assertTrue(cache.isMissing(assignmentId, studentId));
+        assertFalse(cache.isMissing(assignmentId, UUID.randomUUID()));
+
+        clock.advance(Duration.ofMinutes(4));
+        assertTrue(cache.isMissing(assignmentId, studentId));
+
+        clock.advance(Duration.ofMinutes(1));
+        assertFalse(cache.isMissing(assignmentId, studentId));
+    }
+
+    @Test
+    void testInvalidation() {
+        final UUID otherStudentId = UUID.randomUUID();
+        cache.markMissing(assignmentId, studentId);
+        cache.markMissing(assignmentId, otherStudentId);
+
+        cache.invalidate(assignmentId, studentId);
+        assertFalse(cache.isMissing(assignmentId, studentId));
+        assertTrue(cache.isMissing(assignmentId, otherStudentId));
+
+        cache.invalidateAssignment(assignmentId);
+        assertFalse(cache.isMissing(assignmentId, otherStudentId));
+    }
+
+    @Test
+    void testOldestEntryIsEvictedWhenFull() {
+        final UUID secondStudentId = UUID.randomUUID();
+        final UUID thirdStudentId = UUID.randomUUID();
+        cache.markMissing(assignmentId, studentId);
+        cache.markMissing(assignmentId, secondStudentId);
+        cache.markMissing(assignmentId, thirdStudentId);
+
+        assertFalse(cache.isMissing(assignmentId, studentId));
+        assertTrue(cache.isMissing(assignmentId, secondStudentId));
+        assertTrue(cache.isMissing(assignmentId, thirdStudentId));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(final Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(final Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimisticLockRetryTest {
+
+    private final OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(TransactionOperations.withoutTransaction(), 3);
+
+    @Test
+    void testOperationIsRepeatedAfterConflict() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = optimisticLockRetry.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("concurrent modification");
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void testConflictIsThrownAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(OptimisticLockingFailureException.class, () -> optimisticLockRetry.execute(() -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("concurrent modification");
+        }));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void testOtherExceptionsAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> optimisticLockRetry.execute(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("invalid");
+        }));
+        assertEquals(1, attempts.get());
+    }
+}
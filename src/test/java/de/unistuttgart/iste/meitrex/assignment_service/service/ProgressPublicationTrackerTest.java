@@ -0,0 +1,56 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.CodeAssignmentGradingMetadataEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.grading.GradingEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProgressPublicationTrackerTest {
+
+    private final ProgressPublicationTracker tracker = new ProgressPublicationTracker(100);
+
+    @Test
+    void testUnchangedProgressIsNotPublishedAgain() {
+        GradingEntity grading = createGrading("commit-1");
+
+        assertTrue(tracker.hasChanged(grading, 10.0, 20.0));
+        tracker.markPublished(grading, 10.0, 20.0);
+
+        assertFalse(tracker.hasChanged(grading, 10.0, 20.0));
+        assertTrue(tracker.hasChanged(grading, 12.0, 20.0));
+        assertTrue(tracker.hasChanged(grading, 10.0, 25.0));
+
+        grading.getCodeAssignmentGradingMetadata().setLastProcessedCommitSha("commit-2");
+        assertTrue(tracker.hasChanged(grading, 10.0, 20.0));
+    }
+
+    @Test
+    void testPersistedProgressIsUsedAsFallback() {
+        GradingEntity grading = createGrading("commit-1");
+        tracker.markPublished(grading, 10.0, 20.0);
+
+        CodeAssignmentGradingMetadataEntity metadata = grading.getCodeAssignmentGradingMetadata();
+        assertEquals(10.0, metadata.getLastPublishedAchievedCredits());
+        assertEquals(20.0, metadata.getLastPublishedTotalCredits());
+        assertEquals("commit-1", metadata.getLastPublishedCommitSha());
+
+        // e.g. after a restart, nothing is in memory
+        ProgressPublicationTracker restartedTracker = new ProgressPublicationTracker(100);
+        assertFalse(restartedTracker.hasChanged(grading, 10.0, 20.0));
+        assertTrue(restartedTracker.hasChanged(grading, 11.0, 20.0));
+    }
+
+    private GradingEntity createGrading(final String commitSha) {
+        GradingEntity grading = GradingEntity.builder()
+                .primaryKey(new GradingEntity.PrimaryKey(UUID.randomUUID(), UUID.randomUUID()))
+                .build();
+        grading.setCodeAssignmentGradingMetadata(CodeAssignmentGradingMetadataEntity.builder()
+                .grading(grading)
+                .lastProcessedCommitSha(commitSha)
+                .build());
+        return grading;
+    }
+}
@@ -0,0 +1,70 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    @Test
+    void testConcurrentCallersShareOneExecution() throws Exception {
+        final AtomicInteger executions = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                release.await();
+                return "result";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            final Future<String> follower = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+                executions.incrementAndGet();
+                return "other result";
+            }));
+            // the follower doesn't finish while the leader is in flight
+            assertThrows(TimeoutException.class, () -> follower.get(100, TimeUnit.MILLISECONDS));
+
+            release.countDown();
+            assertEquals("result", leader.get(5, TimeUnit.SECONDS));
+            assertEquals("result", follower.get(5, TimeUnit.SECONDS));
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSequentialCallersExecuteAgain() throws Exception {
+        final AtomicInteger executions = new AtomicInteger();
+
+        final int first = singleFlight.execute("key", executions::incrementAndGet);
+        final int second = singleFlight.execute("key", executions::incrementAndGet);
+        final int third = singleFlight.execute("other key", executions::incrementAndGet);
+
+        assertEquals(1, first);
+        assertEquals(2, second);
+        assertEquals(3, third);
+    }
+
+    @Test
+    void testExceptionIsThrownToCaller() {
+        final IOException exception = new IOException("failed");
+
+        final IOException thrown = assertThrows(IOException.class, () -> singleFlight.execute("key", () -> {
+            throw exception;
+        }));
+        assertSame(exception, thrown);
+        // the failed call is not in flight anymore
+        assertDoesNotThrow(() -> singleFlight.execute("key", () -> "result"));
+    }
+}
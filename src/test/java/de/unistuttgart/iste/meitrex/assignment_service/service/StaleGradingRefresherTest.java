@@ -0,0 +1,99 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service;
+
+import de.unistuttgart.iste.meitrex.assignment_service.service.code_assignment.StaleGradingRefresher;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaleGradingRefresherTest {
+
+    private final Instant now = Instant.parse("2025-01-01T12:00:00Z");
+    private final QueuingExecutor executor = new QueuingExecutor();
+    private final StaleGradingRefresher refresher = new StaleGradingRefresher(true, Duration.ofMinutes(1),
+            Clock.fixed(now, ZoneOffset.UTC), executor);
+
+    @Test
+    void testGradingIsStaleAfterFreshnessWindow() {
+        assertTrue(refresher.isStale(null));
+        assertFalse(refresher.isStale(OffsetDateTime.ofInstant(now.minusSeconds(59), ZoneOffset.UTC)));
+        assertTrue(refresher.isStale(OffsetDateTime.ofInstant(now.minusSeconds(60), ZoneOffset.UTC)));
+    }
+
+    @Test
+    void testGradingIsRefreshedOnceAtATime() {
+        final AtomicInteger refreshes = new AtomicInteger();
+
+        assertTrue(refresher.refreshInBackground("grading", refreshes::incrementAndGet));
+        // the first refresh has not run yet
+        assertFalse(refresher.refreshInBackground("grading", refreshes::incrementAndGet));
+        assertTrue(refresher.refreshInBackground("other grading", refreshes::incrementAndGet));
+
+        executor.runAll();
+        assertEquals(2, refreshes.get());
+
+        // the refresh finished, the grading can be refreshed again
+        assertTrue(refresher.refreshInBackground("grading", refreshes::incrementAndGet));
+        executor.runAll();
+        assertEquals(3, refreshes.get());
+    }
+
+    @Test
+    void testFailedRefreshDoesNotBlockNextRefresh() {
+        assertTrue(refresher.refreshInBackground("grading", () -> {
+            throw new IllegalStateException("failed");
+        }));
+        executor.runAll();
+
+        assertTrue(refresher.refreshInBackground("grading", () -> {
+        }));
+    }
+
+    /**
+     * Executor which runs the submitted tasks only when asked to.
+     */
+    private static final class QueuingExecutor extends AbstractExecutorService {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        private void runAll() {
+            final List<Runnable> queuedTasks = new ArrayList<>(tasks);
+            tasks.clear();
+            queuedTasks.forEach(Runnable::run);
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            tasks.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) {
+            return true;
+        }
+    }
+}
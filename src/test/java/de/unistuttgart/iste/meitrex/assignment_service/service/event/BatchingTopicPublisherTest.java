@@ -0,0 +1,70 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service.event;
+
+import de.unistuttgart.iste.meitrex.assignment_service.config.EventTopicConfiguration;
+import io.dapr.client.DaprPreviewClient;
+import io.dapr.client.domain.BulkPublishEntry;
+import io.dapr.client.domain.BulkPublishResponse;
+import io.dapr.client.domain.BulkPublishResponseFailedEntry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BatchingTopicPublisherTest {
+
+    private final DaprPreviewClient daprPreviewClient = mock(DaprPreviewClient.class);
+    private final EventTopicConfiguration eventTopicConfiguration = mock(EventTopicConfiguration.class);
+
+    private BatchingTopicPublisher createPublisher(final int maxBatchSize) {
+        when(eventTopicConfiguration.getPubsubName()).thenReturn("meitrex");
+        return new BatchingTopicPublisher(daprPreviewClient, eventTopicConfiguration, maxBatchSize);
+    }
+
+    @Test
+    void testEventsAreSplitIntoRequestsOfMaxBatchSize() {
+        final BatchingTopicPublisher publisher = createPublisher(2);
+        when(daprPreviewClient.publishEvents(eq("meitrex"), eq("topic"), eq("application/json"), ArgumentMatchers.<String>anyList()))
+                .thenReturn(Mono.just(new BulkPublishResponse<>()));
+
+        final BulkPublishResult<String> result = publisher.publishAll("topic", List.of("a", "b", "c", "d", "e"));
+
+        assertEquals(5, result.publishedCount());
+        assertEquals(List.of(), result.failedEvents());
+        verify(daprPreviewClient).publishEvents("meitrex", "topic", "application/json", List.of("a", "b"));
+        verify(daprPreviewClient).publishEvents("meitrex", "topic", "application/json", List.of("c", "d"));
+        verify(daprPreviewClient).publishEvents("meitrex", "topic", "application/json", List.of("e"));
+    }
+
+    @Test
+    void testFailedEntriesAreReturnedWithTheirError() {
+        final BatchingTopicPublisher publisher = createPublisher(10);
+        final BulkPublishResponse<String> response = new BulkPublishResponse<>(List.of(
+                new BulkPublishResponseFailedEntry<>(new BulkPublishEntry<>("1", "b", "application/json"), "broker unavailable")));
+        when(daprPreviewClient.publishEvents(eq("meitrex"), eq("topic"), eq("application/json"), ArgumentMatchers.<String>anyList()))
+                .thenReturn(Mono.just(response));
+
+        final BulkPublishResult<String> result = publisher.publishAll("topic", List.of("a", "b", "c"));
+
+        assertEquals(2, result.publishedCount());
+        assertEquals(List.of(new BulkPublishResult.FailedEvent<>("b", "broker unavailable")), result.failedEvents());
+    }
+
+    @Test
+    void testAllEventsOfFailedRequestAreReturned() {
+        final BatchingTopicPublisher publisher = createPublisher(2);
+        when(daprPreviewClient.publishEvents(eq("meitrex"), eq("topic"), eq("application/json"), ArgumentMatchers.<String>anyList()))
+                .thenReturn(Mono.just(new BulkPublishResponse<>()))
+                .thenReturn(Mono.error(new IllegalStateException("sidecar unavailable")));
+
+        final BulkPublishResult<String> result = publisher.publishAll("topic", List.of("a", "b", "c", "d"));
+
+        // the first request succeeded, all events of the second one failed
+        assertEquals(2, result.publishedCount());
+        assertEquals(List.of("c", "d"), result.failedEvents().stream().map(BulkPublishResult.FailedEvent::event).toList());
+    }
+}
@@ -0,0 +1,90 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.unistuttgart.iste.meitrex.assignment_service.config.EventTopicConfiguration;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.OutboxEventEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.OutboxEventRepository;
+import de.unistuttgart.iste.meitrex.common.dapr.TopicPublisher;
+import de.unistuttgart.iste.meitrex.common.event.CrudOperation;
+import de.unistuttgart.iste.meitrex.common.testutil.GraphQlApiTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests the relay with the queries of the outbox against the database. Not transactional on purpose, the relay
+ * claims and records its batches in transactions of its own.
+ */
+@GraphQlApiTest
+class OutboxRelayIntegrationTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private TransactionOperations transactionOperations;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final TopicPublisher topicPublisher = Mockito.mock(TopicPublisher.class);
+
+    @AfterEach
+    void cleanUp() {
+        outboxEventRepository.deleteAll();
+    }
+
+    @Test
+    void testRelaySkipsAggregatesBlockedByAFailedEvent() throws Exception {
+        final OutboxRelay outboxRelay = new OutboxRelay(outboxEventRepository, topicPublisher, Optional.empty(),
+                Mockito.mock(EventTopicConfiguration.class), objectMapper, new SimpleMeterRegistry(), transactionOperations,
+                BATCH_SIZE, Duration.ofMinutes(1), Duration.ofSeconds(1), Duration.ofSeconds(60));
+        final OffsetDateTime now = OffsetDateTime.now();
+
+        // more blocked aggregates than fit into a batch, stored before the free one
+        final List<UUID> blockedItemIds = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE + 1; i++) {
+            final UUID blockedItemId = UUID.randomUUID();
+            blockedItemIds.add(blockedItemId);
+            // the first event failed and waits for its retry, the second one is due but held back behind it
+            outboxEventRepository.save(itemChangedEvent(blockedItemId, 1, now.plusMinutes(5)));
+            outboxEventRepository.save(itemChangedEvent(blockedItemId, 0, now.minusSeconds(1)));
+        }
+        final UUID freeItemId = UUID.randomUUID();
+        outboxEventRepository.save(itemChangedEvent(freeItemId, 0, now.minusSeconds(1)));
+
+        assertEquals(1, outboxRelay.relay());
+
+        verify(topicPublisher).notifyItemChanges(freeItemId, CrudOperation.DELETE);
+        for (final UUID blockedItemId : blockedItemIds) {
+            verify(topicPublisher, never()).notifyItemChanges(eq(blockedItemId), any());
+        }
+        assertEquals(2 * blockedItemIds.size(), outboxEventRepository.count());
+    }
+
+    private OutboxEventEntity itemChangedEvent(final UUID itemId, final int attempts, final OffsetDateTime nextAttemptAt) throws Exception {
+        return OutboxEventEntity.builder()
+                .aggregateId(itemId.toString())
+                .eventType(OutboxEventEntity.EventType.ITEM_CHANGED)
+                .payload(objectMapper.writeValueAsString(new EventPublisher.ItemChange(itemId, CrudOperation.DELETE)))
+                .createdAt(OffsetDateTime.now())
+                .attempts(attempts)
+                .nextAttemptAt(nextAttemptAt)
+                .build();
+    }
+}
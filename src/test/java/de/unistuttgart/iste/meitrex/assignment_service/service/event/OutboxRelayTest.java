@@ -0,0 +1,173 @@
+package de.unistuttgart.iste.meitrex.assignment_service.service.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.unistuttgart.iste.meitrex.assignment_service.config.EventTopicConfiguration;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.entity.OutboxEventEntity;
+import de.unistuttgart.iste.meitrex.assignment_service.persistence.repository.OutboxEventRepository;
+import de.unistuttgart.iste.meitrex.common.dapr.TopicPublisher;
+import de.unistuttgart.iste.meitrex.common.event.ContentProgressedEvent;
+import de.unistuttgart.iste.meitrex.common.event.CrudOperation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    private final OutboxEventRepository outboxEventRepository = Mockito.mock(OutboxEventRepository.class);
+    private final TopicPublisher topicPublisher = Mockito.mock(TopicPublisher.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final EventTopicConfiguration eventTopicConfiguration = Mockito.mock(EventTopicConfiguration.class);
+
+    private final OutboxRelay outboxRelay = new OutboxRelay(outboxEventRepository, topicPublisher, Optional.empty(),
+            eventTopicConfiguration, objectMapper, new SimpleMeterRegistry(), TransactionOperations.withoutTransaction(), 100, Duration.ofMinutes(1),
+            Duration.ofSeconds(1), Duration.ofSeconds(60));
+
+    @Test
+    void testRelayPublishesAndDeletesEvents() throws Exception {
+        UUID itemId = UUID.randomUUID();
+        OutboxEventEntity event = itemChangedEvent(1L, itemId);
+        dueEvents(event);
+
+        assertEquals(1, outboxRelay.relay());
+
+        verify(outboxEventRepository).claim(eq(List.of(1L)), argThat(claimedUntil -> claimedUntil.isAfter(OffsetDateTime.now())));
+        verify(topicPublisher).notifyItemChanges(itemId, CrudOperation.DELETE);
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L));
+    }
+
+    @Test
+    void testRelayClaimsNothingIfAllAggregatesAreLocked() {
+        when(outboxEventRepository.lockDueAggregates(any(), anyInt())).thenReturn(List.of());
+
+        assertEquals(0, outboxRelay.relay());
+
+        verify(outboxEventRepository, never()).findDueForRelay(any(), anyList(), anyInt());
+        verify(outboxEventRepository, never()).claim(anyList(), any());
+        verifyNoInteractions(topicPublisher);
+    }
+
+    @Test
+    void testRelayKeepsOrderPerAggregateOnFailure() throws Exception {
+        UUID failingItemId = UUID.randomUUID();
+        UUID otherItemId = UUID.randomUUID();
+        OutboxEventEntity failing = itemChangedEvent(1L, failingItemId);
+        OutboxEventEntity sameAggregate = itemChangedEvent(2L, failingItemId);
+        OutboxEventEntity otherAggregate = itemChangedEvent(3L, otherItemId);
+        dueEvents(failing, sameAggregate, otherAggregate);
+        doThrow(new IllegalStateException("sidecar unavailable"))
+                .when(topicPublisher).notifyItemChanges(failingItemId, CrudOperation.DELETE);
+
+        assertEquals(1, outboxRelay.relay());
+
+        // the second event of the failed aggregate must not overtake the first one
+        verify(topicPublisher, times(1)).notifyItemChanges(failingItemId, CrudOperation.DELETE);
+        verify(topicPublisher).notifyItemChanges(otherItemId, CrudOperation.DELETE);
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(3L));
+
+        assertEquals(1, failing.getAttempts());
+        assertTrue(failing.getNextAttemptAt().isAfter(OffsetDateTime.now()));
+        assertNotNull(failing.getLastError());
+        assertEquals(0, sameAggregate.getAttempts());
+        verify(outboxEventRepository).reschedule(1L, 1, failing.getNextAttemptAt(), failing.getLastError());
+        // the claim of the held back event is released, it waits for the failed one
+        verify(outboxEventRepository).claim(eq(List.of(2L)), argThat(claimedUntil -> !claimedUntil.isAfter(OffsetDateTime.now())));
+    }
+
+    @Test
+    void testRelayPublishesInBulkPerTopicAndRound() throws Exception {
+        BatchingTopicPublisher batchingTopicPublisher = Mockito.mock(BatchingTopicPublisher.class);
+        OutboxRelay bulkOutboxRelay = new OutboxRelay(outboxEventRepository, topicPublisher, Optional.of(batchingTopicPublisher),
+                eventTopicConfiguration, objectMapper, new SimpleMeterRegistry(), TransactionOperations.withoutTransaction(), 100, Duration.ofMinutes(1),
+            Duration.ofSeconds(1), Duration.ofSeconds(60));
+        when(eventTopicConfiguration.getContentProgressedTopic()).thenReturn("content-progressed");
+
+        UUID contentId = UUID.randomUUID();
+        UUID failingUserId = UUID.randomUUID();
+        UUID otherUserId = UUID.randomUUID();
+        OutboxEventEntity failing = contentProgressedEvent(1L, contentId, failingUserId, 0.5);
+        OutboxEventEntity other = contentProgressedEvent(2L, contentId, otherUserId, 1.0);
+        OutboxEventEntity sameAggregate = contentProgressedEvent(3L, contentId, failingUserId, 1.0);
+        dueEvents(failing, other, sameAggregate);
+
+        when(batchingTopicPublisher.publishAll(eq("content-progressed"), anyList())).thenAnswer(invocation -> {
+            List<Object> events = invocation.getArgument(1);
+            List<BulkPublishResult.FailedEvent<Object>> failedEvents = events.stream()
+                    .filter(event -> ((ContentProgressedEvent) event).getUserId().equals(failingUserId))
+                    .map(event -> new BulkPublishResult.FailedEvent<>(event, "broker unavailable"))
+                    .toList();
+            return new BulkPublishResult<>(events.size() - failedEvents.size(), failedEvents);
+        });
+
+        assertEquals(1, bulkOutboxRelay.relay());
+
+        // first round contains the first event of both aggregates, the failed aggregate is held back afterward
+        verify(batchingTopicPublisher, times(1)).publishAll(eq("content-progressed"), argThat((List<Object> events) -> events.size() == 2));
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(2L));
+        verifyNoInteractions(topicPublisher);
+        assertEquals(1, failing.getAttempts());
+        assertEquals("java.lang.IllegalStateException: broker unavailable", failing.getLastError());
+        assertEquals(0, sameAggregate.getAttempts());
+    }
+
+    @Test
+    void testBackoffIsExponentialAndCapped() {
+        assertEquals(Duration.ofSeconds(1), outboxRelay.backoff(1));
+        assertEquals(Duration.ofSeconds(2), outboxRelay.backoff(2));
+        assertEquals(Duration.ofSeconds(8), outboxRelay.backoff(4));
+        assertEquals(Duration.ofSeconds(60), outboxRelay.backoff(10));
+        assertEquals(Duration.ofSeconds(60), outboxRelay.backoff(100));
+    }
+
+    private void dueEvents(final OutboxEventEntity... events) {
+        when(outboxEventRepository.lockDueAggregates(any(), anyInt())).thenReturn(
+                Arrays.stream(events).map(OutboxEventEntity::getAggregateId).distinct().toList());
+        when(outboxEventRepository.findDueForRelay(any(), anyList(), anyInt())).thenReturn(List.of(events));
+    }
+
+    private OutboxEventEntity contentProgressedEvent(final long id, final UUID contentId, final UUID userId, final double correctness) throws Exception {
+        ContentProgressedEvent event = ContentProgressedEvent.builder()
+                .userId(userId)
+                .contentId(contentId)
+                .hintsUsed(0)
+                .success(true)
+                .contentType(ContentProgressedEvent.ContentType.ASSIGNMENT)
+                .timeToComplete(null)
+                .correctness(correctness)
+                .responses(List.of())
+                .build();
+        return OutboxEventEntity.builder()
+                .id(id)
+                .aggregateId(contentId + "/" + userId)
+                .eventType(OutboxEventEntity.EventType.CONTENT_PROGRESSED)
+                .payload(objectMapper.writeValueAsString(event))
+                .createdAt(OffsetDateTime.now())
+                .attempts(0)
+                .nextAttemptAt(OffsetDateTime.now())
+                .build();
+    }
+
+    private OutboxEventEntity itemChangedEvent(final long id, final UUID itemId) throws Exception {
+        return OutboxEventEntity.builder()
+                .id(id)
+                .aggregateId(itemId.toString())
+                .eventType(OutboxEventEntity.EventType.ITEM_CHANGED)
+                .payload(objectMapper.writeValueAsString(new EventPublisher.ItemChange(itemId, CrudOperation.DELETE)))
+                .createdAt(OffsetDateTime.now())
+                .attempts(0)
+                .nextAttemptAt(OffsetDateTime.now())
+                .build();
+    }
+}